@@ -0,0 +1,288 @@
+import java.util.*;
+
+// Interned alphabet of Telugu aksharas (consonant cluster + vowel sign + modifiers)
+// drawn from the model vocabulary. Each akshara gets an int code, and aksharas that
+// differ in a single component (vowel sign, modifier, one consonant of the cluster)
+// are linked as neighbours so edits never leave a stray matra or split a conjunct.
+public class AksharaAlphabet {
+    public static final int DEFAULT_INSERTION_LIMIT = 24;
+    
+    public static final char VIRAMA = '\u0C4D';
+    private static final char NUKTA = '\u0C3C';
+    private static final char ZWNJ = '\u200C';
+    private static final char ZWJ = '\u200D';
+    
+    private final String[] symbols;
+    private final long[] frequencies;
+    private final Map<String, Integer> codes;
+    private final Map<String, int[]> componentKeys;
+    private final int[][] neighbors;
+    private final int[] insertionSymbols;
+    
+    private AksharaAlphabet(String[] symbols, long[] frequencies, Map<String, Integer> codes,
+                            Map<String, int[]> componentKeys, int insertionLimit) {
+        this.symbols = symbols;
+        this.frequencies = frequencies;
+        this.codes = codes;
+        this.componentKeys = componentKeys;
+        
+        this.neighbors = new int[symbols.length][];
+        for (int code = 0; code < symbols.length; code++) {
+            neighbors[code] = findNeighbors(symbols[code]);
+        }
+        
+        Integer[] byFrequency = new Integer[symbols.length];
+        for (int code = 0; code < symbols.length; code++) {
+            byFrequency[code] = code;
+        }
+        Arrays.sort(byFrequency, (a, b) -> Long.compare(frequencies[b], frequencies[a]));
+        int limit = Math.min(insertionLimit, symbols.length);
+        this.insertionSymbols = new int[limit];
+        for (int i = 0; i < limit; i++) {
+            insertionSymbols[i] = byFrequency[i];
+        }
+    }
+    
+    public static AksharaAlphabet build(WordStore wordStore) {
+        return build(wordStore, DEFAULT_INSERTION_LIMIT);
+    }
+    
+    public static AksharaAlphabet build(WordStore wordStore, int insertionLimit) {
+        Map<String, Integer> codes = new HashMap<>();
+        List<String> symbols = new ArrayList<>();
+        List<Long> counts = new ArrayList<>();
+        
+        wordStore.forEach((word, frequency) -> {
+            for (String akshara : segment(word)) {
+                Integer code = codes.get(akshara);
+                if (code == null) {
+                    code = symbols.size();
+                    codes.put(akshara, code);
+                    symbols.add(akshara);
+                    counts.add(0L);
+                }
+                counts.set(code, counts.get(code) + frequency);
+            }
+        });
+        
+        Map<String, int[]> componentKeys = new HashMap<>();
+        for (int code = 0; code < symbols.size(); code++) {
+            for (String key : componentKeys(symbols.get(code))) {
+                int[] list = componentKeys.get(key);
+                list = (list == null) ? new int[1] : Arrays.copyOf(list, list.length + 1);
+                list[list.length - 1] = code;
+                componentKeys.put(key, list);
+            }
+        }
+        
+        long[] frequencies = new long[counts.size()];
+        for (int i = 0; i < frequencies.length; i++) {
+            frequencies[i] = counts.get(i);
+        }
+        return new AksharaAlphabet(symbols.toArray(new String[0]), frequencies, codes,
+            componentKeys, insertionLimit);
+    }
+    
+    // Splits a word into aksharas. Dead consonants (trailing virama, optionally
+    // followed by a joiner) form their own akshara; stray marks attach to the
+    // preceding character.
+    public static List<String> segment(String word) {
+        List<String> aksharas = new ArrayList<>();
+        int n = word.length();
+        int i = 0;
+        while (i < n) {
+            int start = i;
+            char c = word.charAt(i++);
+            if (isConsonant(c)) {
+                while (true) {
+                    if (i < n && word.charAt(i) == NUKTA) {
+                        i++;
+                    }
+                    if (i + 1 < n && word.charAt(i) == VIRAMA && isConsonant(word.charAt(i + 1))) {
+                        i += 2;
+                        continue;
+                    }
+                    break;
+                }
+            }
+            if (i < n && word.charAt(i) == VIRAMA) {
+                i++;
+                if (i < n && isJoiner(word.charAt(i))) {
+                    i++;
+                }
+            } else {
+                while (i < n && isVowelSign(word.charAt(i))) {
+                    i++;
+                }
+            }
+            while (i < n && isModifier(word.charAt(i))) {
+                i++;
+            }
+            aksharas.add(word.substring(start, i));
+        }
+        return aksharas;
+    }
+    
+    public int code(String akshara) {
+        Integer code = codes.get(akshara);
+        return code == null ? -1 : code;
+    }
+    
+    public String symbol(int code) {
+        return symbols[code];
+    }
+    
+    public long frequency(int code) {
+        return frequencies[code];
+    }
+    
+    public int size() {
+        return symbols.length;
+    }
+    
+    // Codes of aksharas that differ from the given one in exactly one component
+    public int[] neighbors(String akshara) {
+        int code = code(akshara);
+        return code >= 0 ? neighbors[code] : findNeighbors(akshara);
+    }
+    
+    // Most frequent aksharas, used as the insertion alphabet
+    public int[] insertionSymbols() {
+        return insertionSymbols;
+    }
+    
+    private int[] findNeighbors(String akshara) {
+        Set<Integer> found = new LinkedHashSet<>();
+        for (String key : componentKeys(akshara)) {
+            if (key.charAt(0) == 'd') {
+                // Conjunct consonant dropped from this akshara
+                found.add(code(key.substring(1)));
+                continue;
+            }
+            int[] list = componentKeys.get(key);
+            if (list != null) {
+                for (int code : list) {
+                    found.add(code);
+                }
+            }
+        }
+        // Conjunct consonant added (this akshara is a deletion of the neighbour)
+        int[] extended = componentKeys.get("d" + akshara);
+        if (extended != null) {
+            for (int code : extended) {
+                found.add(code);
+            }
+        }
+        found.remove(code(akshara));
+        found.remove(-1);
+        
+        int[] result = new int[found.size()];
+        int i = 0;
+        for (int code : found) {
+            result[i++] = code;
+        }
+        return result;
+    }
+    
+    // Wildcard keys shared by aksharas one component edit apart. Conjunct
+    // deletions are registered under "d" keys and probed with the full form.
+    private static List<String> componentKeys(String akshara) {
+        List<String> keys = new ArrayList<>();
+        int clusterEnd = clusterEnd(akshara);
+        int vowelEnd = vowelEnd(akshara, clusterEnd);
+        String cluster = akshara.substring(0, clusterEnd);
+        String vowel = akshara.substring(clusterEnd, vowelEnd);
+        String modifier = akshara.substring(vowelEnd);
+        
+        keys.add("v" + cluster + '\u0000' + modifier);
+        keys.add("m" + cluster + '\u0000' + vowel);
+        
+        List<String> consonants = splitCluster(cluster);
+        for (int i = 0; i < consonants.size(); i++) {
+            StringBuilder wildcard = new StringBuilder("c").append(i);
+            StringBuilder deletion = new StringBuilder();
+            for (int j = 0; j < consonants.size(); j++) {
+                wildcard.append(j == i ? "*" : consonants.get(j)).append('\u0000');
+                if (j != i) {
+                    if (deletion.length() > 0) {
+                        deletion.append(VIRAMA);
+                    }
+                    deletion.append(consonants.get(j));
+                }
+            }
+            keys.add(wildcard.append(vowel).append(modifier).toString());
+            if (consonants.size() > 1) {
+                keys.add("d" + deletion + vowel + modifier);
+            }
+        }
+        return keys;
+    }
+    
+    private static int clusterEnd(String akshara) {
+        int n = akshara.length();
+        int i = 1;
+        if (!isConsonant(akshara.charAt(0))) {
+            return i;
+        }
+        while (true) {
+            if (i < n && akshara.charAt(i) == NUKTA) {
+                i++;
+            }
+            if (i + 1 < n && akshara.charAt(i) == VIRAMA && isConsonant(akshara.charAt(i + 1))) {
+                i += 2;
+                continue;
+            }
+            return i;
+        }
+    }
+    
+    private static int vowelEnd(String akshara, int from) {
+        int n = akshara.length();
+        int i = from;
+        if (i < n && akshara.charAt(i) == VIRAMA) {
+            i++;
+            if (i < n && isJoiner(akshara.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+        while (i < n && isVowelSign(akshara.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+    
+    private static List<String> splitCluster(String cluster) {
+        List<String> consonants = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < cluster.length(); i++) {
+            if (cluster.charAt(i) == VIRAMA) {
+                consonants.add(cluster.substring(start, i));
+                start = i + 1;
+            }
+        }
+        consonants.add(cluster.substring(start));
+        return consonants;
+    }
+    
+    public static boolean isConsonant(char c) {
+        return (c >= '\u0C15' && c <= '\u0C39') || (c >= '\u0C58' && c <= '\u0C5D');
+    }
+    
+    public static boolean isVowelSign(char c) {
+        return (c >= '\u0C3E' && c <= '\u0C4C') || c == '\u0C55' || c == '\u0C56'
+            || c == '\u0C62' || c == '\u0C63';
+    }
+    
+    public static boolean isModifier(char c) {
+        return (c >= '\u0C00' && c <= '\u0C04') || c == NUKTA;
+    }
+    
+    public static boolean isVirama(char c) {
+        return c == VIRAMA;
+    }
+    
+    private static boolean isJoiner(char c) {
+        return c == ZWNJ || c == ZWJ;
+    }
+}
\ No newline at end of file
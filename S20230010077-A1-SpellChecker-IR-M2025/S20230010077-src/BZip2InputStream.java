@@ -0,0 +1,409 @@
+import java.io.*;
+
+// Streaming bzip2 decompressor (the JDK only ships gzip/deflate). Handles
+// concatenated streams, as found in Wikimedia multistream dumps, and checks
+// the CRC of every block.
+public class BZip2InputStream extends InputStream {
+    private static final long BLOCK_MAGIC = 0x314159265359L;
+    private static final long END_MAGIC = 0x177245385090L;
+    private static final int RUNA = 0;
+    private static final int RUNB = 1;
+    private static final int MAX_GROUPS = 6;
+    private static final int GROUP_SIZE = 50;
+    private static final int MAX_CODE_LENGTH = 23;
+    private static final int[] CRC_TABLE = new int[256];
+    
+    static {
+        for (int i = 0; i < 256; i++) {
+            int c = i << 24;
+            for (int k = 0; k < 8; k++) {
+                c = (c & 0x80000000) != 0 ? (c << 1) ^ 0x04C11DB7 : c << 1;
+            }
+            CRC_TABLE[i] = c;
+        }
+    }
+    
+    private final InputStream in;
+    private long bitBuffer;
+    private int bitCount;
+    
+    private int blockSize100k;
+    private int[] tt = new int[0];
+    private int combinedCrc;
+    
+    // Output state of the current block (inverse BWT + run-length decoding)
+    private int blockLength;
+    private int outputIndex;
+    private int tPos;
+    private int lastByte = -1;
+    private int previousByte;
+    private int runLength;
+    private int repeatRemaining;
+    private int repeatByte;
+    private int blockCrc;
+    private int expectedBlockCrc;
+    private boolean streamEnded = true;
+    private boolean eof;
+    
+    public BZip2InputStream(InputStream in) throws IOException {
+        this.in = in;
+        if (!startStream()) {
+            throw new IOException("Not a bzip2 stream");
+        }
+    }
+    
+    @Override
+    public int read() throws IOException {
+        while (!eof) {
+            if (repeatRemaining > 0) {
+                repeatRemaining--;
+                updateCrc(repeatByte);
+                return repeatByte;
+            }
+            if (outputIndex < blockLength) {
+                tPos = tt[tPos];
+                int b = tPos & 0xFF;
+                tPos >>>= 8;
+                outputIndex++;
+                
+                if (runLength == 4) {
+                    // Fifth byte of a run is the number of extra repetitions
+                    runLength = 0;
+                    lastByte = -1;
+                    repeatRemaining = b;
+                    repeatByte = previousByte;
+                    continue;
+                }
+                if (b == lastByte) {
+                    runLength++;
+                } else {
+                    runLength = 1;
+                    lastByte = b;
+                }
+                previousByte = b;
+                updateCrc(b);
+                return b;
+            }
+            if (blockLength > 0) {
+                finishBlock();
+            }
+            nextBlock();
+        }
+        return -1;
+    }
+    
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int count = 0;
+        while (count < length) {
+            int b = read();
+            if (b < 0) {
+                break;
+            }
+            buffer[offset + count++] = (byte) b;
+        }
+        return count == 0 ? -1 : count;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+    
+    private boolean startStream() throws IOException {
+        bitCount -= bitCount % 8;   // streams start on a byte boundary
+        int b = readByteOrEof();
+        if (b < 0) {
+            return false;
+        }
+        if (b != 'B' || bits(8) != 'Z' || bits(8) != 'h') {
+            throw new IOException("Not a bzip2 stream");
+        }
+        int level = bits(8) - '0';
+        if (level < 1 || level > 9) {
+            throw new IOException("Invalid bzip2 block size");
+        }
+        blockSize100k = level;
+        combinedCrc = 0;
+        streamEnded = false;
+        return true;
+    }
+    
+    private void finishBlock() throws IOException {
+        if (~blockCrc != expectedBlockCrc) {
+            throw new IOException("bzip2 block CRC mismatch");
+        }
+        combinedCrc = (combinedCrc << 1 | combinedCrc >>> 31) ^ expectedBlockCrc;
+        blockLength = 0;
+    }
+    
+    private void nextBlock() throws IOException {
+        while (true) {
+            if (streamEnded) {
+                if (!startStream()) {
+                    eof = true;
+                    return;
+                }
+            }
+            long magic = ((long) bits(24) << 24) | bits(24);
+            int crc = bits(32);
+            if (magic == END_MAGIC) {
+                if (crc != combinedCrc) {
+                    throw new IOException("bzip2 stream CRC mismatch");
+                }
+                streamEnded = true;
+                continue;
+            }
+            if (magic != BLOCK_MAGIC) {
+                throw new IOException("Bad bzip2 block header");
+            }
+            expectedBlockCrc = crc;
+            decodeBlock();
+            return;
+        }
+    }
+    
+    private void decodeBlock() throws IOException {
+        if (bits(1) != 0) {
+            throw new IOException("Randomised bzip2 blocks are not supported");
+        }
+        int origPtr = bits(24);
+        
+        // Symbol map: which byte values occur in the block
+        int[] seqToUnseq = new int[256];
+        int inUse = 0;
+        int used16 = bits(16);
+        for (int i = 0; i < 16; i++) {
+            if ((used16 & (0x8000 >>> i)) != 0) {
+                int used = bits(16);
+                for (int j = 0; j < 16; j++) {
+                    if ((used & (0x8000 >>> j)) != 0) {
+                        seqToUnseq[inUse++] = i * 16 + j;
+                    }
+                }
+            }
+        }
+        if (inUse == 0) {
+            throw new IOException("Empty bzip2 symbol map");
+        }
+        int alphaSize = inUse + 2;
+        
+        // Huffman table selectors (MTF coded)
+        int groups = bits(3);
+        int selectorCount = bits(15);
+        if (groups < 2 || groups > MAX_GROUPS || selectorCount < 1) {
+            throw new IOException("Bad bzip2 Huffman groups");
+        }
+        byte[] selectorMtf = new byte[MAX_GROUPS];
+        for (int i = 0; i < groups; i++) {
+            selectorMtf[i] = (byte) i;
+        }
+        byte[] selectors = new byte[selectorCount];
+        for (int i = 0; i < selectorCount; i++) {
+            int j = 0;
+            while (bits(1) == 1) {
+                if (++j >= groups) {
+                    throw new IOException("Bad bzip2 selector");
+                }
+            }
+            byte value = selectorMtf[j];
+            System.arraycopy(selectorMtf, 0, selectorMtf, 1, j);
+            selectorMtf[0] = value;
+            selectors[i] = value;
+        }
+        
+        // Code lengths (delta coded) and decode tables per group
+        int[][] limit = new int[groups][MAX_CODE_LENGTH + 1];
+        int[][] base = new int[groups][MAX_CODE_LENGTH + 2];
+        int[][] perm = new int[groups][alphaSize];
+        int[] minLength = new int[groups];
+        for (int g = 0; g < groups; g++) {
+            int[] lengths = new int[alphaSize];
+            int length = bits(5);
+            for (int s = 0; s < alphaSize; s++) {
+                while (true) {
+                    if (length < 1 || length > 20) {
+                        throw new IOException("Bad bzip2 code length");
+                    }
+                    if (bits(1) == 0) {
+                        break;
+                    }
+                    length += (bits(1) == 0) ? 1 : -1;
+                }
+                lengths[s] = length;
+            }
+            minLength[g] = createDecodeTables(lengths, alphaSize, limit[g], base[g], perm[g]);
+        }
+        
+        // Huffman + MTF + RUNA/RUNB decoding into tt
+        int maxBlock = blockSize100k * 100000;
+        if (tt.length < maxBlock) {
+            tt = new int[maxBlock];
+        }
+        int[] counts = new int[256];
+        int[] mtf = new int[256];
+        for (int i = 0; i < 256; i++) {
+            mtf[i] = i;
+        }
+        int endOfBlock = inUse + 1;
+        int groupIndex = -1;
+        int groupRemaining = 0;
+        int length = 0;
+        int run = 0;
+        int runWeight = 1;
+        int[] groupLimit = null;
+        int[] groupBase = null;
+        int[] groupPerm = null;
+        int groupMin = 0;
+        
+        while (true) {
+            if (groupRemaining == 0) {
+                if (++groupIndex >= selectorCount) {
+                    throw new IOException("bzip2 selectors exhausted");
+                }
+                int g = selectors[groupIndex];
+                groupLimit = limit[g];
+                groupBase = base[g];
+                groupPerm = perm[g];
+                groupMin = minLength[g];
+                groupRemaining = GROUP_SIZE;
+            }
+            groupRemaining--;
+            
+            int n = groupMin;
+            int code = bits(n);
+            while (code > groupLimit[n]) {
+                if (++n > MAX_CODE_LENGTH) {
+                    throw new IOException("Bad bzip2 Huffman code");
+                }
+                code = (code << 1) | bits(1);
+            }
+            int symbol = groupPerm[code - groupBase[n]];
+            
+            if (symbol == RUNA || symbol == RUNB) {
+                run += (symbol == RUNA ? 1 : 2) * runWeight;
+                runWeight <<= 1;
+                if (run > maxBlock) {
+                    throw new IOException("bzip2 run exceeds block size");
+                }
+                continue;
+            }
+            if (run > 0) {
+                int b = seqToUnseq[mtf[0]];
+                if (length + run > maxBlock) {
+                    throw new IOException("bzip2 block overflow");
+                }
+                counts[b] += run;
+                while (run-- > 0) {
+                    tt[length++] = b;
+                }
+                run = 0;
+                runWeight = 1;
+            }
+            if (symbol == endOfBlock) {
+                break;
+            }
+            
+            int index = symbol - 1;
+            int value = mtf[index];
+            System.arraycopy(mtf, 0, mtf, 1, index);
+            mtf[0] = value;
+            int b = seqToUnseq[value];
+            if (length >= maxBlock) {
+                throw new IOException("bzip2 block overflow");
+            }
+            counts[b]++;
+            tt[length++] = b;
+        }
+        if (origPtr >= length) {
+            throw new IOException("Bad bzip2 origin pointer");
+        }
+        
+        // Inverse BWT: link every position to its successor
+        int[] cumulative = new int[256];
+        for (int i = 1; i < 256; i++) {
+            cumulative[i] = cumulative[i - 1] + counts[i - 1];
+        }
+        for (int i = 0; i < length; i++) {
+            int b = tt[i] & 0xFF;
+            tt[cumulative[b]++] |= i << 8;
+        }
+        
+        tPos = tt[origPtr] >>> 8;
+        blockLength = length;
+        outputIndex = 0;
+        lastByte = -1;
+        runLength = 0;
+        blockCrc = 0xFFFFFFFF;
+    }
+    
+    // Canonical Huffman decode tables; returns the minimum code length
+    private static int createDecodeTables(int[] lengths, int alphaSize, int[] limit, int[] base, int[] perm) {
+        int minLen = 32;
+        int maxLen = 0;
+        for (int i = 0; i < alphaSize; i++) {
+            minLen = Math.min(minLen, lengths[i]);
+            maxLen = Math.max(maxLen, lengths[i]);
+        }
+        int p = 0;
+        for (int len = minLen; len <= maxLen; len++) {
+            for (int s = 0; s < alphaSize; s++) {
+                if (lengths[s] == len) {
+                    perm[p++] = s;
+                }
+            }
+        }
+        for (int i = 0; i < alphaSize; i++) {
+            base[lengths[i] + 1]++;
+        }
+        for (int i = 1; i < base.length; i++) {
+            base[i] += base[i - 1];
+        }
+        int vec = 0;
+        for (int len = minLen; len <= maxLen; len++) {
+            vec += base[len + 1] - base[len];
+            limit[len] = vec - 1;
+            vec <<= 1;
+        }
+        for (int len = maxLen + 1; len <= MAX_CODE_LENGTH; len++) {
+            limit[len] = Integer.MAX_VALUE;
+        }
+        for (int len = minLen + 1; len <= maxLen; len++) {
+            base[len] = ((limit[len - 1] + 1) << 1) - base[len];
+        }
+        return minLen;
+    }
+    
+    private void updateCrc(int b) {
+        blockCrc = (blockCrc << 8) ^ CRC_TABLE[((blockCrc >>> 24) ^ b) & 0xFF];
+    }
+    
+    private int readByteOrEof() throws IOException {
+        if (bitCount >= 8) {
+            return bits(8);
+        }
+        int b = in.read();
+        if (b < 0) {
+            return -1;
+        }
+        bitBuffer = (bitBuffer << 8) | b;
+        bitCount += 8;
+        return bits(8);
+    }
+    
+    private int bits(int n) throws IOException {
+        while (bitCount < n) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Unexpected end of bzip2 stream");
+            }
+            bitBuffer = (bitBuffer << 8) | b;
+            bitCount += 8;
+        }
+        bitCount -= n;
+        return (int) ((bitBuffer >>> bitCount) & ((1L << n) - 1));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,241 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+// Headless checking of many documents: every file under a directory (or
+// matching a glob such as docs/**/*.txt) is checked on a fork-join pool
+// against one shared model, and one JSON line per file is written as files
+// finish:
+//   {"file", "chars", "tokens", "misspelled", "modelVersion", "millis",
+//    "errors": [{"word", "start", "end", "candidates"}]}
+// or {"file", "error"} for a file that could not be read. Offsets are in chars
+// from the start of the file. Files are listed lazily and at most `window`
+// are read ahead of the workers, so memory does not grow with their number;
+// files above STREAMING_BYTES are checked in chunks instead of read whole.
+public class BatchSpellChecker {
+    public static final long STREAMING_BYTES = 16L << 20;
+    
+    private final TeluguSpellChecker checker;
+    private final int parallelism;
+    private final int window;
+    
+    public static final class Summary {
+        public final long files;
+        public final long failed;
+        public final long bytes;
+        public final long tokens;
+        public final long misspelled;
+        public final long millis;
+        
+        Summary(long files, long failed, long bytes, long tokens, long misspelled, long millis) {
+            this.files = files;
+            this.failed = failed;
+            this.bytes = bytes;
+            this.tokens = tokens;
+            this.misspelled = misspelled;
+            this.millis = millis;
+        }
+        
+        @Override
+        public String toString() {
+            double seconds = Math.max(1, millis) / 1000.0;
+            return String.format("%d files (%d failed), %d tokens, %d misspelled in %.1f s: "
+                + "%.1f files/s, %.2f MB/s, %.0f tokens/s",
+                files, failed, tokens, misspelled, seconds, files / seconds, bytes / seconds / (1 << 20),
+                tokens / seconds);
+        }
+    }
+    
+    public BatchSpellChecker(TeluguSpellChecker checker) {
+        this(checker, Runtime.getRuntime().availableProcessors());
+    }
+    
+    public BatchSpellChecker(TeluguSpellChecker checker, int parallelism) {
+        this.checker = checker;
+        this.parallelism = Math.max(1, parallelism);
+        this.window = this.parallelism * 4;
+    }
+    
+    public Summary check(String target, Writer output) throws IOException {
+        long started = System.currentTimeMillis();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Semaphore slots = new Semaphore(window);
+        LongAdder[] totals = new LongAdder[5];   // files, failed, bytes, tokens, misspelled
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = new LongAdder();
+        }
+        AtomicReference<IOException> writeFailure = new AtomicReference<>();
+        
+        try (Stream<Path> files = files(target)) {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext() && writeFailure.get() == null) {
+                Path file = iterator.next();
+                slots.acquire();
+                pool.execute(() -> {
+                    try {
+                        String line = Json.write(checkFile(file, totals));
+                        long writing = Metrics.start();
+                        synchronized (output) {
+                            output.write(line);
+                            output.write('\n');
+                        }
+                        Metrics.record(Metrics.Stage.OUTPUT, writing);
+                    } catch (IOException e) {
+                        writeFailure.compareAndSet(null, e);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+            // All slots free again once the last file is written
+            slots.acquire(window);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while checking " + target);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();   // from walking the directory
+        } finally {
+            pool.shutdownNow();
+        }
+        if (writeFailure.get() != null) {
+            throw writeFailure.get();
+        }
+        output.flush();
+        return new Summary(totals[0].sum(), totals[1].sum(), totals[2].sum(), totals[3].sum(), totals[4].sum(),
+            System.currentTimeMillis() - started);
+    }
+    
+    private Map<String, Object> checkFile(Path file, LongAdder[] totals) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("file", file.toString());
+        totals[0].increment();
+        long started = System.currentTimeMillis();
+        List<Map<String, Object>> errors = new ArrayList<>();
+        long bytes;
+        long chars;
+        long tokens;
+        long version;
+        try {
+            bytes = Files.size(file);
+            if (bytes > STREAMING_BYTES) {
+                // One chunk at a time: the other workers already keep the cores busy
+                version = checker.getLanguageModel().getVersion();
+                StreamingDocumentChecker.Summary summary = new StreamingDocumentChecker(checker,
+                    StreamingDocumentChecker.DEFAULT_CHUNK_CHARS, 1).check(file, Writer.nullWriter(),
+                    (error, offset) -> errors.add(errorJson(error, offset)));
+                chars = summary.chars;
+                tokens = summary.tokens;
+            } else {
+                byte[] content = Files.readAllBytes(file);
+                SpellCheckResult result = checker.check(new String(content, StandardCharsets.UTF_8));
+                for (SpellCheckResult.SpellingError error : result.getErrors()) {
+                    errors.add(errorJson(error, error.getStart()));
+                }
+                bytes = content.length;
+                chars = result.getText().length();
+                tokens = result.getTokens().size();
+                version = result.getModelVersion();
+            }
+        } catch (IOException | RuntimeException e) {
+            totals[1].increment();
+            json.put("error", e.toString());
+            return json;
+        }
+        totals[2].add(bytes);
+        totals[3].add(tokens);
+        totals[4].add(errors.size());
+        
+        json.put("chars", chars);
+        json.put("tokens", tokens);
+        json.put("misspelled", errors.size());
+        json.put("modelVersion", version);
+        json.put("millis", System.currentTimeMillis() - started);
+        json.put("errors", errors);
+        return json;
+    }
+    
+    // Same fields as SpellCheckResult.toJson, with the offset from the start of the file
+    private static Map<String, Object> errorJson(SpellCheckResult.SpellingError error, long start) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("word", error.getWord());
+        entry.put("start", start);
+        entry.put("end", start + error.getEnd() - error.getStart());
+        entry.put("candidates", error.getCandidates());
+        return entry;
+    }
+    
+    // A single file, every regular file under a directory, or the files matching
+    // a glob; the glob applies to paths below its first component with a wildcard,
+    // and a leading **/ also matches files directly in that directory
+    static Stream<Path> files(String target) throws IOException {
+        int wildcard = indexOfWildcard(target);
+        if (wildcard < 0) {
+            Path path = Paths.get(target);
+            if (!Files.isDirectory(path)) {
+                return Stream.of(path);
+            }
+            return Files.walk(path).filter(Files::isRegularFile);
+        }
+        int slash = Math.max(target.lastIndexOf('/', wildcard), target.lastIndexOf(File.separatorChar, wildcard));
+        Path base = Paths.get(slash < 0 ? "." : target.substring(0, slash + 1));
+        String pattern = target.substring(slash + 1);
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        PathMatcher topLevel = pattern.startsWith("**/")
+            ? FileSystems.getDefault().getPathMatcher("glob:" + pattern.substring(3)) : matcher;
+        return Files.walk(base).filter(path -> {
+            Path relative = base.relativize(path);
+            return Files.isRegularFile(path) && (matcher.matches(relative) || topLevel.matches(relative));
+        });
+    }
+    
+    private static int indexOfWildcard(String target) {
+        for (int i = 0; i < target.length(); i++) {
+            if ("*?[{".indexOf(target.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java BatchSpellChecker <directory | file | glob> <results.ndjson>"
+                + " [-model path] [-threads N]");
+            System.out.println("  e.g. java BatchSpellChecker 'docs/**/*.txt' results.ndjson -threads 8");
+            return;
+        }
+        String modelPath = "data/telugu_index.dat";
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-model": modelPath = args[i + 1]; break;
+                case "-threads": threads = Integer.parseInt(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        
+        // No sample-data fallback: results against a stand-in dictionary would look valid
+        TeluguSpellChecker spellChecker = new TeluguSpellChecker();
+        try {
+            spellChecker.initializeFromIndex(modelPath);
+        } catch (IOException e) {
+            System.out.println("Error loading model " + modelPath + ": " + e);
+            System.exit(1);
+        }
+        BatchSpellChecker batch = new BatchSpellChecker(spellChecker, threads);
+        try (Writer output = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(args[1]), StandardCharsets.UTF_8))) {
+            Summary summary = batch.check(args[0], output);
+            System.out.println("Checked " + args[0] + ": " + summary);
+            System.out.println("Results written to " + args[1]);
+        } catch (IOException e) {
+            System.out.println("Error checking documents: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
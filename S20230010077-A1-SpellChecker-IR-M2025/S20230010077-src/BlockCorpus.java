@@ -0,0 +1,284 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Cleaned corpus text stored as independently compressed blocks. Every block
+// holds whole lines (about BLOCK_CHARS chars) deflated on its own, and an index
+// of block offsets at the end of the file lets readers decode any block
+// without the others, so the corpus can be split across threads.
+//
+// File layout (little endian):
+//   int  magic ("TSBC")     int  version
+//   blocks: zlib streams
+//   index: per block  long offset, int compressed length, int UTF-8 length
+//          int block count
+//   long index offset       int  magic
+//
+// Corpus files are written as blocks when their name ends in .blocks;
+// openReader reads either kind as plain text.
+public class BlockCorpus implements Closeable {
+    public static final int MAGIC = 0x43425354;
+    public static final int VERSION = 1;
+    public static final int BLOCK_CHARS = 1 << 18;
+    private static final int TRAILER_SIZE = 12;
+    
+    private final FileChannel channel;
+    private final long[] offsets;
+    private final int[] compressedLengths;
+    private final int[] lengths;
+    
+    private BlockCorpus(FileChannel channel, long[] offsets, int[] compressedLengths, int[] lengths) {
+        this.channel = channel;
+        this.offsets = offsets;
+        this.compressedLengths = compressedLengths;
+        this.lengths = lengths;
+    }
+    
+    public static BlockCorpus open(String filePath) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < 8 + TRAILER_SIZE || read(channel, 0, 4).getInt() != MAGIC) {
+                throw new IOException("Not a block corpus: " + filePath);
+            }
+            ByteBuffer trailer = read(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            long indexOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC || indexOffset < 8 || indexOffset > size - TRAILER_SIZE - 4) {
+                throw new IOException("Block corpus index missing (file not closed?): " + filePath);
+            }
+            ByteBuffer index = read(channel, indexOffset, (int) (size - TRAILER_SIZE - indexOffset));
+            int count = index.getInt(index.limit() - 4);
+            long[] offsets = new long[count];
+            int[] compressedLengths = new int[count];
+            int[] lengths = new int[count];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = index.getLong();
+                compressedLengths[i] = index.getInt();
+                lengths[i] = index.getInt();
+            }
+            return new BlockCorpus(channel, offsets, compressedLengths, lengths);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    public static boolean isBlockCorpus(String filePath) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filePath))) {
+            return Integer.reverseBytes(in.readInt()) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    // Where a corpus should be written as blocks rather than plain text
+    public static boolean isBlockPath(String filePath) {
+        return filePath.endsWith(".blocks");
+    }
+    
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Block corpus truncated");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+    
+    public int getBlockCount() {
+        return offsets.length;
+    }
+    
+    // Decodes one block; safe to call from several threads at once
+    public String readBlock(int block) throws IOException {
+        ByteBuffer compressed = read(channel, offsets[block], compressedLengths[block]);
+        byte[] bytes = new byte[lengths[block]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array(), 0, compressed.limit());
+            int length = 0;
+            while (length < bytes.length && !inflater.finished()) {
+                int inflated = inflater.inflate(bytes, length, bytes.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != bytes.length) {
+                throw new IOException("Block " + block + " is corrupt");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Block " + block + " is corrupt: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    // A writer producing a block corpus, or plain UTF-8 text for other names
+    public static Writer create(String filePath) throws IOException {
+        if (isBlockPath(filePath)) {
+            return new BlockWriter(filePath);
+        }
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filePath), StandardCharsets.UTF_8));
+    }
+    
+    // The corpus text of either format, as one stream
+    public static Reader openReader(String filePath) throws IOException {
+        if (!isBlockCorpus(filePath)) {
+            return Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8);
+        }
+        BlockCorpus corpus = open(filePath);
+        return new Reader() {
+            private int next;
+            private String block = "";
+            private int position;
+            
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                while (position == block.length()) {
+                    if (next == corpus.getBlockCount()) {
+                        return -1;
+                    }
+                    block = corpus.readBlock(next++);
+                    position = 0;
+                }
+                int count = Math.min(length, block.length() - position);
+                block.getChars(position, position + count, buffer, offset);
+                position += count;
+                return count;
+            }
+            
+            @Override
+            public void close() throws IOException {
+                corpus.close();
+            }
+        };
+    }
+    
+    // Collects text and writes a block whenever BLOCK_CHARS have been written
+    // and a line has ended; the index is written on close
+    private static final class BlockWriter extends Writer {
+        private final DataOutputStream out;
+        private final StringBuilder pending = new StringBuilder();
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        private final DataOutputStream indexOut = new DataOutputStream(index);
+        private final byte[] buffer = new byte[1 << 16];
+        private long position = 8;   // after the header
+        private int blocks;
+        private boolean closed;
+        
+        BlockWriter(String filePath) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath), 1 << 16));
+            out.writeInt(Integer.reverseBytes(MAGIC));
+            out.writeInt(Integer.reverseBytes(VERSION));
+        }
+        
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            pending.append(chars, offset, length);
+            cutBlocks();
+        }
+        
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            pending.append(text, offset, offset + length);
+            cutBlocks();
+        }
+        
+        private void cutBlocks() throws IOException {
+            if (pending.length() < BLOCK_CHARS) {
+                return;
+            }
+            int end = pending.lastIndexOf("\n") + 1;
+            if (end > 0) {
+                writeBlock(pending.substring(0, end));
+                pending.delete(0, end);
+            }
+        }
+        
+        private void writeBlock(String text) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            deflater.reset();
+            deflater.setInput(bytes);
+            deflater.finish();
+            int compressed = 0;
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+                compressed += length;
+            }
+            indexOut.writeLong(Long.reverseBytes(position));
+            indexOut.writeInt(Integer.reverseBytes(compressed));
+            indexOut.writeInt(Integer.reverseBytes(bytes.length));
+            position += compressed;
+            blocks++;
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            // Blocks are only cut at BLOCK_CHARS; flushing does not end one
+            out.flush();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (pending.length() > 0) {
+                    writeBlock(pending.toString());
+                    pending.setLength(0);
+                }
+                long indexOffset = position;
+                indexOut.writeInt(Integer.reverseBytes(blocks));
+                index.writeTo(out);
+                out.writeLong(Long.reverseBytes(indexOffset));
+                out.writeInt(Integer.reverseBytes(MAGIC));
+            } finally {
+                deflater.end();
+                out.close();
+            }
+        }
+    }
+    
+    // Converts a plain text corpus (e.g. one written before this format) to blocks
+    public static void pack(String textPath, String blocksPath) throws IOException {
+        try (Reader in = openReader(textPath); Writer out = new BlockWriter(blocksPath)) {
+            char[] buffer = new char[1 << 16];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+    
+    // java BlockCorpus pack telugu_corpus.txt telugu_corpus.blocks
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || !args[0].equals("pack")) {
+            System.out.println("Usage: java BlockCorpus pack <corpus.txt> <corpus.blocks>");
+            return;
+        }
+        pack(args[1], args[2]);
+        try (BlockCorpus corpus = open(args[2])) {
+            System.out.println("Wrote " + args[2] + ": " + corpus.getBlockCount() + " blocks, "
+                + new File(args[2]).length() / 1024 + " KB (text " + new File(args[1]).length() / 1024 + " KB)");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+// Bloom filter over 64-bit hashes: mightContain is false for every hash never
+// added, and true for a hash not added with about the configured probability.
+// The k bit positions come from the two halves of the hash (h1 + i * h2), so
+// callers hash each key once. Not safe for concurrent adds; reads are.
+public class BloomFilter {
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashes;
+    
+    public BloomFilter(long expectedKeys, double falsePositiveRate) {
+        long keys = Math.max(1, expectedKeys);
+        long wanted = (long) Math.ceil(-keys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        // Positions are 32-bit, so at most 2^32 bits (512 MB)
+        this.bits = new long[(int) Math.min(1 << 26, (Math.max(64, wanted) + 63) / 64)];
+        this.bitCount = 64L * bits.length;
+        this.hashes = Math.max(1, (int) Math.round((double) bitCount / keys * Math.log(2)));
+    }
+    
+    // Bytes needed for the given number of keys and false positive rate
+    public static long estimatedBytes(long expectedKeys, double falsePositiveRate) {
+        return (long) Math.ceil(-Math.max(1, expectedKeys) * Math.log(falsePositiveRate)
+            / (Math.log(2) * Math.log(2)) / 8);
+    }
+    
+    public void add(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = position(h1 + i * h2);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+    
+    public boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = position(h1 + i * h2);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // Maps a 32-bit hash onto [0, bitCount) with a multiply instead of a division
+    private long position(int hash) {
+        return (Integer.toUnsignedLong(hash) * bitCount) >>> 32;
+    }
+    
+    public long estimatedBytes() {
+        return 8L * bits.length;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,240 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Micro-batches candidate lookups across concurrent requests. A misspelled word
+// that is already queued or being computed for another request is shared rather
+// than searched again; new words wait up to the batch window so that requests
+// arriving together are dispatched to the workers as one batch.
+public class CandidateBatcher implements TeluguSpellChecker.CandidateLookup, AutoCloseable {
+    private final CandidateGenerator generator;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ExecutorService workers;
+    private final int parallelism;
+    private final ConcurrentHashMap<Key, Pending> pending = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private volatile boolean running = true;
+    
+    private final LongAdder requested = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    
+    public CandidateBatcher(CandidateGenerator generator, long windowMicros, int maxBatchSize, int parallelism) {
+        this.generator = generator;
+        this.windowNanos = Math.max(0, windowMicros) * 1000;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.parallelism = Math.max(1, parallelism);
+        this.workers = Executors.newFixedThreadPool(this.parallelism, daemonThreads("spellcheck-candidates"));
+        this.flusher = daemonThreads("spellcheck-batcher").newThread(this::flushLoop);
+        this.flusher.start();
+    }
+    
+    // Blocks until candidates for all the words are available
+    @Override
+    public Map<String, List<String>> candidates(Collection<String> words, LanguageModel model) {
+        if (!running) {
+            throw new IllegalStateException("Candidate batcher is closed");
+        }
+        long version = model.getVersion();
+        Map<String, CompletableFuture<List<String>>> futures = new LinkedHashMap<>();
+        for (String word : words) {
+            requested.increment();
+            Key key = new Key(word, version);
+            Pending entry = pending.get(key);
+            boolean created = false;
+            if (entry == null) {
+                Pending fresh = new Pending(key, model);
+                entry = pending.putIfAbsent(key, fresh);
+                if (entry == null) {
+                    entry = fresh;
+                    created = true;
+                }
+            }
+            if (entry.model != model) {
+                // Another model instance with the same version; do not mix their results
+                entry = new Pending(key, model);
+                created = true;
+            }
+            if (created) {
+                queue.add(entry);
+            } else {
+                shared.increment();
+            }
+            futures.put(word, entry.future);
+        }
+        
+        Map<String, List<String>> candidates = new HashMap<>();
+        for (Map.Entry<String, CompletableFuture<List<String>>> entry : futures.entrySet()) {
+            try {
+                candidates.put(entry.getKey(), entry.getValue().join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+            }
+        }
+        return candidates;
+    }
+    
+    private void flushLoop() {
+        while (running) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Pending> batch = new ArrayList<>();
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    long wait = deadline - System.nanoTime();
+                    if (wait <= 0) {
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                        break;
+                    }
+                    Pending next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        failPending(new IllegalStateException("Candidate batcher is closed"));
+    }
+    
+    // Splits the batch into one slice per worker
+    private void dispatch(List<Pending> batch) {
+        batches.increment();
+        int slices = Math.min(parallelism, batch.size());
+        for (int slice = 0; slice < slices; slice++) {
+            List<Pending> part = batch.subList(batch.size() * slice / slices, batch.size() * (slice + 1) / slices);
+            workers.execute(() -> compute(part));
+        }
+    }
+    
+    // The words of each model go to the generator together, so a sharded model
+    // checks the whole slice with one round trip per shard
+    private void compute(List<Pending> part) {
+        Map<LanguageModel, List<Pending>> byModel = new IdentityHashMap<>();
+        for (Pending entry : part) {
+            byModel.computeIfAbsent(entry.model, model -> new ArrayList<>()).add(entry);
+        }
+        for (Map.Entry<LanguageModel, List<Pending>> group : byModel.entrySet()) {
+            List<String> words = new ArrayList<>();
+            for (Pending entry : group.getValue()) {
+                words.add(entry.key.word);
+            }
+            try {
+                Map<String, List<String>> candidates = generator.generateCandidates(words, group.getKey());
+                for (Pending entry : group.getValue()) {
+                    entry.future.complete(candidates.get(entry.key.word));
+                }
+            } catch (Throwable e) {
+                // Errors too, or the requests joined on these futures would wait forever
+                for (Pending entry : group.getValue()) {
+                    entry.future.completeExceptionally(e);
+                }
+            } finally {
+                for (Pending entry : group.getValue()) {
+                    pending.remove(entry.key, entry);
+                }
+            }
+        }
+    }
+    
+    private void failPending(RuntimeException error) {
+        List<Pending> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (Pending entry : remaining) {
+            entry.future.completeExceptionally(error);
+            pending.remove(entry.key, entry);
+        }
+    }
+    
+    public Stats getStats() {
+        return new Stats(requested.sum(), shared.sum(), batches.sum(), queue.size());
+    }
+    
+    @Override
+    public void close() {
+        running = false;
+        flusher.interrupt();
+        workers.shutdown();
+        try {
+            flusher.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failPending(new IllegalStateException("Candidate batcher is closed"));
+    }
+    
+    static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    private static final class Key {
+        final String word;
+        final long version;
+        
+        Key(String word, long version) {
+            this.word = word;
+            this.version = version;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return version == key.version && word.equals(key.word);
+        }
+        
+        @Override
+        public int hashCode() {
+            return word.hashCode() * 31 + Long.hashCode(version);
+        }
+    }
+    
+    private static final class Pending {
+        final Key key;
+        final LanguageModel model;
+        final CompletableFuture<List<String>> future = new CompletableFuture<>();
+        
+        Pending(Key key, LanguageModel model) {
+            this.key = key;
+            this.model = model;
+        }
+    }
+    
+    public static final class Stats {
+        public final long requested;
+        public final long shared;
+        public final long batches;
+        public final int queued;
+        
+        Stats(long requested, long shared, long batches, int queued) {
+            this.requested = requested;
+            this.shared = shared;
+            this.batches = batches;
+            this.queued = queued;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("requested=%d shared=%d batches=%d queued=%d", requested, shared, batches, queued);
+        }
+    }
+}
\ No newline at end of file
@@ -2,78 +2,348 @@ import java.util.*;
 
 public class CandidateGenerator {
     
+    // Automaton search settings; off by default
+    private boolean automatonSearch;
+    private int maxDistance = 2;
+    private int topK = 10;
+    
+    // Noisy-channel search settings; used instead of the above when a model is set
+    private ErrorModel errorModel;
+    private double maxEditCost;
+    
+    // Shared across generators; null disables caching
+    private SuggestionCache suggestionCache = SuggestionCache.shared();
+    
+    // Walks the dictionary automaton instead of generating and probing edits
+    public void useAutomatonSearch(int maxDistance, int topK) {
+        this.automatonSearch = true;
+        this.errorModel = null;
+        this.maxDistance = maxDistance;
+        this.topK = topK;
+    }
+    
+    // Best-first search for the topK most probable corrections under the error
+    // model within maxDistance edits; edits costing more than maxEditCost in
+    // total are not considered
+    public void useNoisyChannelSearch(ErrorModel errorModel, int maxDistance, int topK, double maxEditCost) {
+        this.errorModel = errorModel;
+        this.maxDistance = maxDistance;
+        this.topK = topK;
+        this.maxEditCost = maxEditCost;
+    }
+    
+    public void useEditSearch() {
+        this.automatonSearch = false;
+        this.errorModel = null;
+    }
+    
+    // Whether searches run over the dictionary automaton
+    public boolean usesAutomaton() {
+        return automatonSearch || errorModel != null;
+    }
+    
+    public void setSuggestionCache(SuggestionCache cache) {
+        this.suggestionCache = cache;
+    }
+    
+    public SuggestionCache getSuggestionCache() {
+        return suggestionCache;
+    }
+    
+    // Ranked candidates for the word; the list is unmodifiable when it comes from the cache
     public List<String> generateCandidates(String word, LanguageModel languageModel) {
         if (word == null || word.trim().isEmpty()) {
             return new ArrayList<>();
         }
         
-        Set<String> candidates = new HashSet<>();
+        long started = Metrics.start();
+        List<String> candidates;
+        SuggestionCache cache = suggestionCache;
+        if (cache == null) {
+            candidates = computeCandidates(word, languageModel);
+        } else {
+            candidates = cache.get(word, languageModel.getVersion(), cacheSettings(), () -> {
+                Metrics.count(Metrics.Counter.CACHE_MISSES, 1);
+                return computeCandidates(word, languageModel);
+            });
+            Metrics.count(Metrics.Counter.CACHE_LOOKUPS, 1);
+        }
+        if (started != 0) {
+            Metrics.wordSearched(word, candidates.size(), searchName(languageModel), started);
+        }
+        return candidates;
+    }
+    
+    // Ranked candidates for each of the words. With a remote store, the edits of
+    // all words not in the cache are checked together in one lookup, one round
+    // trip per shard for the whole batch; otherwise this is generateCandidates
+    // for each word. Automaton searches need no lookups once the automaton is built.
+    public Map<String, List<String>> generateCandidates(Collection<String> words, LanguageModel languageModel) {
+        Map<String, List<String>> result = new HashMap<>();
+        if (!languageModel.hasRemoteStore() || usesAutomaton() || languageModel.getDeletionIndex() != null) {
+            for (String word : words) {
+                result.put(word, generateCandidates(word, languageModel));
+            }
+            return result;
+        }
         
-        // Generate candidates with single edit operations
-        candidates.addAll(generateDeletions(word));
-        candidates.addAll(generateInsertions(word, languageModel.getTeluguCharacters()));
-        candidates.addAll(generateSubstitutions(word, languageModel.getTeluguCharacters()));
-        candidates.addAll(generateTranspositions(word));
+        SuggestionCache cache = suggestionCache;
+        long version = languageModel.getVersion();
+        Object settings = cacheSettings();
+        Map<String, Set<String>> edits = new LinkedHashMap<>();
+        for (String word : words) {
+            if (word == null || word.trim().isEmpty()) {
+                result.put(word, new ArrayList<>());
+                continue;
+            }
+            List<String> cached = cache == null ? null : cache.getIfPresent(word, version, settings);
+            if (cache != null) {
+                Metrics.count(Metrics.Counter.CACHE_LOOKUPS, 1);
+            }
+            if (cached != null) {
+                result.put(word, cached);
+            } else if (!edits.containsKey(word)) {
+                if (cache != null) {
+                    Metrics.count(Metrics.Counter.CACHE_MISSES, 1);
+                }
+                edits.put(word, editCandidates(word, languageModel.getAksharaAlphabet()));
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : rankEdits(edits, languageModel).entrySet()) {
+            String word = entry.getKey();
+            result.put(word, cache == null ? entry.getValue() : cache.put(word, version, settings, entry.getValue()));
+        }
+        return result;
+    }
+    
+    // Ranks the valid edits of each word, checking all of them in one lookup
+    private static Map<String, List<String>> rankEdits(Map<String, Set<String>> edits, LanguageModel languageModel) {
+        Map<String, List<String>> result = new HashMap<>();
+        if (edits.isEmpty()) {
+            return result;
+        }
+        Set<String> union = new LinkedHashSet<>();
+        for (Set<String> candidates : edits.values()) {
+            union.addAll(candidates);
+        }
+        List<String> batch = new ArrayList<>(union);
+        int[] found = languageModel.lookup(batch);
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (int i = 0; i < found.length; i++) {
+            if (found[i] >= 0) {
+                frequencies.put(batch.get(i), found[i]);
+            }
+        }
+        long total = languageModel.getWordStore().getTotalFrequency();
+        for (Map.Entry<String, Set<String>> entry : edits.entrySet()) {
+            List<Ranked> valid = new ArrayList<>();
+            for (String candidate : entry.getValue()) {
+                Integer frequency = frequencies.get(candidate);
+                if (frequency != null) {
+                    valid.add(new Ranked(candidate, 0, total == 0 ? 0.0 : (double) frequency / total));
+                }
+            }
+            Metrics.count(Metrics.Counter.CANDIDATES_GENERATED, entry.getValue().size());
+            Metrics.count(Metrics.Counter.CANDIDATES_VALID, valid.size());
+            result.put(entry.getKey(), sorted(valid));
+        }
+        return result;
+    }
+    
+    // Search settings are part of the cache key since they change the results;
+    // a list compares them field by field
+    private Object cacheSettings() {
+        ErrorModel channel = errorModel;
+        if (channel != null) {
+            return Arrays.asList("noisy-channel", channel.getId(), maxDistance, topK, maxEditCost);
+        }
+        return automatonSearch ? Arrays.asList("automaton", maxDistance, topK) : "edits";
+    }
+    
+    // How candidates are found with the current settings, for metrics
+    private String searchName(LanguageModel languageModel) {
+        if (errorModel != null) {
+            return "noisy-channel";
+        }
+        if (automatonSearch) {
+            return "automaton";
+        }
+        return languageModel.getDeletionIndex() != null ? "deletion-index" : "edits";
+    }
+    
+    private List<String> computeCandidates(String word, LanguageModel languageModel) {
+        ErrorModel channel = errorModel;
+        if (channel != null) {
+            return counted(new NoisyChannelSearch(languageModel.getAutomaton(), channel)
+                .search(word, maxDistance, topK, maxEditCost));
+        }
+        if (automatonSearch) {
+            return counted(new LevenshteinSearch(languageModel.getAutomaton()).search(word, maxDistance, topK));
+        }
+        
+        // Use the precomputed deletion index when the model has one
+        Map<String, Integer> distances = languageModel.deletionCandidates(word);
+        if (distances != null) {
+            List<String> ranked = rankByDistance(distances, languageModel);
+            Metrics.count(Metrics.Counter.CANDIDATES_GENERATED, distances.size());
+            Metrics.count(Metrics.Counter.CANDIDATES_VALID, ranked.size());
+            return ranked;
+        }
+        
+        Set<String> candidates = editCandidates(word, languageModel.getAksharaAlphabet());
+        if (languageModel.hasRemoteStore()) {
+            return rankEdits(Collections.singletonMap(word, candidates), languageModel).get(word);
+        }
         
-        // Filter valid words and rank by probability
-        List<String> validCandidates = new ArrayList<>();
+        // Filter valid words and rank by probability (semantic ranking)
+        List<Ranked> validCandidates = new ArrayList<>();
         for (String candidate : candidates) {
             if (languageModel.isValidWord(candidate)) {
-                validCandidates.add(candidate);
+                validCandidates.add(new Ranked(candidate, 0, languageModel.getWordProbability(candidate)));
             }
         }
+        Metrics.count(Metrics.Counter.CANDIDATES_GENERATED, candidates.size());
+        Metrics.count(Metrics.Counter.CANDIDATES_VALID, validCandidates.size());
+        return sorted(validCandidates);
+    }
+    
+    // Every word one edit away. Edits work on aksharas so that vowel signs and
+    // conjuncts stay intact.
+    private Set<String> editCandidates(String word, AksharaAlphabet alphabet) {
+        List<String> aksharas = AksharaAlphabet.segment(word);
+        Set<String> candidates = new HashSet<>();
         
-        // Rank candidates by probability (semantic ranking)
-        validCandidates.sort((c1, c2) -> 
-            Double.compare(languageModel.getWordProbability(c2), 
-                          languageModel.getWordProbability(c1)));
+        // Generate candidates with single edit operations
+        candidates.addAll(generateDeletions(aksharas));
+        candidates.addAll(generateInsertions(aksharas, alphabet));
+        candidates.addAll(generateSubstitutions(aksharas, alphabet));
+        candidates.addAll(generateTranspositions(aksharas));
+        candidates.addAll(generateConjunctEdits(aksharas));
+        candidates.remove(word);
+        candidates.remove("");
+        return candidates;
+    }
+    
+    // Automaton searches only reach dictionary words: all they generate is valid
+    private static List<String> counted(List<String> candidates) {
+        Metrics.count(Metrics.Counter.CANDIDATES_GENERATED, candidates.size());
+        Metrics.count(Metrics.Counter.CANDIDATES_VALID, candidates.size());
+        return candidates;
+    }
+    
+    private List<String> rankByDistance(Map<String, Integer> distances, LanguageModel languageModel) {
+        List<Ranked> ranked = new ArrayList<>(distances.size());
+        for (Map.Entry<String, Integer> entry : distances.entrySet()) {
+            // Indexed words may have been removed by an update since
+            if (languageModel.isValidWord(entry.getKey())) {
+                ranked.add(new Ranked(entry.getKey(), entry.getValue(),
+                    languageModel.getWordProbability(entry.getKey())));
+            }
+        }
+        // Closer candidates first, then by probability (semantic ranking)
+        return sorted(ranked);
+    }
+    
+    // Probabilities are looked up once per candidate, not on every comparison
+    private static final class Ranked {
+        final String word;
+        final int distance;
+        final double probability;
         
-        return validCandidates;
+        Ranked(String word, int distance, double probability) {
+            this.word = word;
+            this.distance = distance;
+            this.probability = probability;
+        }
     }
     
-    private List<String> generateDeletions(String word) {
+    private static List<String> sorted(List<Ranked> candidates) {
+        candidates.sort((c1, c2) -> c1.distance != c2.distance
+            ? Integer.compare(c1.distance, c2.distance)
+            : Double.compare(c2.probability, c1.probability));
+        List<String> words = new ArrayList<>(candidates.size());
+        for (Ranked candidate : candidates) {
+            words.add(candidate.word);
+        }
+        return words;
+    }
+    
+    private List<String> generateDeletions(List<String> aksharas) {
         List<String> deletions = new ArrayList<>();
-        for (int i = 0; i < word.length(); i++) {
-            StringBuilder sb = new StringBuilder(word);
-            deletions.add(sb.deleteCharAt(i).toString());
+        for (int i = 0; i < aksharas.size(); i++) {
+            deletions.add(join(aksharas, 0, i) + join(aksharas, i + 1, aksharas.size()));
         }
         return deletions;
     }
     
-    private List<String> generateInsertions(String word, String teluguChars) {
+    private List<String> generateInsertions(List<String> aksharas, AksharaAlphabet alphabet) {
         List<String> insertions = new ArrayList<>();
-        for (int i = 0; i <= word.length(); i++) {
-            for (char c : teluguChars.toCharArray()) {
-                StringBuilder sb = new StringBuilder(word);
-                insertions.add(sb.insert(i, c).toString());
+        for (int i = 0; i <= aksharas.size(); i++) {
+            String head = join(aksharas, 0, i);
+            String tail = join(aksharas, i, aksharas.size());
+            for (int code : alphabet.insertionSymbols()) {
+                insertions.add(head + alphabet.symbol(code) + tail);
             }
         }
         return insertions;
     }
     
-    private List<String> generateSubstitutions(String word, String teluguChars) {
+    private List<String> generateSubstitutions(List<String> aksharas, AksharaAlphabet alphabet) {
         List<String> substitutions = new ArrayList<>();
-        for (int i = 0; i < word.length(); i++) {
-            for (char c : teluguChars.toCharArray()) {
-                char[] chars = word.toCharArray();
-                if (chars[i] != c) { // Avoid same character substitution
-                    chars[i] = c;
-                    substitutions.add(new String(chars));
-                }
+        for (int i = 0; i < aksharas.size(); i++) {
+            String head = join(aksharas, 0, i);
+            String tail = join(aksharas, i + 1, aksharas.size());
+            // Only aksharas one component away (vowel sign, modifier or one consonant)
+            for (int code : alphabet.neighbors(aksharas.get(i))) {
+                substitutions.add(head + alphabet.symbol(code) + tail);
             }
         }
         return substitutions;
     }
     
-    private List<String> generateTranspositions(String word) {
+    private List<String> generateTranspositions(List<String> aksharas) {
         List<String> transpositions = new ArrayList<>();
-        for (int i = 0; i < word.length() - 1; i++) {
-            char[] chars = word.toCharArray();
-            char temp = chars[i];
-            chars[i] = chars[i + 1];
-            chars[i + 1] = temp;
-            transpositions.add(new String(chars));
+        for (int i = 0; i < aksharas.size() - 1; i++) {
+            List<String> swapped = new ArrayList<>(aksharas);
+            Collections.swap(swapped, i, i + 1);
+            transpositions.add(join(swapped, 0, swapped.size()));
         }
         return transpositions;
     }
+    
+    // Missing or extra virama between two aksharas: join them into a conjunct,
+    // or split a conjunct after its first consonant
+    private List<String> generateConjunctEdits(List<String> aksharas) {
+        List<String> edits = new ArrayList<>();
+        for (int i = 0; i < aksharas.size(); i++) {
+            String akshara = aksharas.get(i);
+            String head = join(aksharas, 0, i);
+            
+            if (i + 1 < aksharas.size() && isBareConsonant(akshara)
+                    && AksharaAlphabet.isConsonant(aksharas.get(i + 1).charAt(0))) {
+                edits.add(head + akshara + AksharaAlphabet.VIRAMA + join(aksharas, i + 1, aksharas.size()));
+            }
+            
+            int virama = akshara.indexOf(AksharaAlphabet.VIRAMA);
+            if (virama > 0 && virama + 1 < akshara.length()
+                    && AksharaAlphabet.isConsonant(akshara.charAt(virama + 1))) {
+                edits.add(head + akshara.substring(0, virama) + akshara.substring(virama + 1)
+                    + join(aksharas, i + 1, aksharas.size()));
+            }
+        }
+        return edits;
+    }
+    
+    private boolean isBareConsonant(String akshara) {
+        char last = akshara.charAt(akshara.length() - 1);
+        return AksharaAlphabet.isConsonant(last);
+    }
+    
+    private String join(List<String> aksharas, int from, int to) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            sb.append(aksharas.get(i));
+        }
+        return sb.toString();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,385 @@
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+// Word store backed by a minimal acyclic automaton (DAWG). Shared prefixes and
+// suffixes are stored once. Every arc carries the number of words that sort
+// before it, so walking a word also yields its rank, which indexes the
+// frequency array (perfect hashing). States also record the highest frequency
+// of any word passing through them, used as a bound during candidate search.
+public class DawgWordStore implements WordStore {
+    private final int[] stateArcs;          // arcs of state s: stateArcs[s] .. stateArcs[s + 1]
+    private final boolean[] stateFinal;
+    private final int[] stateMaxFrequency;
+    private final char[] arcLabels;
+    private final int[] arcTargets;
+    private final int[] arcRanks;           // words before this arc within its state
+    private final int[] frequencies;        // by word rank
+    private final long totalFrequency;
+    
+    private DawgWordStore(int[] stateArcs, boolean[] stateFinal, int[] stateMaxFrequency,
+                          char[] arcLabels, int[] arcTargets, int[] arcRanks,
+                          int[] frequencies, long totalFrequency) {
+        this.stateArcs = stateArcs;
+        this.stateFinal = stateFinal;
+        this.stateMaxFrequency = stateMaxFrequency;
+        this.arcLabels = arcLabels;
+        this.arcTargets = arcTargets;
+        this.arcRanks = arcRanks;
+        this.frequencies = frequencies;
+        this.totalFrequency = totalFrequency;
+    }
+    
+    public static DawgWordStore build(WordStore source) {
+        String[] words = new String[source.size()];
+        Map<String, Integer> lookup = new HashMap<>();
+        int[] next = {0};
+        source.forEach((word, frequency) -> {
+            words[next[0]++] = word;
+            lookup.put(word, frequency);
+        });
+        Arrays.sort(words);
+        
+        int[] frequencies = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            frequencies[i] = lookup.get(words[i]);
+        }
+        return build(words, frequencies, source.getTotalFrequency());
+    }
+    
+    // Words must be sorted (String order) and unique; frequencies follow the same order
+    public static DawgWordStore build(String[] words, int[] frequencies, long totalFrequency) {
+        Builder builder = new Builder();
+        for (String word : words) {
+            builder.add(word);
+        }
+        Node root = builder.finish();
+        return pack(root, words, frequencies, totalFrequency);
+    }
+    
+    private static DawgWordStore pack(Node root, String[] words, int[] frequencies, long totalFrequency) {
+        // Number states breadth first; the root is state 0
+        Map<Node, Integer> ids = new IdentityHashMap<>();
+        List<Node> order = new ArrayList<>();
+        ids.put(root, 0);
+        order.add(root);
+        int arcCount = 0;
+        for (int i = 0; i < order.size(); i++) {
+            Node node = order.get(i);
+            arcCount += node.size;
+            for (int a = 0; a < node.size; a++) {
+                Node target = node.targets[a];
+                if (!ids.containsKey(target)) {
+                    ids.put(target, order.size());
+                    order.add(target);
+                }
+            }
+        }
+        
+        int stateCount = order.size();
+        int[] stateArcs = new int[stateCount + 1];
+        boolean[] stateFinal = new boolean[stateCount];
+        char[] arcLabels = new char[arcCount];
+        int[] arcTargets = new int[arcCount];
+        int[] arcRanks = new int[arcCount];
+        int[] wordCounts = countWords(order, ids);
+        
+        int arc = 0;
+        for (int s = 0; s < stateCount; s++) {
+            Node node = order.get(s);
+            stateArcs[s] = arc;
+            stateFinal[s] = node.fin;
+            int rank = node.fin ? 1 : 0;
+            for (int a = 0; a < node.size; a++) {
+                int target = ids.get(node.targets[a]);
+                arcLabels[arc] = node.labels[a];
+                arcTargets[arc] = target;
+                arcRanks[arc] = rank;
+                rank += wordCounts[target];
+                arc++;
+            }
+        }
+        stateArcs[stateCount] = arc;
+        
+        DawgWordStore store = new DawgWordStore(stateArcs, stateFinal, new int[stateCount],
+            arcLabels, arcTargets, arcRanks, frequencies, totalFrequency);
+        for (int i = 0; i < words.length; i++) {
+            store.raiseBound(words[i], frequencies[i]);
+        }
+        return store;
+    }
+    
+    private static int[] countWords(List<Node> order, Map<Node, Integer> ids) {
+        // Post-order over the DAG: a state's count is known once all targets are done
+        int[] counts = new int[order.size()];
+        boolean[] done = new boolean[order.size()];
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(0);
+        while (!stack.isEmpty()) {
+            int s = stack.peek();
+            if (done[s]) {
+                stack.pop();
+                continue;
+            }
+            Node node = order.get(s);
+            boolean ready = true;
+            for (int a = 0; a < node.size; a++) {
+                int target = ids.get(node.targets[a]);
+                if (!done[target]) {
+                    stack.push(target);
+                    ready = false;
+                }
+            }
+            if (ready) {
+                int count = node.fin ? 1 : 0;
+                for (int a = 0; a < node.size; a++) {
+                    count += counts[ids.get(node.targets[a])];
+                }
+                counts[s] = count;
+                done[s] = true;
+                stack.pop();
+            }
+        }
+        return counts;
+    }
+    
+    private void raiseBound(String word, int frequency) {
+        int state = 0;
+        stateMaxFrequency[state] = Math.max(stateMaxFrequency[state], frequency);
+        for (int i = 0; i < word.length(); i++) {
+            int arc = findArc(state, word.charAt(i));
+            state = arcTargets[arc];
+            stateMaxFrequency[state] = Math.max(stateMaxFrequency[state], frequency);
+        }
+    }
+    
+    // Rank of the word in sorted order, or -1 if it is not accepted
+    public int rankOf(String word) {
+        int state = 0;
+        int rank = 0;
+        for (int i = 0; i < word.length(); i++) {
+            int arc = findArc(state, word.charAt(i));
+            if (arc < 0) {
+                return -1;
+            }
+            rank += arcRanks[arc];
+            state = arcTargets[arc];
+        }
+        return stateFinal[state] ? rank : -1;
+    }
+    
+    public int findArc(int state, char label) {
+        int low = stateArcs[state];
+        int high = stateArcs[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midLabel = arcLabels[mid];
+            if (midLabel < label) {
+                low = mid + 1;
+            } else if (midLabel > label) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+    
+    @Override
+    public int getFrequency(String word) {
+        int rank = rankOf(word);
+        return rank >= 0 ? frequencies[rank] : 0;
+    }
+    
+    @Override
+    public boolean contains(String word) {
+        return rankOf(word) >= 0;
+    }
+    
+    @Override
+    public int size() {
+        return frequencies.length;
+    }
+    
+    @Override
+    public long getTotalFrequency() {
+        return totalFrequency;
+    }
+    
+    @Override
+    public void forEach(ObjIntConsumer<String> action) {
+        forEach(0, 0, new StringBuilder(), action);
+    }
+    
+    private void forEach(int state, int rank, StringBuilder prefix, ObjIntConsumer<String> action) {
+        if (stateFinal[state]) {
+            action.accept(prefix.toString(), frequencies[rank]);
+        }
+        for (int arc = stateArcs[state]; arc < stateArcs[state + 1]; arc++) {
+            prefix.append(arcLabels[arc]);
+            forEach(arcTargets[arc], rank + arcRanks[arc], prefix, action);
+            prefix.setLength(prefix.length() - 1);
+        }
+    }
+    
+    // Traversal accessors for automaton-based candidate search
+    
+    public int root() {
+        return 0;
+    }
+    
+    public int arcStart(int state) {
+        return stateArcs[state];
+    }
+    
+    public int arcEnd(int state) {
+        return stateArcs[state + 1];
+    }
+    
+    public char arcLabel(int arc) {
+        return arcLabels[arc];
+    }
+    
+    public int arcTarget(int arc) {
+        return arcTargets[arc];
+    }
+    
+    public int arcRank(int arc) {
+        return arcRanks[arc];
+    }
+    
+    public boolean isFinal(int state) {
+        return stateFinal[state];
+    }
+    
+    public int frequencyAtRank(int rank) {
+        return frequencies[rank];
+    }
+    
+    // Upper bound on the frequency of any word reachable through the state
+    public int maxFrequency(int state) {
+        return stateMaxFrequency[state];
+    }
+    
+    public int getStateCount() {
+        return stateFinal.length;
+    }
+    
+    public int getArcCount() {
+        return arcLabels.length;
+    }
+    
+    // Approximate heap footprint of the packed automaton and frequency array
+    public long estimatedBytes() {
+        long states = stateFinal.length;
+        long arcs = arcLabels.length;
+        return states * (4 + 1 + 4) + arcs * (2 + 4 + 4) + 4L * frequencies.length;
+    }
+    
+    // Build-time state; equality is structural so equivalent suffixes are merged
+    private static class Node {
+        char[] labels = new char[2];
+        Node[] targets = new Node[2];
+        int size;
+        boolean fin;
+        int hash;
+        
+        void addArc(char label, Node target) {
+            if (size == labels.length) {
+                labels = Arrays.copyOf(labels, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            labels[size] = label;
+            targets[size] = target;
+            size++;
+        }
+        
+        Node lastTarget() {
+            return targets[size - 1];
+        }
+        
+        void replaceLastTarget(Node target) {
+            targets[size - 1] = target;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Node)) {
+                return false;
+            }
+            Node node = (Node) other;
+            if (fin != node.fin || size != node.size) {
+                return false;
+            }
+            for (int i = 0; i < size; i++) {
+                if (labels[i] != node.labels[i] || targets[i] != node.targets[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        @Override
+        public int hashCode() {
+            if (hash == 0) {
+                int h = fin ? 1 : 0;
+                for (int i = 0; i < size; i++) {
+                    h = 31 * h + labels[i];
+                    h = 31 * h + System.identityHashCode(targets[i]);
+                }
+                hash = h == 0 ? 1 : h;
+            }
+            return hash;
+        }
+    }
+    
+    // Incremental construction from sorted input (Daciuk et al.)
+    private static class Builder {
+        private final Node root = new Node();
+        private final Map<Node, Node> register = new HashMap<>();
+        private final List<Node> path = new ArrayList<>();
+        private String previous = "";
+        
+        Builder() {
+            path.add(root);
+        }
+        
+        void add(String word) {
+            int common = 0;
+            int limit = Math.min(word.length(), previous.length());
+            while (common < limit && word.charAt(common) == previous.charAt(common)) {
+                common++;
+            }
+            minimize(common);
+            
+            Node node = path.get(path.size() - 1);
+            for (int i = common; i < word.length(); i++) {
+                Node child = new Node();
+                node.addArc(word.charAt(i), child);
+                path.add(child);
+                node = child;
+            }
+            node.fin = true;
+            previous = word;
+        }
+        
+        Node finish() {
+            minimize(0);
+            return root;
+        }
+        
+        // Replace states below the given depth with registered equivalents
+        private void minimize(int depth) {
+            for (int i = path.size() - 1; i > depth; i--) {
+                Node parent = path.get(i - 1);
+                Node child = parent.lastTarget();
+                Node existing = register.get(child);
+                if (existing != null) {
+                    parent.replaceLastTarget(existing);
+                } else {
+                    register.put(child, child);
+                }
+                path.remove(i);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,125 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Append-only log of dictionary changes, one "word<TAB>count" line per change,
+// forced to disk before an update is applied. The first line records the size
+// and total frequency of the base index the changes apply to; after compaction
+// the log is started over for the new base. A log whose base does not match the
+// index it is opened with has already been folded into it and is set aside.
+public class DeltaLog implements Closeable {
+    private static final String HEADER = "# delta log for base ";
+    
+    private final Path path;
+    private final Map<String, Integer> changes;
+    private FileChannel channel;
+    private long entries;
+    
+    private DeltaLog(Path path, Map<String, Integer> changes, long entries) {
+        this.path = path;
+        this.changes = changes;
+        this.entries = entries;
+    }
+    
+    // Reads the changes recorded for this base; a missing file is an empty log
+    public static DeltaLog open(String logPath, WordStore base) throws IOException {
+        Path path = Paths.get(logPath);
+        Map<String, Integer> changes = new HashMap<>();
+        long entries = 0;
+        if (Files.exists(path)) {
+            byte[] bytes = Files.readAllBytes(path);
+            int end = bytes.length;
+            while (end > 0 && bytes[end - 1] != '\n') {
+                end--;   // torn last line from a crash while appending
+            }
+            String[] lines = new String(bytes, 0, end, StandardCharsets.UTF_8).split("\n");
+            if (lines.length == 0 || !lines[0].equals(header(base))) {
+                // Kept aside rather than deleted, in case the wrong index was loaded
+                Files.move(path, path.resolveSibling(path.getFileName() + ".old"),
+                    StandardCopyOption.REPLACE_EXISTING);
+                System.out.println("Delta log does not match the loaded index, moved to " + path + ".old");
+                return new DeltaLog(path, changes, 0);
+            }
+            for (int i = 1; i < lines.length; i++) {
+                int tab = lines[i].lastIndexOf('\t');
+                if (tab <= 0) {
+                    continue;
+                }
+                try {
+                    int count = Integer.parseInt(lines[i].substring(tab + 1));
+                    changes.merge(lines[i].substring(0, tab), count, Integer::sum);
+                    entries++;
+                } catch (NumberFormatException e) {
+                    System.out.println("Skipping bad delta log line " + (i + 1) + ": " + lines[i]);
+                }
+            }
+            if (end < bytes.length) {
+                try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    file.truncate(end);
+                }
+            }
+        }
+        return new DeltaLog(path, changes, entries);
+    }
+    
+    private static String header(WordStore base) {
+        return HEADER + base.size() + " " + base.getTotalFrequency();
+    }
+    
+    // Changes read when the log was opened, merged per word
+    public Map<String, Integer> getChanges() {
+        return Collections.unmodifiableMap(changes);
+    }
+    
+    public synchronized void append(Map<String, Integer> update, WordStore base) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        if (channel == null) {
+            boolean created = !Files.exists(path);
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+            if (created) {
+                lines.append(header(base)).append('\n');
+            }
+        }
+        for (Map.Entry<String, Integer> entry : update.entrySet()) {
+            lines.append(entry.getKey()).append('\t').append(entry.getValue()).append('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        channel.force(false);
+        entries += update.size();
+    }
+    
+    // Starts an empty log for a new (compacted) base. The old log is replaced in
+    // one rename, so a crash leaves either the old log or the new one.
+    public synchronized void reset(WordStore base) throws IOException {
+        close();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temp, (header(base) + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        changes.clear();
+        entries = 0;
+    }
+    
+    // Lines appended since the last reset
+    public synchronized long getEntryCount() {
+        return entries;
+    }
+    
+    public String getPath() {
+        return path.toString();
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,173 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.GZIPInputStream;
+
+// Opens a Wikipedia dump for streaming, decompressing .gz and .bz2 on the fly.
+// Multistream .bz2 dumps come with an index of stream offsets; when it is found
+// next to the dump, the independent streams are decompressed in parallel.
+public class DumpStreams {
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    public static InputStream open(String dumpFilePath, int threads) throws IOException {
+        String lower = dumpFilePath.toLowerCase();
+        if (lower.endsWith(".gz")) {
+            return new GZIPInputStream(new FileInputStream(dumpFilePath), BUFFER_SIZE);
+        }
+        if (lower.endsWith(".bz2")) {
+            String indexPath = findMultistreamIndex(dumpFilePath);
+            if (indexPath != null && threads > 1) {
+                long[] offsets = readStreamOffsets(indexPath);
+                System.out.println("Multistream index found (" + offsets.length
+                    + " streams), decompressing with " + threads + " threads");
+                return new MultistreamInputStream(dumpFilePath, offsets, threads);
+            }
+            return new BZip2InputStream(new BufferedInputStream(new FileInputStream(dumpFilePath), BUFFER_SIZE));
+        }
+        return new BufferedInputStream(new FileInputStream(dumpFilePath), BUFFER_SIZE);
+    }
+    
+    // tewiki-...-multistream.xml.bz2 is indexed by tewiki-...-multistream-index.txt.bz2
+    static String findMultistreamIndex(String dumpFilePath) {
+        if (!dumpFilePath.endsWith("multistream.xml.bz2")) {
+            return null;
+        }
+        String indexPath = dumpFilePath.substring(0, dumpFilePath.length() - ".xml.bz2".length())
+            + "-index.txt.bz2";
+        return new File(indexPath).isFile() ? indexPath : null;
+    }
+    
+    // Index lines are "offset:pageId:title"; consecutive pages share a stream
+    static long[] readStreamOffsets(String indexPath) throws IOException {
+        TreeSet<Long> offsets = new TreeSet<>();
+        InputStream raw = new BufferedInputStream(new FileInputStream(indexPath), BUFFER_SIZE);
+        InputStream in = indexPath.endsWith(".bz2") ? new BZip2InputStream(raw) : raw;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    offsets.add(Long.parseLong(line.substring(0, colon)));
+                }
+            }
+        }
+        long[] result = new long[offsets.size()];
+        int i = 0;
+        for (long offset : offsets) {
+            result[i++] = offset;
+        }
+        return result;
+    }
+    
+    // Decompresses the byte ranges between stream offsets on a thread pool and
+    // serves them in file order. The ranges before the first and after the last
+    // offset hold the XML header and footer streams.
+    private static class MultistreamInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final ExecutorService executor;
+        private final Deque<Future<byte[]>> window = new ArrayDeque<>();
+        private final int windowSize;
+        private int nextSegment;
+        private byte[] current = new byte[0];
+        private int position;
+        
+        MultistreamInputStream(String dumpFilePath, long[] offsets, int threads) throws IOException {
+            this.channel = FileChannel.open(Paths.get(dumpFilePath), StandardOpenOption.READ);
+            long size = channel.size();
+            List<Long> points = new ArrayList<>();
+            points.add(0L);
+            for (long offset : offsets) {
+                if (offset > 0 && offset < size) {
+                    points.add(offset);
+                }
+            }
+            points.add(size);
+            this.boundaries = new long[points.size()];
+            for (int i = 0; i < boundaries.length; i++) {
+                boundaries[i] = points.get(i);
+            }
+            this.windowSize = threads * 2;
+            this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "bz2-decompress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            fillWindow();
+        }
+        
+        private void fillWindow() {
+            while (window.size() < windowSize && nextSegment < boundaries.length - 1) {
+                long start = boundaries[nextSegment];
+                long end = boundaries[nextSegment + 1];
+                nextSegment++;
+                window.add(executor.submit(() -> decompress(start, end)));
+            }
+        }
+        
+        private byte[] decompress(long start, long end) throws IOException {
+            ByteBuffer compressed = ByteBuffer.allocate((int) (end - start));
+            while (compressed.hasRemaining()) {
+                if (channel.read(compressed, start + compressed.position()) < 0) {
+                    throw new EOFException("Multistream offset beyond end of file");
+                }
+            }
+            try (InputStream in = new BZip2InputStream(new ByteArrayInputStream(compressed.array()))) {
+                return in.readAllBytes();
+            }
+        }
+        
+        // Moves to the next decompressed segment; false at end of input
+        private boolean advance() throws IOException {
+            while (position == current.length) {
+                Future<byte[]> next = window.poll();
+                if (next == null) {
+                    return false;
+                }
+                try {
+                    current = next.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while decompressing dump");
+                } catch (ExecutionException e) {
+                    throw new IOException("Failed to decompress dump stream", e.getCause());
+                }
+                position = 0;
+                fillWindow();
+            }
+            return true;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if (!advance()) {
+                return -1;
+            }
+            return current[position++] & 0xFF;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!advance()) {
+                return -1;
+            }
+            int count = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            executor.shutdownNow();
+            channel.close();
+        }
+    }
+}
\ No newline at end of file
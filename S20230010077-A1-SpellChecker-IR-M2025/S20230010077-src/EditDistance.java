@@ -0,0 +1,44 @@
+public class EditDistance {
+    
+    // Optimal string alignment distance (Damerau-Levenshtein restricted to one
+    // transposition per pair). Returns maxDistance + 1 as soon as the bound is exceeded.
+    public static int damerau(String source, String target, int maxDistance) {
+        int n = source.length();
+        int m = target.length();
+        if (Math.abs(n - m) > maxDistance) {
+            return maxDistance + 1;
+        }
+        
+        int[] previous2 = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char sc = source.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char tc = target.charAt(j - 1);
+                int cost = (sc == tc) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && sc == target.charAt(j - 2) && source.charAt(i - 2) == tc) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        
+        return Math.min(previous[m], maxDistance + 1);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,261 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Noisy-channel edit costs: -ln P(typed | intended) for single-character
+// substitutions, deletions, insertions and transpositions. Costs start from
+// Telugu priors (aspirated/unaspirated consonants, long/short vowels and vowel
+// signs, sibilants, retroflex/dental pairs, dropped or extra virama and
+// anusvara are cheap; anything else costs DEFAULT_COST) and are re-estimated
+// from misspelling/correction pairs, smoothed towards the prior.
+//
+// Tables are dense over the Telugu block; every other character shares one slot.
+public class ErrorModel {
+    public static final double DEFAULT_COST = Math.log(1000);
+    private static final double CONFUSION_COST = Math.log(10);
+    private static final double SIMILAR_COST = Math.log(20);
+    private static final double MARK_COST = Math.log(30);
+    private static final double SMOOTHING = 10;
+    private static final int BLOCK = 0x0C00;
+    private static final int SLOTS = 129;
+    private static final AtomicLong IDS = new AtomicLong();
+    
+    // Unaspirated/aspirated consonants, short/long vowels and vowel signs
+    private static final String[] CONFUSIONS = {
+        "కఖ", "గఘ", "చఛ", "జఝ", "టఠ",
+        "డఢ", "తథ", "దధ", "పఫ", "బభ",
+        "అఆ", "ఇఈ", "ఉఊ", "ఎఏ", "ఒఓ",
+        "\u0C3F\u0C40", "\u0C41\u0C42", "\u0C46\u0C47", "\u0C4A\u0C4B"
+    };
+    // Sibilants, ల/ళ, న/ణ, ర/ఱ, and the dental/retroflex stops
+    private static final String[] SIMILAR = {
+        "శషస", "లళ", "నణ", "రఱ",
+        "తట", "దడ"
+    };
+    // Marks that are easily dropped or added: virama, anusvara, aa sign
+    private static final String MARKS = "\u0C4D\u0C02\u0C3E";
+    
+    private final long id = IDS.incrementAndGet();
+    private final double[] substitution = new double[SLOTS * SLOTS];   // [intended][typed]
+    private final double[] deletion = new double[SLOTS];                // intended char not typed
+    private final double[] insertion = new double[SLOTS];               // extra typed char
+    private final double[] transposition = new double[SLOTS * SLOTS];   // intended pair typed swapped
+    private int pairCount;
+    
+    // Costs are doubles so that k default edits add up to exactly k * DEFAULT_COST,
+    // the budgets callers pass to the search
+    private ErrorModel() {
+        priors(substitution, deletion, insertion);
+        Arrays.fill(transposition, DEFAULT_COST);
+    }
+    
+    // Priors only, no training data
+    public static ErrorModel defaults() {
+        return new ErrorModel();
+    }
+    
+    // One pair per line: misspelling and correction separated by a tab, '|' or
+    // spaces. Blank lines and lines starting with # are skipped.
+    public static ErrorModel learn(String pairsPath) throws IOException {
+        List<String[]> pairs = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(pairsPath), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("[\t|]|\\s+", 2);
+                if (parts.length == 2 && !parts[1].trim().isEmpty()) {
+                    pairs.add(new String[] {parts[0].trim(), parts[1].trim()});
+                }
+            }
+        }
+        return learn(pairs);
+    }
+    
+    // Pairs are {misspelling, correction}
+    public static ErrorModel learn(List<String[]> pairs) {
+        ErrorModel model = new ErrorModel();
+        int[] substitutions = new int[SLOTS * SLOTS];
+        int[] deletions = new int[SLOTS];
+        int[] insertions = new int[SLOTS];
+        int[] transpositions = new int[SLOTS * SLOTS];
+        long[] intendedChars = new long[SLOTS];
+        long totalChars = 0;
+        
+        for (String[] pair : pairs) {
+            String typed = pair[0];
+            String intended = pair[1];
+            for (int i = 0; i < intended.length(); i++) {
+                intendedChars[slot(intended.charAt(i))]++;
+            }
+            totalChars += intended.length();
+            align(typed, intended, substitutions, deletions, insertions, transpositions);
+        }
+        model.pairCount = pairs.size();
+        if (totalChars == 0) {
+            return model;
+        }
+        
+        for (int a = 0; a < SLOTS; a++) {
+            double context = Math.max(1, intendedChars[a]);
+            model.deletion[a] = smoothed(deletions[a], context, model.deletion[a]);
+            model.insertion[a] = smoothed(insertions[a], totalChars, model.insertion[a]);
+            for (int b = 0; b < SLOTS; b++) {
+                int cell = a * SLOTS + b;
+                model.substitution[cell] = smoothed(substitutions[cell], context, model.substitution[cell]);
+                model.transposition[cell] = smoothed(transpositions[cell], context, model.transposition[cell]);
+            }
+        }
+        return model;
+    }
+    
+    // -ln of the edit probability, with the prior probability worth SMOOTHING observations
+    private static double smoothed(int count, double context, double priorCost) {
+        return -Math.log((count + SMOOTHING * Math.exp(-priorCost)) / (context + SMOOTHING));
+    }
+    
+    // Counts the edits of one minimal (restricted Damerau) alignment
+    private static void align(String typed, String intended, int[] substitutions, int[] deletions,
+                              int[] insertions, int[] transpositions) {
+        int n = intended.length();
+        int m = typed.length();
+        int[][] d = new int[n + 1][m + 1];
+        for (int i = 0; i <= n; i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= m; j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            for (int j = 1; j <= m; j++) {
+                int cost = intended.charAt(i - 1) == typed.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && intended.charAt(i - 1) == typed.charAt(j - 2)
+                        && intended.charAt(i - 2) == typed.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        
+        int i = n;
+        int j = m;
+        while (i > 0 || j > 0) {
+            if (i > 0 && j > 0) {
+                char a = intended.charAt(i - 1);
+                char b = typed.charAt(j - 1);
+                if (a == b && d[i][j] == d[i - 1][j - 1]) {
+                    i--;
+                    j--;
+                    continue;
+                }
+                if (d[i][j] == d[i - 1][j - 1] + 1) {
+                    substitutions[slot(a) * SLOTS + slot(b)]++;
+                    i--;
+                    j--;
+                    continue;
+                }
+                if (i > 1 && j > 1 && a == typed.charAt(j - 2) && intended.charAt(i - 2) == b
+                        && d[i][j] == d[i - 2][j - 2] + 1) {
+                    transpositions[slot(intended.charAt(i - 2)) * SLOTS + slot(a)]++;
+                    i -= 2;
+                    j -= 2;
+                    continue;
+                }
+            }
+            if (i > 0 && d[i][j] == d[i - 1][j] + 1) {
+                deletions[slot(intended.charAt(i - 1))]++;
+                i--;
+            } else {
+                insertions[slot(typed.charAt(j - 1))]++;
+                j--;
+            }
+        }
+    }
+    
+    private static void priors(double[] substitution, double[] deletion, double[] insertion) {
+        Arrays.fill(substitution, DEFAULT_COST);
+        Arrays.fill(deletion, DEFAULT_COST);
+        Arrays.fill(insertion, DEFAULT_COST);
+        for (String group : CONFUSIONS) {
+            pairwise(substitution, group, CONFUSION_COST);
+        }
+        for (String group : SIMILAR) {
+            pairwise(substitution, group, SIMILAR_COST);
+        }
+        for (int i = 0; i < MARKS.length(); i++) {
+            deletion[slot(MARKS.charAt(i))] = MARK_COST;
+            insertion[slot(MARKS.charAt(i))] = MARK_COST;
+        }
+    }
+    
+    private static void pairwise(double[] substitution, String group, double cost) {
+        for (int a = 0; a < group.length(); a++) {
+            for (int b = 0; b < group.length(); b++) {
+                if (a != b) {
+                    substitution[slot(group.charAt(a)) * SLOTS + slot(group.charAt(b))] = cost;
+                }
+            }
+        }
+    }
+    
+    private static int slot(char c) {
+        int offset = c - BLOCK;
+        return offset >= 0 && offset < SLOTS - 1 ? offset : SLOTS - 1;
+    }
+    
+    public double substitution(char intended, char typed) {
+        return substitution[slot(intended) * SLOTS + slot(typed)];
+    }
+    
+    public double deletion(char intended) {
+        return deletion[slot(intended)];
+    }
+    
+    public double insertion(char typed) {
+        return insertion[slot(typed)];
+    }
+    
+    // The intended pair first, second typed as second, first
+    public double transposition(char first, char second) {
+        return transposition[slot(first) * SLOTS + slot(second)];
+    }
+    
+    // Cheapest weighted alignment of the typed word against the intended one
+    public double channelCost(String typed, String intended) {
+        int n = intended.length();
+        int m = typed.length();
+        double[][] d = new double[n + 1][m + 1];
+        for (int i = 1; i <= n; i++) {
+            d[i][0] = d[i - 1][0] + deletion(intended.charAt(i - 1));
+        }
+        for (int j = 1; j <= m; j++) {
+            d[0][j] = d[0][j - 1] + insertion(typed.charAt(j - 1));
+        }
+        for (int i = 1; i <= n; i++) {
+            char a = intended.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char b = typed.charAt(j - 1);
+                double cost = Math.min(d[i - 1][j] + deletion(a), d[i][j - 1] + insertion(b));
+                cost = Math.min(cost, d[i - 1][j - 1] + (a == b ? 0 : substitution(a, b)));
+                if (i > 1 && j > 1 && a == typed.charAt(j - 2) && intended.charAt(i - 2) == b && a != b) {
+                    cost = Math.min(cost, d[i - 2][j - 2] + transposition(intended.charAt(i - 2), a));
+                }
+                d[i][j] = cost;
+            }
+        }
+        return d[n][m];
+    }
+    
+    // Distinguishes models in cache keys
+    public long getId() {
+        return id;
+    }
+    
+    public int getPairCount() {
+        return pairCount;
+    }
+}
\ No newline at end of file
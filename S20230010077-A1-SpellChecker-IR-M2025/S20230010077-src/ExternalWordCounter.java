@@ -0,0 +1,189 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Word counting in a fixed amount of memory. Callers count into frequency tables
+// and hand them to spill() once together they use getMemoryBudget(); each spill is
+// written to a temporary run file sorted by word. merge() streams all runs
+// through a k-way merge, sums the counts of each word and passes on the words
+// seen at least minCount times, in word order. Only one entry per run is in
+// memory during the merge, so the number of distinct words is limited by disk.
+//
+// Run entries are: int UTF-8 length, the word's UTF-8 bytes, long count.
+public class ExternalWordCounter implements Closeable {
+    // Runs merged in one pass; more are first merged in groups
+    public static final int MAX_FAN_IN = 64;
+    
+    private final Path tempDir;
+    private final long memoryBudgetBytes;
+    private final List<Path> runs = new ArrayList<>();
+    private int nextRun;
+    private long spilledEntries;
+    
+    public interface Sink {
+        void accept(String word, long count) throws IOException;
+    }
+    
+    public ExternalWordCounter(Path workDir, long memoryBudgetBytes) throws IOException {
+        this.tempDir = Files.createTempDirectory(workDir, "word-counts");
+        this.memoryBudgetBytes = Math.max(1L << 20, memoryBudgetBytes);
+    }
+    
+    // Heap all callers together may use for counts (see FrequencyTable.estimatedBytes)
+    public long getMemoryBudget() {
+        return memoryBudgetBytes;
+    }
+    
+    // Writes the counts as one sorted run; the caller clears the table afterwards.
+    // Can be called from several threads.
+    public void spill(FrequencyTable counts) throws IOException {
+        if (counts.size() == 0) {
+            return;
+        }
+        String[] words = new String[counts.size()];
+        int[] next = {0};
+        counts.forEach((word, count) -> words[next[0]++] = word);
+        Arrays.sort(words);
+        Path run = newRun();
+        try (DataOutputStream out = openRun(run)) {
+            for (String word : words) {
+                writeEntry(out, word, counts.getFrequency(word));
+            }
+        }
+        synchronized (this) {
+            runs.add(run);
+            spilledEntries += words.length;
+        }
+    }
+    
+    // Sends every word with its total count to the sink, in word order, and
+    // returns how many were sent. Call once all spills are done.
+    public synchronized long merge(int minCount, Sink sink) throws IOException {
+        List<Path> pending = new ArrayList<>(runs);
+        while (pending.size() > MAX_FAN_IN) {
+            List<Path> merged = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i += MAX_FAN_IN) {
+                List<Path> group = pending.subList(i, Math.min(pending.size(), i + MAX_FAN_IN));
+                Path run = newRun();
+                try (DataOutputStream out = openRun(run)) {
+                    mergeRuns(group, 1, (word, count) -> writeEntry(out, word, count));
+                }
+                for (Path done : group) {
+                    Files.delete(done);
+                }
+                merged.add(run);
+            }
+            pending = merged;
+        }
+        return mergeRuns(pending, minCount, sink);
+    }
+    
+    private long mergeRuns(List<Path> group, int minCount, Sink sink) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>((a, b) -> a.word.compareTo(b.word));
+        long written = 0;
+        try {
+            for (Path run : group) {
+                RunReader reader = new RunReader(run);
+                if (reader.next()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader first = queue.poll();
+                String word = first.word;
+                long total = first.count;
+                advance(first, queue);
+                while (!queue.isEmpty() && queue.peek().word.equals(word)) {
+                    RunReader same = queue.poll();
+                    total += same.count;
+                    advance(same, queue);
+                }
+                if (total >= minCount) {
+                    sink.accept(word, total);
+                    written++;
+                }
+            }
+        } finally {
+            for (RunReader reader : queue) {
+                reader.close();
+            }
+        }
+        return written;
+    }
+    
+    private static void advance(RunReader reader, PriorityQueue<RunReader> queue) throws IOException {
+        if (reader.next()) {
+            queue.add(reader);
+        } else {
+            reader.close();
+        }
+    }
+    
+    private synchronized Path newRun() {
+        return tempDir.resolve("run-" + nextRun++ + ".bin");
+    }
+    
+    private static DataOutputStream openRun(Path run) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16));
+    }
+    
+    // Not writeUTF: a token can be longer than its 64 KB limit
+    private static void writeEntry(DataOutputStream out, String word, long count) throws IOException {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.writeLong(count);
+    }
+    
+    public synchronized int getRunCount() {
+        return runs.size();
+    }
+    
+    // Entries written to runs; more than the distinct words when runs overlap
+    public synchronized long getSpilledEntries() {
+        return spilledEntries;
+    }
+    
+    // Deletes the run files
+    @Override
+    public void close() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(tempDir)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(tempDir);
+    }
+    
+    private static final class RunReader implements Closeable {
+        private final DataInputStream in;
+        String word;
+        long count;
+        
+        RunReader(Path run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), 1 << 16));
+        }
+        
+        boolean next() throws IOException {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return false;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            word = new String(bytes, StandardCharsets.UTF_8);
+            count = in.readLong();
+            return true;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
\ No newline at end of file
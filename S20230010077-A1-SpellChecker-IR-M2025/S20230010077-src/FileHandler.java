@@ -1,8 +1,11 @@
 import java.util.*;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 public class FileHandler {
+    private static final List<String> SAMPLE_WORDS =
+        Arrays.asList("తెలుగు", "భాషా", "దేశం", "ప్రపంచ", "విధ్యార్థి", "పరీక్షా", "ఫలితాలు");
     
     public List<String> readDocument(String filePath) {
         List<String> words = new ArrayList<>();
@@ -12,29 +15,39 @@ public class FileHandler {
         if (!file.exists()) {
             System.out.println("File not found: " + filePath);
             System.out.println("Using sample data for demonstration...");
-            return Arrays.asList("తెలుగు", "భాషా", "దేశం", "ప్రపంచ", "విధ్యార్థి", "పరీక్షా", "ఫలితాలు");
+            return SAMPLE_WORDS;
         }
         
         try (BufferedReader reader = new BufferedReader(
                 new InputStreamReader(new FileInputStream(filePath), StandardCharsets.UTF_8))) {
             
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] lineWords = line.split("\\s+");
-                for (String word : lineWords) {
-                    if (!word.trim().isEmpty()) {
-                        words.add(word.trim());
-                    }
-                }
-            }
+            TeluguTokenizer.tokenize(reader,
+                (text, start, end, telugu) -> words.add(text.subSequence(start, end).toString()));
         } catch (IOException e) {
             System.out.println("Error reading document: " + e.getMessage());
             // Return sample data for demonstration
-            return Arrays.asList("తెలుగు", "భాషా", "దేశం", "ప్రపంచ", "విధ్యార్థి", "పరీక్షా", "ఫలితాలు");
+            return SAMPLE_WORDS;
         }
         return words;
     }
     
+    // Whole document as text, so corrections can be written back in place
+    public String readText(String filePath) {
+        File file = new File(filePath);
+        if (!file.exists()) {
+            System.out.println("File not found: " + filePath);
+            System.out.println("Using sample data for demonstration...");
+            return String.join(" ", SAMPLE_WORDS);
+        }
+        
+        try {
+            return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.out.println("Error reading document: " + e.getMessage());
+            return String.join(" ", SAMPLE_WORDS);
+        }
+    }
+    
     public void writeDocument(String filePath, String content) {
         try (BufferedWriter writer = new BufferedWriter(
                 new OutputStreamWriter(new FileOutputStream(filePath), StandardCharsets.UTF_8))) {
@@ -0,0 +1,216 @@
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+// Open-addressing hash table from words to int counts, used for counting tokens
+// and as an in-heap word store. Key chars are copied into one shared pool and
+// entries live in parallel int arrays; lookups hash and compare a char slice in
+// place, so counting a token allocates nothing (no String, boxed Integer or map
+// node). The total is kept as counts change.
+// Not safe for concurrent writes; once built it can be read from any thread.
+public class FrequencyTable implements WordStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    
+    private long[] slots;       // hash << 32 | entry index + 1, 0 = empty; linear probing
+    private int[] keyStarts;    // entry i is pool[keyStarts[i] .. keyStarts[i] + keyLengths[i])
+    private int[] keyLengths;
+    private int[] counts;
+    private char[] pool;
+    private int poolSize;
+    private int size;
+    private long totalFrequency;
+    
+    public FrequencyTable() {
+        this(INITIAL_CAPACITY);
+    }
+    
+    public FrequencyTable(int expectedWords) {
+        allocate(Math.max(16, expectedWords));
+    }
+    
+    public static FrequencyTable of(Map<String, Integer> frequencies) {
+        FrequencyTable table = new FrequencyTable(frequencies.size());
+        frequencies.forEach(table::add);
+        return table;
+    }
+    
+    // Copy of any word store
+    public static FrequencyTable from(WordStore store) {
+        FrequencyTable table = new FrequencyTable(store.size());
+        store.forEach(table::add);
+        return table;
+    }
+    
+    // Each word with count 1, for membership tests on slices
+    public static FrequencyTable of(String... words) {
+        FrequencyTable table = new FrequencyTable(words.length);
+        for (String word : words) {
+            table.add(word, 1);
+        }
+        return table;
+    }
+    
+    private void allocate(int expectedWords) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedWords * 2 - 1)) << 1;
+        slots = new long[capacity];
+        keyStarts = new int[expectedWords];
+        keyLengths = new int[expectedWords];
+        counts = new int[expectedWords];
+        pool = new char[expectedWords * 8];
+        poolSize = 0;
+        size = 0;
+        totalFrequency = 0;
+    }
+    
+    public void add(String word, int delta) {
+        add(word, 0, word.length(), delta);
+    }
+    
+    // Adds delta to the count of text[start, end), inserting it if it is new
+    public void add(CharSequence text, int start, int end, int delta) {
+        int hash = hash(text, start, end);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        long packed;
+        while ((packed = slots[slot]) != 0) {
+            int entry = (int) packed - 1;
+            if ((int) (packed >>> 32) == hash && keyEquals(entry, text, start, end)) {
+                counts[entry] = (int) Math.min(Integer.MAX_VALUE, (long) counts[entry] + delta);
+                totalFrequency += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = (long) hash << 32 | insert(text, start, end, delta);
+        totalFrequency += delta;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+    }
+    
+    private int insert(CharSequence text, int start, int end, int count) {
+        if (size == counts.length) {
+            int grown = size + (size >> 1) + 1;
+            keyStarts = Arrays.copyOf(keyStarts, grown);
+            keyLengths = Arrays.copyOf(keyLengths, grown);
+            counts = Arrays.copyOf(counts, grown);
+        }
+        int length = end - start;
+        if (poolSize + length > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(poolSize + length, pool.length + (pool.length >> 1)));
+        }
+        if (text instanceof String) {
+            ((String) text).getChars(start, end, pool, poolSize);
+        } else {
+            for (int i = start; i < end; i++) {
+                pool[poolSize + i - start] = text.charAt(i);
+            }
+        }
+        keyStarts[size] = poolSize;
+        keyLengths[size] = length;
+        counts[size] = count;
+        poolSize += length;
+        return ++size;
+    }
+    
+    private void rehash(int capacity) {
+        long[] grown = new long[capacity];
+        int mask = capacity - 1;
+        for (long packed : slots) {
+            if (packed != 0) {
+                int slot = (int) (packed >>> 32) & mask;
+                while (grown[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                grown[slot] = packed;
+            }
+        }
+        slots = grown;
+    }
+    
+    // Count of text[start, end), 0 if absent
+    public int get(CharSequence text, int start, int end) {
+        int entry = find(text, start, end);
+        return entry < 0 ? 0 : counts[entry];
+    }
+    
+    public boolean contains(CharSequence text, int start, int end) {
+        return find(text, start, end) >= 0;
+    }
+    
+    private int find(CharSequence text, int start, int end) {
+        int hash = hash(text, start, end);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        long packed;
+        while ((packed = slots[slot]) != 0) {
+            // The hash sits next to the entry, so a miss usually reads only this array
+            if ((int) (packed >>> 32) == hash && keyEquals((int) packed - 1, text, start, end)) {
+                return (int) packed - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+    
+    private boolean keyEquals(int entry, CharSequence text, int start, int end) {
+        int length = keyLengths[entry];
+        if (length != end - start) {
+            return false;
+        }
+        int offset = keyStarts[entry];
+        for (int i = 0; i < length; i++) {
+            if (pool[offset + i] != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int hash(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        // Spread the bits; Telugu words differ mostly in the low bits of few chars
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+    
+    @Override
+    public int getFrequency(String word) {
+        return get(word, 0, word.length());
+    }
+    
+    @Override
+    public boolean contains(String word) {
+        return find(word, 0, word.length()) >= 0;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public long getTotalFrequency() {
+        return totalFrequency;
+    }
+    
+    // Creates one String per distinct word, in insertion order
+    @Override
+    public void forEach(ObjIntConsumer<String> action) {
+        for (int entry = 0; entry < size; entry++) {
+            action.accept(new String(pool, keyStarts[entry], keyLengths[entry]), counts[entry]);
+        }
+    }
+    
+    // Drops all words and gives the memory back
+    public void clear() {
+        allocate(INITIAL_CAPACITY);
+    }
+    
+    // Heap held by the table's arrays
+    public long estimatedBytes() {
+        return 8L * slots.length + 12L * counts.length + 2L * pool.length;
+    }
+}
\ No newline at end of file
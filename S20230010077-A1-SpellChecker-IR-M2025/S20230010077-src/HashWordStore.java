@@ -0,0 +1,48 @@
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+// In-heap word store backed by a HashMap
+public class HashWordStore implements WordStore {
+    private final Map<String, Integer> frequencies;
+    private final long totalFrequency;
+    
+    public HashWordStore(Map<String, Integer> frequencies) {
+        this.frequencies = frequencies;
+        long total = 0;
+        for (int frequency : frequencies.values()) {
+            total += frequency;
+        }
+        this.totalFrequency = total;
+    }
+    
+    @Override
+    public int getFrequency(String word) {
+        return frequencies.getOrDefault(word, 0);
+    }
+    
+    @Override
+    public boolean contains(String word) {
+        return frequencies.containsKey(word);
+    }
+    
+    @Override
+    public int size() {
+        return frequencies.size();
+    }
+    
+    @Override
+    public long getTotalFrequency() {
+        return totalFrequency;
+    }
+    
+    @Override
+    public void forEach(ObjIntConsumer<String> action) {
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            action.accept(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    public Map<String, Integer> getFrequencies() {
+        return frequencies;
+    }
+}
\ No newline at end of file
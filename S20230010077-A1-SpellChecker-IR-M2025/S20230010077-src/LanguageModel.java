@@ -1,29 +1,95 @@
 import java.util.*;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class LanguageModel {
-    private Map<String, Integer> wordFrequencies;
-    private Set<String> validWords;
-    private int totalWords;
+    // Vocabulary storage: in-heap map, or a memory-mapped binary index (with its
+    // most frequent words in a hot tier when hotTierBudget is set). The store,
+    // the deletion indexes over it and its version are published together as
+    // one immutable Vocabulary; each call reads one, so it sees an old or a new
+    // vocabulary, never a mix. A caller making several calls can see an update
+    // in between.
+    private volatile Vocabulary vocabulary;
+    
+    // Distance of the optional SymSpell-style index, rebuilt whenever the
+    // vocabulary is (re)loaded; 0 disables it
+    private int deletionIndexDistance;
+    
+    // Versions change whenever lookups could return different results; cached
+    // suggestions are keyed by them. Unique across all models in the process.
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    
+    // Incremental updates: changes are appended to a delta log and applied as an
+    // overlay on the loaded index; compact() folds them into a new index file.
+    // Updates are serialized by updateLock, readers never wait for them.
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 50_000;
+    private final Object updateLock = new Object();
+    private String modelPath;
+    private DeltaLog deltaLog;
+    private int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+    
+    // Heap for the hot tier of a binary index (TieredWordStore); 0 leaves every
+    // lookup on the mapped file
+    private long hotTierBudget;
+    
+    // ShardServer addresses ("host:port,host:port") to load the vocabulary from
+    // instead of the index file, whose path then only places the delta log
+    private String shards;
     
     // Telugu character set for edit operations
     private static final String TELUGU_CHARS = 
         "అఆఇఈఉఊఋఌఎఏఐఒఓఔకఖగఘఙచఛజఝఞటఠడఢణతథదధనపఫబభమయరఱలళవశషసహఽాిీుూృౄెేైొోౌ్ౕౖౠౡ";
     
+    // One published state of the vocabulary
+    private static final class Vocabulary {
+        final WordStore store;
+        final SymmetricDeleteIndex deletionIndex;
+        // Deletion indexes over the words the overlay adds, until they are compacted
+        final List<AddedWords> addedWords;
+        final long version;
+        
+        // Akshara alphabet for candidate edits and dictionary automaton for
+        // Levenshtein search, built from this store on first use. A build for an
+        // older vocabulary can therefore never be handed out for a newer one.
+        volatile AksharaAlphabet alphabet;
+        volatile DawgWordStore automaton;
+        
+        Vocabulary(WordStore store, SymmetricDeleteIndex deletionIndex, List<AddedWords> addedWords,
+                   long version, AksharaAlphabet alphabet) {
+            this.store = store;
+            this.deletionIndex = deletionIndex;
+            this.addedWords = addedWords;
+            this.version = version;
+            this.alphabet = alphabet;
+        }
+    }
+    
+    // Words added by updates, with a deletion index over them. Each update with
+    // new words adds a layer, which absorbs the layers before it while they are
+    // no larger, so a word is indexed O(log n) times over n added words.
+    private static final class AddedWords {
+        final Set<String> words;
+        final SymmetricDeleteIndex index;
+        
+        AddedWords(Set<String> words, SymmetricDeleteIndex index) {
+            this.words = words;
+            this.index = index;
+        }
+    }
+    
     public LanguageModel() {
-        this.wordFrequencies = new HashMap<>();
-        this.validWords = new HashSet<>();
-        this.totalWords = 0;
+        this.vocabulary = new Vocabulary(new HashWordStore(new HashMap<>()), null, Collections.emptyList(),
+            VERSIONS.incrementAndGet(), null);
     }
     
-    @SuppressWarnings("unchecked")
+    // Loads a binary index (memory-mapped) or a legacy serialized/frequency file
     public void loadModel(String filePath) {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filePath))) {
-            wordFrequencies = (Map<String, Integer>) ois.readObject();
-            validWords = new HashSet<>(wordFrequencies.keySet());
-            totalWords = wordFrequencies.values().stream().mapToInt(Integer::intValue).sum();
-            System.out.println("Language model loaded with " + validWords.size() + " words");
+        try {
+            loadIndex(filePath);
         } catch (FileNotFoundException e) {
             System.out.println("No existing index found. Creating new language model...");
             initializeWithSampleData();
@@ -33,10 +99,63 @@ public class LanguageModel {
         }
     }
     
+    // Like loadModel, but a missing or unreadable file is an error instead of sample data
+    public void loadIndex(String filePath) throws IOException {
+        closeDeltaLog();
+        WordStore store;
+        if (shards != null) {
+            store = ShardedWordStore.connect(shards);
+        } else if (!new File(filePath).exists()) {
+            throw new FileNotFoundException(filePath);
+        } else if (MappedWordStore.isBinaryIndex(filePath)) {
+            store = openIndex(filePath);
+        } else {
+            try {
+                store = FrequencyTable.of(ModelConverter.readLegacy(filePath));
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unrecognized model file " + filePath, e);
+            }
+        }
+        modelPath = filePath;
+        System.out.println("Language model loaded with " + store.size() + " words");
+        vocabularyChanged(store);
+    }
+    
+    private WordStore openIndex(String filePath) throws IOException {
+        MappedWordStore mapped = MappedWordStore.open(filePath);
+        if (hotTierBudget <= 0) {
+            return mapped;
+        }
+        TieredWordStore tiered = TieredWordStore.open(mapped, hotTierBudget);
+        System.out.println("Hot tier: " + tiered.getHotWordCount() + " of " + tiered.size() + " words in ~"
+            + tiered.estimatedBytes() / 1024 + " KB of heap");
+        return tiered;
+    }
+    
+    // Keeps the most frequent words of the next loaded binary index in about
+    // this much heap; the rest is read from the mapped file
+    public void setHotTierBudget(long bytes) {
+        this.hotTierBudget = bytes;
+    }
+    
+    public long getHotTierBudget() {
+        return hotTierBudget;
+    }
+    
+    // Loads the next vocabulary from these shard servers; null for the index file
+    public void setShards(String addresses) {
+        this.shards = addresses;
+    }
+    
+    public String getShards() {
+        return shards;
+    }
+    
     public void saveModel(String filePath) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filePath))) {
-            oos.writeObject(wordFrequencies);
-            System.out.println("Language model saved with " + validWords.size() + " words");
+        WordStore store = vocabulary.store;
+        try {
+            MappedWordStore.write(store, filePath);
+            System.out.println("Language model saved with " + store.size() + " words");
         } catch (Exception e) {
             System.out.println("Error saving model: " + e.getMessage());
         }
@@ -61,54 +180,401 @@ public class LanguageModel {
             "చదువు", "చదివింది", "రాయి", "వ్రాయు", "మాట్లాడు", "వినుము", "చూడు", "తినుము"
         };
         
+        Map<String, Integer> wordFrequencies = new HashMap<>();
         Random rand = new Random(42); // Fixed seed for consistency
         for (String word : sampleWords) {
             wordFrequencies.put(word, 100 + rand.nextInt(900)); // Random frequency 100-1000
         }
-        validWords.addAll(wordFrequencies.keySet());
-        totalWords = wordFrequencies.values().stream().mapToInt(Integer::intValue).sum();
+        modelPath = null;
+        vocabularyChanged(new HashWordStore(wordFrequencies));
     }
     
+    // Plain text is read on this thread; a block corpus (BlockCorpus) is split
+    // across all cores
     public void buildFromCorpus(String corpusPath) {
         System.out.println("Building language model from corpus...");
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(new FileInputStream(corpusPath), StandardCharsets.UTF_8))) {
-            
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] words = line.split("\\s+");
-                for (String word : words) {
-                    word = word.trim();
-                    if (!word.isEmpty() && isTeluguWord(word)) {
-                        wordFrequencies.put(word, wordFrequencies.getOrDefault(word, 0) + 1);
-                    }
+        try {
+            // Counts are added on top of the current vocabulary; tokens are counted
+            // as slices of the text, a String is only made for a new word
+            FrequencyTable wordFrequencies = FrequencyTable.from(vocabulary.store);
+            if (BlockCorpus.isBlockCorpus(corpusPath)) {
+                countBlocks(corpusPath, wordFrequencies);
+            } else {
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(new FileInputStream(corpusPath), StandardCharsets.UTF_8))) {
+                    TeluguTokenizer.tokenize(reader, (text, start, end, telugu) -> {
+                        if (telugu) {
+                            wordFrequencies.add(text, start, end, 1);
+                        }
+                    });
                 }
             }
-            validWords = new HashSet<>(wordFrequencies.keySet());
-            totalWords = wordFrequencies.values().stream().mapToInt(Integer::intValue).sum();
-            System.out.println("Language model built with " + validWords.size() + " unique words");
+            modelPath = null;
+            System.out.println("Language model built with " + wordFrequencies.size() + " unique words");
+            vocabularyChanged(wordFrequencies);
         } catch (IOException e) {
             System.out.println("Error building from corpus: " + e.getMessage());
             initializeWithSampleData();
         }
     }
     
-    private boolean isTeluguWord(String word) {
-        return word.codePoints().anyMatch(cp -> (cp >= 0x0C00 && cp <= 0x0C7F));
+    // Each thread takes the next undecoded block and counts into its own table;
+    // the tables are added up at the end
+    private static void countBlocks(String corpusPath, FrequencyTable totals) throws IOException {
+        try (BlockCorpus corpus = BlockCorpus.open(corpusPath)) {
+            int threads = Math.max(1, Math.min(corpus.getBlockCount(), Runtime.getRuntime().availableProcessors()));
+            ExecutorService pool = Executors.newFixedThreadPool(threads, CandidateBatcher.daemonThreads("corpus-count"));
+            AtomicInteger nextBlock = new AtomicInteger();
+            List<Future<FrequencyTable>> results = new ArrayList<>();
+            try {
+                for (int i = 0; i < threads; i++) {
+                    results.add(pool.submit(() -> {
+                        FrequencyTable counts = new FrequencyTable();
+                        int block;
+                        while ((block = nextBlock.getAndIncrement()) < corpus.getBlockCount()) {
+                            TeluguTokenizer.tokenize(corpus.readBlock(block), (text, start, end, telugu) -> {
+                                if (telugu) {
+                                    counts.add(text, start, end, 1);
+                                }
+                            });
+                        }
+                        return counts;
+                    }));
+                }
+                for (Future<FrequencyTable> result : results) {
+                    result.get().forEach(totals::add);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while counting " + corpusPath);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+    
+    // Enables the symmetric-delete index for lookups up to maxDistance edits.
+    // Call before loading to build it once at load time; 0 disables it.
+    public void enableDeletionIndex(int maxDistance) {
+        synchronized (updateLock) {
+            this.deletionIndexDistance = maxDistance;
+            WordStore store = vocabulary.store;
+            publish(new Vocabulary(store, store.size() > 0 ? buildDeletionIndex(store) : null,
+                Collections.emptyList(), VERSIONS.incrementAndGet(), vocabulary.alphabet));
+        }
+    }
+    
+    // Publishes a new store with a deletion index built over all of it
+    private void vocabularyChanged(WordStore store) {
+        synchronized (updateLock) {
+            SymmetricDeleteIndex deletionIndex = buildDeletionIndex(store);
+            publish(new Vocabulary(store, deletionIndex, Collections.emptyList(), VERSIONS.incrementAndGet(), null));
+        }
+    }
+    
+    // Makes the vocabulary current; the cached suggestions of the one it
+    // replaces are dropped if its version changes
+    private void publish(Vocabulary next) {
+        Vocabulary previous = vocabulary;
+        vocabulary = next;
+        if (previous.version != next.version) {
+            SuggestionCache.shared().invalidateVersion(previous.version);
+        }
+    }
+    
+    // Replays the changes logged for the loaded index and records new ones in
+    // the log. Open it after loading the model it belongs to.
+    public void openDeltaLog(String logPath) {
+        synchronized (updateLock) {
+            try {
+                WordStore current = vocabulary.store;
+                WordStore base = current instanceof OverlayWordStore
+                    ? ((OverlayWordStore) current).getBase() : current;
+                DeltaLog log = DeltaLog.open(logPath, base);
+                if (deltaLog != null) {
+                    deltaLog.close();
+                }
+                deltaLog = log;
+                if (!log.getChanges().isEmpty()) {
+                    applyChanges(log.getChanges());
+                    System.out.println("Delta log replayed: " + log.getChanges().size() + " changed words");
+                }
+            } catch (IOException e) {
+                System.out.println("Error opening delta log: " + e.getMessage());
+            }
+        }
+    }
+    
+    public void addWord(String word, int count) {
+        addWords(Collections.singletonMap(word, count));
+    }
+    
+    // Adds the counts to the live model (negative counts remove occurrences; a
+    // word at 0 is dropped). The change is logged first, then published in one
+    // swap; once the delta holds compactionThreshold words it is compacted.
+    public void addWords(Map<String, Integer> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        synchronized (updateLock) {
+            if (deltaLog != null) {
+                try {
+                    WordStore current = vocabulary.store;
+                    deltaLog.append(counts, current instanceof OverlayWordStore
+                        ? ((OverlayWordStore) current).getBase() : current);
+                } catch (IOException e) {
+                    System.out.println("Error writing delta log: " + e.getMessage());
+                    return;
+                }
+            }
+            OverlayWordStore updated = applyChanges(counts);
+            if (modelPath != null && updated.getChangedWordCount() >= compactionThreshold) {
+                compact();
+            }
+        }
+    }
+    
+    private OverlayWordStore applyChanges(Map<String, Integer> counts) {
+        Vocabulary vocabulary = this.vocabulary;
+        WordStore current = vocabulary.store;
+        OverlayWordStore updated = current instanceof OverlayWordStore
+            ? ((OverlayWordStore) current).with(counts) : new OverlayWordStore(current, counts);
+        boolean newWords = false;
+        Set<String> fresh = new HashSet<>();
+        for (String word : counts.keySet()) {
+            if (current.contains(word) != updated.contains(word)) {
+                newWords = true;
+                if (updated.contains(word)) {
+                    fresh.add(word);
+                }
+            }
+        }
+        
+        // Only what the change can affect is rebuilt: an index of the words it
+        // adds now, the alphabet (if words came or went) and the automaton (its
+        // ranking has the frequencies) lazily for the new vocabulary
+        List<AddedWords> added = vocabulary.addedWords;
+        SymmetricDeleteIndex base = vocabulary.deletionIndex;
+        if (base != null && !fresh.isEmpty()) {
+            added = withAddedWords(added, fresh, base.getMaxDistance());
+        }
+        publish(new Vocabulary(updated, base, added, VERSIONS.incrementAndGet(),
+            newWords ? null : vocabulary.alphabet));
+        return updated;
+    }
+    
+    private static List<AddedWords> withAddedWords(List<AddedWords> layers, Set<String> words, int distance) {
+        List<AddedWords> updated = new ArrayList<>(layers);
+        Set<String> layer = new HashSet<>(words);
+        while (!updated.isEmpty() && updated.get(updated.size() - 1).words.size() <= layer.size()) {
+            layer.addAll(updated.remove(updated.size() - 1).words);
+        }
+        // At the base index's distance whatever the postings, or lookups would miss
+        // added words; compaction keeps the layers small
+        updated.add(new AddedWords(layer, SymmetricDeleteIndex.build(layer, distance,
+            SymmetricDeleteIndex.DEFAULT_PREFIX_LENGTH, Long.MAX_VALUE)));
+        return updated;
+    }
+    
+    // Writes the current vocabulary as a new index over the model file, swaps
+    // it in and starts the delta log over. Lookups keep running on the overlay
+    // while the index is written. A vocabulary on shard servers is not
+    // compacted: its changes stay in the overlay and the delta log.
+    public void compact() {
+        synchronized (updateLock) {
+            Vocabulary vocabulary = this.vocabulary;
+            WordStore current = vocabulary.store;
+            if (!(current instanceof OverlayWordStore) || modelPath == null || current.isRemote()) {
+                return;
+            }
+            long started = System.currentTimeMillis();
+            try {
+                Path target = Paths.get(modelPath);
+                Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+                MappedWordStore.write(current, temp.toString());
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                WordStore compacted = openIndex(modelPath);
+                if (deltaLog != null) {
+                    deltaLog.reset(compacted);
+                }
+                
+                // Same words and counts as the overlay, so the version stays and
+                // only the deletion index changes: the added words move into the
+                // rebuilt one
+                SymmetricDeleteIndex rebuilt = deletionIndexDistance > 0
+                    ? SymmetricDeleteIndex.build(getValidWords(), deletionIndexDistance) : null;
+                publish(new Vocabulary(compacted, rebuilt, Collections.emptyList(), vocabulary.version,
+                    vocabulary.alphabet));
+                System.out.println("Model compacted: " + compacted.size() + " words in "
+                    + (System.currentTimeMillis() - started) + " ms");
+            } catch (IOException e) {
+                // The overlay and the log still hold every change
+                System.out.println("Error compacting model: " + e.getMessage()
+                    + "; automatic compaction disabled");
+                compactionThreshold = Integer.MAX_VALUE;
+            }
+        }
+    }
+    
+    // Closes the delta log and the connections of a vocabulary on shard servers;
+    // for a model that is no longer used
+    public void close() {
+        closeDeltaLog();
+        WordStore store = vocabulary.store;
+        if (store instanceof OverlayWordStore) {
+            store = ((OverlayWordStore) store).getBase();
+        }
+        if (store instanceof Closeable) {
+            try {
+                ((Closeable) store).close();
+            } catch (IOException e) {
+                System.out.println("Error closing word store: " + e.getMessage());
+            }
+        }
+    }
+    
+    // Changes made after this are kept in memory only
+    public void closeDeltaLog() {
+        synchronized (updateLock) {
+            if (deltaLog != null) {
+                try {
+                    deltaLog.close();
+                } catch (IOException e) {
+                    System.out.println("Error closing delta log: " + e.getMessage());
+                }
+                deltaLog = null;
+            }
+        }
+    }
+    
+    public void setCompactionThreshold(int words) {
+        this.compactionThreshold = words;
+    }
+    
+    public long getVersion() {
+        return vocabulary.version;
+    }
+    
+    private SymmetricDeleteIndex buildDeletionIndex(WordStore store) {
+        if (deletionIndexDistance <= 0) {
+            return null;
+        }
+        Set<String> words = new HashSet<>();
+        store.forEach((word, frequency) -> words.add(word));
+        SymmetricDeleteIndex index = SymmetricDeleteIndex.build(words, deletionIndexDistance);
+        if (index != null) {
+            System.out.println("Deletion index built: distance " + index.getMaxDistance()
+                + ", " + index.getPostingCount() + " postings");
+        }
+        return index;
+    }
+    
+    public SymmetricDeleteIndex getDeletionIndex() {
+        return vocabulary.deletionIndex;
+    }
+    
+    // Words within the deletion index distance of the word (added words
+    // included), mapped to their distance, all from one vocabulary; null when
+    // the model has no deletion index
+    public Map<String, Integer> deletionCandidates(String word) {
+        Vocabulary current = vocabulary;
+        if (current.deletionIndex == null) {
+            return null;
+        }
+        Map<String, Integer> distances = current.deletionIndex.lookup(word);
+        for (AddedWords added : current.addedWords) {
+            distances.putAll(added.index.lookup(word));
+        }
+        return distances;
+    }
+    
+    // Both are built under the lock of the vocabulary they belong to: callers
+    // of one vocabulary share a build, updates do not wait for it
+    public AksharaAlphabet getAksharaAlphabet() {
+        Vocabulary current = vocabulary;
+        AksharaAlphabet alphabet = current.alphabet;
+        if (alphabet == null) {
+            synchronized (current) {
+                alphabet = current.alphabet;
+                if (alphabet == null) {
+                    alphabet = AksharaAlphabet.build(current.store);
+                    current.alphabet = alphabet;
+                }
+            }
+        }
+        return alphabet;
+    }
+    
+    public DawgWordStore getAutomaton() {
+        Vocabulary current = vocabulary;
+        if (current.store instanceof DawgWordStore) {
+            return (DawgWordStore) current.store;
+        }
+        DawgWordStore dawg = current.automaton;
+        if (dawg == null) {
+            synchronized (current) {
+                dawg = current.automaton;
+                if (dawg == null) {
+                    dawg = DawgWordStore.build(current.store);
+                    current.automaton = dawg;
+                }
+            }
+        }
+        return dawg;
     }
     
     public boolean isValidWord(String word) {
-        return validWords.contains(word) || word.trim().isEmpty();
+        return vocabulary.store.contains(word) || word.trim().isEmpty();
+    }
+    
+    // Frequency of each word, -1 for unknown words, in one call to the store
+    // (one round trip per shard for a sharded one)
+    public int[] lookup(List<String> words) {
+        return vocabulary.store.lookup(words);
+    }
+    
+    // Whether the vocabulary lives in other processes, so lookups should be batched
+    public boolean hasRemoteStore() {
+        return vocabulary.store.isRemote();
     }
     
     public double getWordProbability(String word) {
+        WordStore store = vocabulary.store;
+        long totalWords = store.getTotalFrequency();
         if (totalWords == 0) return 0.0;
-        int freq = wordFrequencies.getOrDefault(word, 0);
+        int freq = store.getFrequency(word);
         return (double) freq / totalWords;
     }
     
+    // Copy of the vocabulary; the model itself may be backed by a mapped file
     public Set<String> getValidWords() {
-        return validWords;
+        Set<String> words = new HashSet<>();
+        vocabulary.store.forEach((word, frequency) -> words.add(word));
+        return words;
+    }
+    
+    public WordStore getWordStore() {
+        return vocabulary.store;
+    }
+    
+    // Swaps in another storage backend holding the same kind of vocabulary
+    public void setWordStore(WordStore store) {
+        vocabularyChanged(store);
+    }
+    
+    // Re-encodes the current vocabulary as a minimal automaton (DAWG)
+    public void useDawgStorage() {
+        WordStore store = vocabulary.store;
+        if (store instanceof DawgWordStore) {
+            return;
+        }
+        DawgWordStore dawg = DawgWordStore.build(store);
+        System.out.println("DAWG storage: " + dawg.size() + " words, " + dawg.getStateCount()
+            + " states, " + dawg.getArcCount() + " arcs, ~" + dawg.estimatedBytes() / 1024 + " KB");
+        setWordStore(dawg);
     }
     
     public String getTeluguCharacters() {
@@ -116,6 +582,8 @@ public class LanguageModel {
     }
     
     public Map<String, Integer> getWordFrequencies() {
-        return wordFrequencies;
+        Map<String, Integer> frequencies = new HashMap<>();
+        vocabulary.store.forEach(frequencies::put);
+        return frequencies;
     }
 }
\ No newline at end of file
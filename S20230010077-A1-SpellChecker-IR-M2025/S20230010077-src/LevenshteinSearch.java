@@ -0,0 +1,116 @@
+import java.util.*;
+
+// Bounded-distance candidate search that walks the dictionary automaton once per
+// distance level, carrying one row of the (restricted Damerau) edit distance table
+// per depth. Branches are cut when every cell of the row exceeds the distance, or
+// when the state's frequency bound cannot beat the current top-k.
+public class LevenshteinSearch {
+    private final DawgWordStore dawg;
+    
+    public LevenshteinSearch(DawgWordStore dawg) {
+        this.dawg = dawg;
+    }
+    
+    // Up to topK words within maxDistance of the input (excluding the input itself),
+    // closest first and then by descending frequency
+    public List<String> search(String input, int maxDistance, int topK) {
+        List<String> results = new ArrayList<>();
+        for (int distance = 1; distance <= maxDistance && results.size() < topK; distance++) {
+            Level level = new Level(input, distance, topK - results.size());
+            level.walk(dawg.root(), 0, 0);
+            results.addAll(level.ranked());
+        }
+        return results;
+    }
+    
+    // One pass collecting the most frequent words at exactly the given distance
+    private class Level {
+        private final String input;
+        private final int distance;
+        private final int limit;
+        private final int[][] rows;
+        private final char[] labels;
+        private final PriorityQueue<int[]> best;   // {frequency, rank}, least frequent on top
+        private final Map<Integer, String> words = new HashMap<>();
+        private final StringBuilder prefix = new StringBuilder();
+        
+        Level(String input, int distance, int limit) {
+            this.input = input;
+            this.distance = distance;
+            this.limit = limit;
+            int maxDepth = input.length() + distance + 1;
+            this.rows = new int[maxDepth + 1][input.length() + 1];
+            this.labels = new char[maxDepth + 1];
+            this.best = new PriorityQueue<>((a, b) -> a[0] != b[0]
+                ? Integer.compare(a[0], b[0]) : Integer.compare(b[1], a[1]));
+            for (int j = 0; j <= input.length(); j++) {
+                rows[0][j] = j;
+            }
+        }
+        
+        void walk(int state, int depth, int rank) {
+            int n = input.length();
+            if (dawg.isFinal(state) && rows[depth][n] == distance) {
+                offer(dawg.frequencyAtRank(rank), rank);
+            }
+            if (depth + 1 >= rows.length) {
+                return;
+            }
+            
+            for (int arc = dawg.arcStart(state); arc < dawg.arcEnd(state); arc++) {
+                int target = dawg.arcTarget(arc);
+                if (best.size() == limit && dawg.maxFrequency(target) <= best.peek()[0]) {
+                    continue;
+                }
+                char label = dawg.arcLabel(arc);
+                if (fillRow(depth + 1, label) > distance) {
+                    continue;
+                }
+                labels[depth + 1] = label;
+                prefix.append(label);
+                walk(target, depth + 1, rank + dawg.arcRank(arc));
+                prefix.setLength(prefix.length() - 1);
+            }
+        }
+        
+        // Computes the row for the given depth and returns its minimum
+        private int fillRow(int depth, char label) {
+            int[] row = rows[depth];
+            int[] previous = rows[depth - 1];
+            row[0] = depth;
+            int min = row[0];
+            for (int j = 1; j <= input.length(); j++) {
+                char c = input.charAt(j - 1);
+                int cost = (c == label) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, row[j - 1] + 1), previous[j - 1] + cost);
+                if (depth > 1 && j > 1 && label == input.charAt(j - 2) && labels[depth - 1] == c) {
+                    value = Math.min(value, rows[depth - 2][j - 2] + 1);
+                }
+                row[j] = value;
+                min = Math.min(min, value);
+            }
+            return min;
+        }
+        
+        private void offer(int frequency, int rank) {
+            if (best.size() < limit) {
+                best.add(new int[] {frequency, rank});
+                words.put(rank, prefix.toString());
+            } else if (frequency > best.peek()[0]) {
+                words.remove(best.poll()[1]);
+                best.add(new int[] {frequency, rank});
+                words.put(rank, prefix.toString());
+            }
+        }
+        
+        List<String> ranked() {
+            List<int[]> entries = new ArrayList<>(best);
+            entries.sort((a, b) -> a[0] != b[0] ? Integer.compare(b[0], a[0]) : Integer.compare(a[1], b[1]));
+            List<String> ranked = new ArrayList<>();
+            for (int[] entry : entries) {
+                ranked.add(words.get(entry[1]));
+            }
+            return ranked;
+        }
+    }
+}
\ No newline at end of file
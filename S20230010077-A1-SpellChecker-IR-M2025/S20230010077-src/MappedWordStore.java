@@ -0,0 +1,248 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+// Read-only word store over a memory-mapped binary index. Opening the file only
+// maps it; lookups binary-search the sorted string pool in place.
+//
+// File layout (little endian):
+//   int  magic ("TSLM")     int  version
+//   int  word count (n)     int  reserved
+//   long total frequency
+//   int[n + 1] pool offsets
+//   int[n]     frequencies
+//   byte[]     UTF-8 string pool, words sorted by unsigned byte order
+public class MappedWordStore implements WordStore {
+    public static final int MAGIC = 0x4D4C5354;
+    public static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    // Word hash: multiply-add over the chars, then a murmur finalizer
+    private static final long HASH_SEED = 0xCBF29CE484222325L;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    
+    private final ByteBuffer buffer;
+    private final int count;
+    private final long totalFrequency;
+    private final int offsetsStart;
+    private final int frequenciesStart;
+    private final int poolStart;
+    
+    private MappedWordStore(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary model index");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported model index version " + version);
+        }
+        this.count = buffer.getInt(8);
+        this.totalFrequency = buffer.getLong(16);
+        this.offsetsStart = HEADER_SIZE;
+        this.frequenciesStart = offsetsStart + 4 * (count + 1);
+        this.poolStart = frequenciesStart + 4 * count;
+    }
+    
+    public static MappedWordStore open(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Model index larger than 2 GB: " + filePath);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedWordStore(mapped);
+        }
+    }
+    
+    public static boolean isBinaryIndex(String filePath) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filePath))) {
+            return Integer.reverseBytes(in.readInt()) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    // Writes any word store in the binary index format
+    public static void write(WordStore store, String filePath) throws IOException {
+        byte[][] words = new byte[store.size()][];
+        int[] frequencies = new int[store.size()];
+        int[] next = {0};
+        store.forEach((word, frequency) -> {
+            words[next[0]] = word.getBytes(StandardCharsets.UTF_8);
+            frequencies[next[0]++] = frequency;
+        });
+        Integer[] order = new Integer[words.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(words[a], words[b]));
+        
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(filePath), 1 << 16))) {
+            out.writeInt(Integer.reverseBytes(MAGIC));
+            out.writeInt(Integer.reverseBytes(VERSION));
+            out.writeInt(Integer.reverseBytes(words.length));
+            out.writeInt(0);
+            out.writeLong(Long.reverseBytes(store.getTotalFrequency()));
+            
+            int offset = 0;
+            for (int i : order) {
+                out.writeInt(Integer.reverseBytes(offset));
+                offset += words[i].length;
+            }
+            out.writeInt(Integer.reverseBytes(offset));
+            for (int i : order) {
+                out.writeInt(Integer.reverseBytes(frequencies[i]));
+            }
+            for (int i : order) {
+                out.write(words[i]);
+            }
+        }
+    }
+    
+    @Override
+    public int getFrequency(String word) {
+        int index = indexOf(word);
+        return index >= 0 ? buffer.getInt(frequenciesStart + 4 * index) : 0;
+    }
+    
+    @Override
+    public boolean contains(String word) {
+        return indexOf(word) >= 0;
+    }
+    
+    @Override
+    public int size() {
+        return count;
+    }
+    
+    @Override
+    public long getTotalFrequency() {
+        return totalFrequency;
+    }
+    
+    @Override
+    public void forEach(ObjIntConsumer<String> action) {
+        for (int i = 0; i < count; i++) {
+            action.accept(wordAt(i), frequencyAt(i));
+        }
+    }
+    
+    public String wordAt(int index) {
+        int start = offset(index);
+        byte[] bytes = new byte[offset(index + 1) - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(poolStart + start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    public int frequencyAt(int index) {
+        return buffer.getInt(frequenciesStart + 4 * index);
+    }
+    
+    // hash(wordAt(index)), decoding the mapped UTF-8 in place
+    public long hashAt(int index) {
+        int position = poolStart + offset(index);
+        int end = poolStart + offset(index + 1);
+        long hash = HASH_SEED;
+        while (position < end) {
+            int b = buffer.get(position) & 0xFF;
+            int codePoint;
+            if (b < 0x80) {
+                codePoint = b;
+                position += 1;
+            } else if (b < 0xE0) {
+                codePoint = (b & 0x1F) << 6 | continuation(position + 1);
+                position += 2;
+            } else if (b < 0xF0) {
+                codePoint = (b & 0x0F) << 12 | continuation(position + 1) << 6 | continuation(position + 2);
+                position += 3;
+            } else {
+                codePoint = (b & 0x07) << 18 | continuation(position + 1) << 12 | continuation(position + 2) << 6
+                    | continuation(position + 3);
+                position += 4;
+            }
+            if (Character.isBmpCodePoint(codePoint)) {
+                hash = (hash + codePoint) * HASH_MULTIPLIER;
+            } else {
+                hash = (hash + Character.highSurrogate(codePoint)) * HASH_MULTIPLIER;
+                hash = (hash + Character.lowSurrogate(codePoint)) * HASH_MULTIPLIER;
+            }
+        }
+        return mix(hash);
+    }
+    
+    private int continuation(int position) {
+        return buffer.get(position) & 0x3F;
+    }
+    
+    // 64-bit hash of the word's chars, for filters in front of the index. Equal
+    // for words with equal UTF-8 bytes: a lone surrogate counts as the '?' that
+    // getBytes writes for it.
+    public static long hash(String word) {
+        long hash = HASH_SEED;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (Character.isSurrogate(c)) {
+                boolean paired = Character.isHighSurrogate(c) ? i + 1 < word.length()
+                    && Character.isLowSurrogate(word.charAt(i + 1))
+                    : i > 0 && Character.isHighSurrogate(word.charAt(i - 1));
+                if (!paired) {
+                    c = '?';
+                }
+            }
+            hash = (hash + c) * HASH_MULTIPLIER;
+        }
+        return mix(hash);
+    }
+    
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB93FE1A85B53L;
+        return hash ^ (hash >>> 33);
+    }
+    
+    // Position of the word in the sorted pool, or -1
+    public int indexOf(String word) {
+        byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareAt(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+    
+    private int compareAt(int index, byte[] key) {
+        int start = poolStart + offset(index);
+        int length = offset(index + 1) - offset(index);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(buffer.get(start + i) & 0xFF, key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+    
+    private int offset(int index) {
+        return buffer.getInt(offsetsStart + 4 * index);
+    }
+}
\ No newline at end of file
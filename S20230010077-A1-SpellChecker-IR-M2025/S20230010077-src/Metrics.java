@@ -0,0 +1,414 @@
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.*;
+
+// Process-wide stage timers and counters for checking and dump processing.
+// Off by default (-Dspellchecker.metrics=true or setEnabled turns them on); while
+// off, start() returns 0 and every other hook returns at once, so the hot paths
+// pay one volatile read and no clock calls.
+//
+// Hooks chain timestamps: record(stage, started) adds the time since started to
+// the stage histogram and returns now, which starts the next stage. Words whose
+// candidate search and checks whose total time exceed the slow thresholds are
+// counted and emitted as JFR events (spellchecker.SlowWord, spellchecker.SlowCheck)
+// with enough detail to tell which input was slow and where the time went.
+public final class Metrics {
+    public enum Stage {
+        TOKENIZE, LOOKUP, CANDIDATES, RANKING, OUTPUT,
+        WORD_CANDIDATES,                // one word's candidate search, cache included
+        PAGE_CLEAN, PAGE_COUNT          // dump processing, per page
+    }
+    
+    public enum Counter {
+        CHECKS, WORDS, MISSPELLED,
+        CANDIDATES_GENERATED, CANDIDATES_VALID,    // edits/index hits tried vs. dictionary words kept
+        CACHE_LOOKUPS, CACHE_MISSES,
+        SLOW_WORDS, SLOW_CHECKS,
+        PAGES, DUMP_BYTES
+    }
+    
+    private static volatile boolean enabled = Boolean.getBoolean("spellchecker.metrics");
+    private static volatile long slowWordNanos = TimeUnit.MILLISECONDS.toNanos(5);
+    private static volatile long slowCheckNanos = TimeUnit.MILLISECONDS.toNanos(50);
+    
+    private static final Histogram[] HISTOGRAMS = new Histogram[Stage.values().length];
+    private static final LongAdder[] COUNTERS = new LongAdder[Counter.values().length];
+    private static volatile long resetAt = System.nanoTime();
+    
+    static {
+        for (int i = 0; i < HISTOGRAMS.length; i++) {
+            HISTOGRAMS[i] = new Histogram();
+        }
+        for (int i = 0; i < COUNTERS.length; i++) {
+            COUNTERS[i] = new LongAdder();
+        }
+    }
+    
+    private Metrics() {
+    }
+    
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+    
+    public static void setSlowThresholds(long wordMillis, long checkMillis) {
+        slowWordNanos = TimeUnit.MILLISECONDS.toNanos(wordMillis);
+        slowCheckNanos = TimeUnit.MILLISECONDS.toNanos(checkMillis);
+    }
+    
+    // Start of a timed span, 0 when metrics are off
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+    
+    // Adds the time since started to the stage and returns now (0 if not timing)
+    public static long record(Stage stage, long started) {
+        if (started == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        HISTOGRAMS[stage.ordinal()].add(now - started);
+        return now;
+    }
+    
+    public static void count(Counter counter, long amount) {
+        if (enabled) {
+            COUNTERS[counter.ordinal()].add(amount);
+        }
+    }
+    
+    // One word's candidate search is done; search names the method used
+    public static void wordSearched(String word, int candidates, String search, long started) {
+        if (started == 0) {
+            return;
+        }
+        long elapsed = System.nanoTime() - started;
+        HISTOGRAMS[Stage.WORD_CANDIDATES.ordinal()].add(elapsed);
+        if (elapsed >= slowWordNanos) {
+            COUNTERS[Counter.SLOW_WORDS.ordinal()].increment();
+            SlowWordEvent event = new SlowWordEvent();
+            if (event.shouldCommit()) {
+                event.word = word;
+                event.candidates = candidates;
+                event.search = search;
+                event.searchTime = elapsed;
+                event.commit();
+            }
+        }
+    }
+    
+    // One check is done; the timestamps are the ends of its stages as returned by record()
+    public static void checked(String text, int tokens, int misspelled, long started, long tokenized,
+                               long looked, long searched, long ranked) {
+        if (started == 0) {
+            return;
+        }
+        COUNTERS[Counter.CHECKS.ordinal()].increment();
+        COUNTERS[Counter.WORDS.ordinal()].add(tokens);
+        COUNTERS[Counter.MISSPELLED.ordinal()].add(misspelled);
+        if (ranked - started >= slowCheckNanos) {
+            COUNTERS[Counter.SLOW_CHECKS.ordinal()].increment();
+            SlowCheckEvent event = new SlowCheckEvent();
+            if (event.shouldCommit()) {
+                event.textStart = text.substring(0, Math.min(text.length(), 80));
+                event.textLength = text.length();
+                event.tokens = tokens;
+                event.misspelled = misspelled;
+                event.tokenizeTime = tokenized - started;
+                event.lookupTime = looked - tokenized;
+                event.candidateTime = searched - looked;
+                event.rankingTime = ranked - searched;
+                event.commit();
+            }
+        }
+    }
+    
+    // Clears all counts, e.g. between benchmark runs
+    public static void reset() {
+        for (Histogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+        for (LongAdder counter : COUNTERS) {
+            counter.reset();
+        }
+        resetAt = System.nanoTime();
+    }
+    
+    public static Snapshot snapshot() {
+        return new Snapshot();
+    }
+    
+    // Prints a snapshot every intervalSeconds, with rates over the interval;
+    // close() stops it
+    public static AutoCloseable startReporter(long intervalSeconds, boolean json, PrintStream out) {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            CandidateBatcher.daemonThreads("metrics-reporter"));
+        Snapshot[] previous = {snapshot()};
+        timer.scheduleAtFixedRate(() -> {
+            Snapshot current = snapshot();
+            out.println(json ? Json.write(current.toMap(previous[0])) : current.toText(previous[0]));
+            previous[0] = current;
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        return timer::shutdownNow;
+    }
+    
+    // Latency histogram over log-spaced buckets: four per power of two, so a
+    // reported percentile is at most 25% above the true value
+    private static final class Histogram {
+        private static final int BUCKETS = 256;
+        
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        
+        Histogram() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+        
+        void add(long nanos) {
+            long value = Math.max(0, nanos);
+            buckets[bucket(value)].increment();
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+        
+        static int bucket(long value) {
+            if (value < 4) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            return (exponent - 1) * 4 + (int) ((value >>> (exponent - 2)) & 3);
+        }
+        
+        // Smallest value of the bucket
+        static long lowerBound(int bucket) {
+            if (bucket < 4) {
+                return bucket;
+            }
+            return (4L + bucket % 4) << (bucket / 4 - 1);
+        }
+        
+        void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            count.reset();
+            sum.reset();
+            max.reset();
+        }
+    }
+    
+    // Counts and latency percentiles at one moment
+    public static final class Snapshot {
+        public final long uptimeNanos;
+        private final long takenAt;
+        private final long[] counters = new long[COUNTERS.length];
+        private final long[][] buckets = new long[HISTOGRAMS.length][];
+        private final long[] counts = new long[HISTOGRAMS.length];
+        private final long[] sums = new long[HISTOGRAMS.length];
+        private final long[] maxima = new long[HISTOGRAMS.length];
+        
+        private Snapshot() {
+            takenAt = System.nanoTime();
+            uptimeNanos = takenAt - resetAt;
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = COUNTERS[i].sum();
+            }
+            for (int i = 0; i < buckets.length; i++) {
+                Histogram histogram = HISTOGRAMS[i];
+                buckets[i] = new long[Histogram.BUCKETS];
+                for (int b = 0; b < Histogram.BUCKETS; b++) {
+                    buckets[i][b] = histogram.buckets[b].sum();
+                }
+                counts[i] = histogram.count.sum();
+                sums[i] = histogram.sum.sum();
+                maxima[i] = histogram.max.get();
+            }
+        }
+        
+        public long get(Counter counter) {
+            return counters[counter.ordinal()];
+        }
+        
+        public long count(Stage stage) {
+            return counts[stage.ordinal()];
+        }
+        
+        public long meanNanos(Stage stage) {
+            long count = counts[stage.ordinal()];
+            return count == 0 ? 0 : sums[stage.ordinal()] / count;
+        }
+        
+        public long maxNanos(Stage stage) {
+            return maxima[stage.ordinal()];
+        }
+        
+        // Upper end of the bucket holding the given quantile (0..1)
+        public long percentileNanos(Stage stage, double quantile) {
+            long[] histogram = buckets[stage.ordinal()];
+            long target = (long) Math.ceil(quantile * counts[stage.ordinal()]);
+            long seen = 0;
+            for (int b = 0; b < histogram.length; b++) {
+                seen += histogram[b];
+                if (seen >= Math.max(1, target)) {
+                    return Math.min(maxima[stage.ordinal()], Histogram.lowerBound(b + 1) - 1);
+                }
+            }
+            return 0;
+        }
+        
+        public double cacheHitRate() {
+            long lookups = get(Counter.CACHE_LOOKUPS);
+            return lookups == 0 ? 0.0 : 1.0 - (double) get(Counter.CACHE_MISSES) / lookups;
+        }
+        
+        public double misspellingRate() {
+            long words = get(Counter.WORDS);
+            return words == 0 ? 0.0 : (double) get(Counter.MISSPELLED) / words;
+        }
+        
+        // Per second between the previous snapshot (null: since reset) and this one
+        public double rate(Counter counter, Snapshot previous) {
+            long elapsed = previous == null ? uptimeNanos : takenAt - previous.takenAt;
+            long amount = get(counter) - (previous == null ? 0 : previous.get(counter));
+            return elapsed <= 0 ? 0.0 : amount * 1e9 / elapsed;
+        }
+        
+        public Map<String, Object> toMap(Snapshot previous) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("enabled", enabled);
+            map.put("uptimeMillis", uptimeNanos / 1_000_000);
+            Map<String, Object> counterMap = new LinkedHashMap<>();
+            for (Counter counter : Counter.values()) {
+                counterMap.put(name(counter), get(counter));
+            }
+            map.put("counters", counterMap);
+            Map<String, Object> rates = new LinkedHashMap<>();
+            rates.put("checksPerSecond", round(rate(Counter.CHECKS, previous)));
+            rates.put("wordsPerSecond", round(rate(Counter.WORDS, previous)));
+            rates.put("pagesPerSecond", round(rate(Counter.PAGES, previous)));
+            rates.put("dumpBytesPerSecond", round(rate(Counter.DUMP_BYTES, previous)));
+            map.put("rates", rates);
+            map.put("misspellingRate", round(misspellingRate()));
+            map.put("cacheHitRate", round(cacheHitRate()));
+            Map<String, Object> stages = new LinkedHashMap<>();
+            for (Stage stage : Stage.values()) {
+                if (count(stage) == 0) {
+                    continue;
+                }
+                Map<String, Object> latency = new LinkedHashMap<>();
+                latency.put("count", count(stage));
+                latency.put("meanMicros", meanNanos(stage) / 1000);
+                latency.put("p50Micros", percentileNanos(stage, 0.5) / 1000);
+                latency.put("p90Micros", percentileNanos(stage, 0.9) / 1000);
+                latency.put("p99Micros", percentileNanos(stage, 0.99) / 1000);
+                latency.put("maxMicros", maxNanos(stage) / 1000);
+                stages.put(name(stage), latency);
+            }
+            map.put("stages", stages);
+            return map;
+        }
+        
+        public String toText(Snapshot previous) {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format("metrics after %.1f s: %d checks (%.1f/s), %d words, %.2f%% misspelled,"
+                    + " %d slow words, %d slow checks%n", uptimeNanos / 1e9, get(Counter.CHECKS),
+                rate(Counter.CHECKS, previous), get(Counter.WORDS), 100 * misspellingRate(),
+                get(Counter.SLOW_WORDS), get(Counter.SLOW_CHECKS)));
+            text.append(String.format("  candidates generated=%d valid=%d, cache lookups=%d hitRate=%.1f%%%n",
+                get(Counter.CANDIDATES_GENERATED), get(Counter.CANDIDATES_VALID), get(Counter.CACHE_LOOKUPS),
+                100 * cacheHitRate()));
+            if (get(Counter.PAGES) > 0) {
+                text.append(String.format("  dump: %d pages (%.1f/s), %.1f MB (%.2f MB/s)%n", get(Counter.PAGES),
+                    rate(Counter.PAGES, previous), get(Counter.DUMP_BYTES) / 1e6,
+                    rate(Counter.DUMP_BYTES, previous) / 1e6));
+            }
+            for (Stage stage : Stage.values()) {
+                if (count(stage) > 0) {
+                    text.append(String.format("  %-16s n=%-9d mean=%-8s p50=%-8s p90=%-8s p99=%-8s max=%s%n",
+                        name(stage), count(stage), micros(meanNanos(stage)), micros(percentileNanos(stage, 0.5)),
+                        micros(percentileNanos(stage, 0.9)), micros(percentileNanos(stage, 0.99)),
+                        micros(maxNanos(stage))));
+                }
+            }
+            return text.toString().trim();
+        }
+        
+        @Override
+        public String toString() {
+            return toText(null);
+        }
+        
+        private static String micros(long nanos) {
+            return String.format("%.1fus", nanos / 1000.0);
+        }
+        
+        private static double round(double value) {
+            return Math.round(value * 1000) / 1000.0;
+        }
+    }
+    
+    // TOKENIZE -> "tokenize", CANDIDATES_VALID -> "candidatesValid"
+    private static String name(Enum<?> value) {
+        String[] parts = value.name().toLowerCase(Locale.ROOT).split("_");
+        StringBuilder name = new StringBuilder(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            name.append(Character.toUpperCase(parts[i].charAt(0))).append(parts[i].substring(1));
+        }
+        return name.toString();
+    }
+    
+    @Name("spellchecker.SlowWord")
+    @Label("Slow Word")
+    @Category("Spell Checker")
+    @Description("Candidate search for one word took longer than the slow-word threshold")
+    public static final class SlowWordEvent extends Event {
+        @Label("Word")
+        String word;
+        @Label("Candidates")
+        int candidates;
+        @Label("Search")
+        String search;
+        @Label("Search Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long searchTime;
+    }
+    
+    @Name("spellchecker.SlowCheck")
+    @Label("Slow Check")
+    @Category("Spell Checker")
+    @Description("Checking one text took longer than the slow-check threshold")
+    public static final class SlowCheckEvent extends Event {
+        @Label("Text Start")
+        String textStart;
+        @Label("Text Length")
+        int textLength;
+        @Label("Tokens")
+        int tokens;
+        @Label("Misspelled")
+        int misspelled;
+        @Label("Tokenize Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long tokenizeTime;
+        @Label("Lookup Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long lookupTime;
+        @Label("Candidate Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long candidateTime;
+        @Label("Ranking Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long rankingTime;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Converts the legacy model files (serialized telugu_index.dat or the
+// word|count telugu_frequencies.dat written by WikipediaDumpProcessor)
+// into the memory-mapped binary index read by MappedWordStore.
+public class ModelConverter {
+    
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: java ModelConverter <telugu_index.dat | telugu_frequencies.dat> <output index>");
+            return;
+        }
+        try {
+            convert(args[0], args[1]);
+        } catch (Exception e) {
+            System.out.println("Error converting model: " + e.getMessage());
+        }
+    }
+    
+    public static void convert(String sourcePath, String targetPath) throws IOException, ClassNotFoundException {
+        Map<String, Integer> frequencies = readLegacy(sourcePath);
+        MappedWordStore.write(new HashWordStore(frequencies), targetPath);
+        System.out.println("Converted " + frequencies.size() + " words from " + sourcePath + " to " + targetPath);
+    }
+    
+    // Only the HashMap<String, Integer> the old model was saved as may be
+    // deserialized; any other class in the stream is rejected before it is created
+    private static final ObjectInputFilter LEGACY_FILTER = ObjectInputFilter.Config.createFilter(
+        "maxdepth=4;java.util.HashMap;java.util.Map$Entry;java.lang.String;java.lang.Integer;java.lang.Number;!*");
+    
+    // Reads either legacy format, detected from the Java serialization header
+    @SuppressWarnings("unchecked")
+    public static Map<String, Integer> readLegacy(String filePath) throws IOException, ClassNotFoundException {
+        if (isSerialized(filePath)) {
+            try (ObjectInputStream ois = new ObjectInputStream(
+                    new BufferedInputStream(new FileInputStream(filePath)))) {
+                ois.setObjectInputFilter(LEGACY_FILTER);
+                return (Map<String, Integer>) ois.readObject();
+            }
+        }
+        
+        Map<String, Integer> frequencies = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(filePath), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.lastIndexOf('|');
+                if (separator <= 0) {
+                    continue;
+                }
+                try {
+                    int count = Integer.parseInt(line.substring(separator + 1).trim());
+                    frequencies.merge(line.substring(0, separator), count, Integer::sum);
+                } catch (NumberFormatException e) {
+                    // Skip malformed lines
+                }
+            }
+        }
+        return frequencies;
+    }
+    
+    private static boolean isSerialized(String filePath) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filePath))) {
+            return in.readUnsignedShort() == 0xACED;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+}
\ No newline at end of file
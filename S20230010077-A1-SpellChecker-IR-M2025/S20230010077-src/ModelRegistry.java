@@ -0,0 +1,167 @@
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// Holds the language model that checks run against and replaces it without a
+// restart. A new index is loaded and warmed up on a background thread while the
+// current model keeps serving, then published with one reference swap. Every
+// check holds a lease on the model it started with, so it finishes on that
+// version; a replaced model is released once its last lease is returned.
+public class ModelRegistry implements AutoCloseable {
+    private final AtomicReference<Entry> current;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(
+        CandidateBatcher.daemonThreads("model-loader"));
+    private final AtomicInteger generations = new AtomicInteger();
+    private final Object updateLock = new Object();
+    
+    public ModelRegistry(LanguageModel initial) {
+        this.current = new AtomicReference<>(new Entry(initial, generations.incrementAndGet(), "initial"));
+    }
+    
+    // A published model and the number of checks still using it
+    private static final class Entry {
+        final LanguageModel model;
+        final int generation;
+        final String source;
+        final AtomicInteger leases = new AtomicInteger();
+        final AtomicBoolean released = new AtomicBoolean();
+        volatile boolean retired;
+        
+        Entry(LanguageModel model, int generation, String source) {
+            this.model = model;
+            this.generation = generation;
+            this.source = source;
+        }
+    }
+    
+    // The model one check runs against; close it when the check is done
+    public final class Lease implements AutoCloseable {
+        private final Entry entry;
+        private boolean closed;
+        
+        private Lease(Entry entry) {
+            this.entry = entry;
+        }
+        
+        public LanguageModel model() {
+            return entry.model;
+        }
+        
+        public int generation() {
+            return entry.generation;
+        }
+        
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                if (entry.leases.decrementAndGet() == 0 && entry.retired) {
+                    release(entry);
+                }
+            }
+        }
+    }
+    
+    public Lease acquire() {
+        while (true) {
+            Entry entry = current.get();
+            entry.leases.incrementAndGet();
+            // Published, or swapped out after the read: then take the new one
+            if (current.get() == entry) {
+                return new Lease(entry);
+            }
+            if (entry.leases.decrementAndGet() == 0 && entry.retired) {
+                release(entry);
+            }
+        }
+    }
+    
+    // The current model, for callers that do not need a stable version
+    public LanguageModel current() {
+        return current.get().model;
+    }
+    
+    public int getGeneration() {
+        return current.get().generation;
+    }
+    
+    public String getSource() {
+        return current.get().source;
+    }
+    
+    // Replaces the model right away (it should already be loaded); returns its generation
+    public int publish(LanguageModel model, String source) {
+        Entry entry = new Entry(model, generations.incrementAndGet(), source);
+        retire(current.getAndSet(entry));
+        return entry.generation;
+    }
+    
+    // Word updates go to whichever model is current; they are ordered with the
+    // publish step of a reload so none lands on a model that is being replaced
+    public void addWords(Map<String, Integer> counts) {
+        synchronized (updateLock) {
+            current().addWords(counts);
+        }
+    }
+    
+    // Loads the index in the background, runs warmUp on it and publishes it.
+    // The current model serves until then; if loading fails it stays current.
+    // prepare is called on the new model before loading (e.g. to enable
+    // indexes); the delta log, if given, is replayed right before publishing.
+    public CompletableFuture<Integer> reload(String indexPath, String deltaLogPath,
+                                             Consumer<LanguageModel> prepare, Consumer<LanguageModel> warmUp) {
+        return CompletableFuture.supplyAsync(() -> {
+            long started = System.currentTimeMillis();
+            LanguageModel model = new LanguageModel();
+            if (prepare != null) {
+                prepare.accept(model);
+            }
+            try {
+                model.loadIndex(indexPath);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+            if (warmUp != null) {
+                warmUp.accept(model);
+            }
+            int generation;
+            synchronized (updateLock) {
+                if (deltaLogPath != null) {
+                    model.openDeltaLog(deltaLogPath);
+                }
+                generation = publish(model, indexPath);
+            }
+            System.out.println("Model generation " + generation + " from " + indexPath + " published after "
+                + (System.currentTimeMillis() - started) + " ms");
+            return generation;
+        }, loader);
+    }
+    
+    private void retire(Entry entry) {
+        entry.retired = true;
+        if (entry.leases.get() == 0) {
+            release(entry);
+        }
+    }
+    
+    // Both the last lease and retire() can get here; only the first one counts.
+    // After this nothing refers to the model and the GC takes it (and unmaps it);
+    // its delta log and shard connections are closed here, and its cached
+    // suggestions dropped, as no check will ask for that version again.
+    private void release(Entry entry) {
+        if (entry.released.compareAndSet(false, true) && entry.model != current.get().model) {
+            entry.model.close();
+            SuggestionCache.shared().invalidateVersion(entry.model.getVersion());
+            System.out.println("Model generation " + entry.generation + " released");
+        }
+    }
+    
+    @Override
+    public void close() {
+        loader.shutdownNow();
+    }
+}
\ No newline at end of file
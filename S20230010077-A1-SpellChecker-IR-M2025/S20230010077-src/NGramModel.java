@@ -0,0 +1,396 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Unigram/bigram/trigram counts for re-ranking candidates by their context,
+// scored with stupid backoff (Brants et al. 2007): the relative frequency of the
+// longest n-gram seen, times 0.4 for every order backed off.
+//
+// Storage is one open-addressing table of primitive arrays: a 64-bit
+// fingerprint of the n-gram (words are never stored) and one byte holding the
+// count on a log scale, q = 1 + round(8 * log2(count)), i.e. within 4.5% of the
+// true count up to 2^31. Each slot costs 9 bytes and the table is kept between
+// 3/8 and 3/4 full, so a stored n-gram takes 12 to 24 bytes on the heap and on
+// disk. For a full Telugu Wikipedia corpus (tens of millions of tokens) the
+// bigram table with singletons pruned holds a few million entries: 4M bigrams
+// fit a 8M-slot table of 72 MB, 10M need 16M slots or 144 MB. Trigrams usually
+// double that. buildFromCorpus prints the actual figures.
+//
+// File layout (little endian):
+//   int  magic ("TSNG")     int  version
+//   int  log2(capacity)     int  entry count
+//   long total tokens
+//   long[capacity] keys     byte[capacity] quantized counts
+public class NGramModel {
+    public static final int MAGIC = 0x474E5354;
+    public static final int VERSION = 1;
+    public static final String SENTENCE_START = "<s>";
+    public static final String SENTENCE_END = "</s>";
+    private static final int HEADER_SIZE = 24;
+    private static final double BACKOFF = 0.4;
+    private static final int RERANK_DEPTH = 10;
+    private static final long START = hash(SENTENCE_START);
+    private static final long END = hash(SENTENCE_END);
+    
+    private final long[] keys;
+    private final byte[] counts;
+    private final int mask;
+    private final int size;
+    private final long totalTokens;
+    
+    private NGramModel(long[] keys, byte[] counts, int size, long totalTokens) {
+        this.keys = keys;
+        this.counts = counts;
+        this.mask = keys.length - 1;
+        this.size = size;
+        this.totalTokens = totalTokens;
+    }
+    
+    // Counts n-grams of the corpus (plain text or BlockCorpus) line by line;
+    // sentences end at line breaks and at . ? ! and the dandas. Bigrams and
+    // trigrams seen fewer than minCount times are dropped; unigrams are always kept.
+    public static NGramModel buildFromCorpus(String corpusPath, int minCount) throws IOException {
+        LongCounter[] counters = {new LongCounter(), new LongCounter(), new LongCounter()};
+        long[] tokens = {0};
+        try (BufferedReader reader = new BufferedReader(BlockCorpus.openReader(corpusPath))) {
+            long[] history = new long[2];   // the two previous words, 0 when there are fewer
+            boolean[] inSentence = new boolean[1];
+            int[] previousEnd = new int[1];
+            String line;
+            while ((line = reader.readLine()) != null) {
+                inSentence[0] = false;
+                previousEnd[0] = 0;
+                TeluguTokenizer.tokenize(line, (source, start, end, telugu) -> {
+                    if (inSentence[0] && isSentenceBreak(source, previousEnd[0], start)) {
+                        endSentence(counters, history);
+                        inSentence[0] = false;
+                    }
+                    if (!inSentence[0]) {
+                        counters[0].increment(key(START));
+                        history[0] = 0;
+                        history[1] = START;
+                        inSentence[0] = true;
+                    }
+                    long word = hash(source, start, end);
+                    counters[0].increment(key(word));
+                    counters[1].increment(key(history[1], word));
+                    if (history[0] != 0) {
+                        counters[2].increment(key(history[0], history[1], word));
+                    }
+                    history[0] = history[1];
+                    history[1] = word;
+                    previousEnd[0] = end;
+                    tokens[0]++;
+                });
+                if (inSentence[0]) {
+                    endSentence(counters, history);
+                }
+            }
+        }
+        
+        int kept = counters[0].size();
+        for (int order = 1; order < 3; order++) {
+            kept += counters[order].countAtLeast(minCount);
+        }
+        int capacity = Integer.highestOneBit(Math.max(16, kept * 4 / 3 + 1) - 1) << 1;
+        NGramModel model = new NGramModel(new long[capacity], new byte[capacity], kept, tokens[0]);
+        counters[0].forEach((key, count) -> model.put(key, count));
+        for (int order = 1; order < 3; order++) {
+            counters[order].forEach((key, count) -> {
+                if (count >= minCount) {
+                    model.put(key, count);
+                }
+            });
+        }
+        System.out.println("N-gram model built from " + tokens[0] + " tokens: " + counters[0].size()
+            + " unigrams, " + counters[1].countAtLeast(minCount) + " bigrams, "
+            + counters[2].countAtLeast(minCount) + " trigrams (min count " + minCount + "), "
+            + capacity + " slots, " + model.memoryBytes() / (1 << 20) + " MB");
+        return model;
+    }
+    
+    // Counts the n-grams ending in </s> for the sentence just finished
+    private static void endSentence(LongCounter[] counters, long[] history) {
+        counters[1].increment(key(history[1], END));
+        if (history[0] != 0) {
+            counters[2].increment(key(history[0], history[1], END));
+        }
+    }
+    
+    // True when the separator text between two tokens ends a sentence
+    public static boolean isSentenceBreak(CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == '.' || c == '?' || c == '!' || c == '\n' || c == '\u0964' || c == '\u0965') {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public void save(String filePath) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(filePath), 1 << 16))) {
+            out.writeInt(Integer.reverseBytes(MAGIC));
+            out.writeInt(Integer.reverseBytes(VERSION));
+            out.writeInt(Integer.reverseBytes(Integer.numberOfTrailingZeros(keys.length)));
+            out.writeInt(Integer.reverseBytes(size));
+            out.writeLong(Long.reverseBytes(totalTokens));
+            for (long key : keys) {
+                out.writeLong(Long.reverseBytes(key));
+            }
+            out.write(counts);
+        }
+    }
+    
+    public static NGramModel load(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not an n-gram model: " + filePath);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported n-gram model version " + version);
+            }
+            int capacity = 1 << header.getInt();
+            int size = header.getInt();
+            long totalTokens = header.getLong();
+            
+            long[] keys = new long[capacity];
+            byte[] counts = new byte[capacity];
+            ByteBuffer block = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            int filled = 0;
+            while (filled < capacity) {
+                block.clear();
+                block.limit((int) Math.min(block.capacity(), 8L * (capacity - filled)));
+                readFully(channel, block);
+                block.flip();
+                int longs = block.remaining() / 8;
+                block.asLongBuffer().get(keys, filled, longs);
+                filled += longs;
+            }
+            readFully(channel, ByteBuffer.wrap(counts));
+            return new NGramModel(keys, counts, size, totalTokens);
+        }
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Truncated n-gram model");
+            }
+        }
+    }
+    
+    // log10 of the stupid-backoff score of word after the two context words
+    // (oldest first); either may be null for less context
+    public double logScore(String context2, String context1, String word) {
+        long w = hash(word);
+        double penalty = 0;
+        if (context1 != null) {
+            long c1 = hash(context1);
+            if (context2 != null) {
+                long c2 = hash(context2);
+                double trigram = count(key(c2, c1, w));
+                if (trigram > 0) {
+                    return Math.min(0, Math.log10(trigram / Math.max(trigram, count(key(c2, c1)))));
+                }
+                penalty += Math.log10(BACKOFF);
+            }
+            double bigram = count(key(c1, w));
+            if (bigram > 0) {
+                return penalty + Math.min(0, Math.log10(bigram / Math.max(bigram, count(key(c1)))));
+            }
+            penalty += Math.log10(BACKOFF);
+        }
+        double unigram = Math.max(count(key(w)), 0.5);
+        return penalty + Math.log10(unigram / Math.max(1, totalTokens));
+    }
+    
+    // How well the word fits between its neighbours: the scores of the word and
+    // of the two words after it, each given the two words before
+    public double contextScore(String left2, String left1, String word, String right1, String right2) {
+        double score = logScore(left1 == null ? null : left2, left1, word);
+        if (right1 != null) {
+            score += logScore(left1, word, right1);
+            if (right2 != null) {
+                score += logScore(word, right1, right2);
+            }
+        }
+        return score;
+    }
+    
+    // Candidates with the top ones reordered by how well they fit the context;
+    // equal scores keep the original order
+    public List<String> rerank(List<String> candidates, String left2, String left1,
+                               String right1, String right2) {
+        int depth = Math.min(RERANK_DEPTH, candidates.size());
+        if (depth < 2) {
+            return candidates;
+        }
+        Integer[] order = new Integer[depth];
+        double[] scores = new double[depth];
+        for (int i = 0; i < depth; i++) {
+            order[i] = i;
+            scores[i] = contextScore(left2, left1, candidates.get(i), right1, right2);
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        List<String> reranked = new ArrayList<>(candidates.size());
+        for (int index : order) {
+            reranked.add(candidates.get(index));
+        }
+        reranked.addAll(candidates.subList(depth, candidates.size()));
+        return reranked;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public long getTotalTokens() {
+        return totalTokens;
+    }
+    
+    public long memoryBytes() {
+        return 9L * keys.length;
+    }
+    
+    // Approximate count of an n-gram key, 0 when absent
+    private double count(long key) {
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return Math.pow(2, ((counts[slot] & 0xFF) - 1) / 8.0);
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+    
+    private void put(long key, long count) {
+        int slot = slot(key);
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = (byte) Math.min(255, 1 + Math.round(8 * Math.log(count) / Math.log(2)));
+    }
+    
+    private int slot(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+    
+    // Keys are 64-bit fingerprints, so two n-grams can share one (about n^2/2^65
+    // for n entries, under one in a million below 6M entries) and then share its
+    // count. The order salt only keeps n-grams of different length from being
+    // mixed by the same arithmetic; 0 marks an empty slot.
+    private static long key(long w1) {
+        return nonZero(mix(w1 + 0x1L));
+    }
+    
+    private static long key(long w1, long w2) {
+        return nonZero(mix(w1 * 0x9E3779B97F4A7C15L + w2 + 0x2L));
+    }
+    
+    private static long key(long w1, long w2, long w3) {
+        return nonZero(mix((w1 * 0x9E3779B97F4A7C15L + w2) * 0x9E3779B97F4A7C15L + w3 + 0x3L));
+    }
+    
+    private static long nonZero(long key) {
+        return key == 0 ? 1 : key;
+    }
+    
+    private static long hash(CharSequence word) {
+        return hash(word, 0, word.length());
+    }
+    
+    // 64-bit FNV-1a over the chars
+    private static long hash(CharSequence text, int start, int end) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+    
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    // Exact counts while building: open addressing over long keys and int counts
+    private static final class LongCounter {
+        private long[] keys = new long[1 << 16];
+        private int[] values = new int[1 << 16];
+        private int size;
+        
+        interface Visitor {
+            void visit(long key, int count);
+        }
+        
+        void increment(long key) {
+            int mask = keys.length - 1;
+            int slot = (int) (key ^ (key >>> 32)) & mask;
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    values[slot]++;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = 1;
+            if (++size > keys.length * 3 / 4) {
+                grow();
+            }
+        }
+        
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = (int) (oldKeys[i] ^ (oldKeys[i] >>> 32)) & mask;
+                    while (keys[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        int countAtLeast(int minCount) {
+            int count = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0 && values[i] >= minCount) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        
+        void forEach(Visitor visitor) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    visitor.visit(keys[i], values[i]);
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,194 @@
+import java.util.*;
+
+// Best-first top-k search for argmax P(word) * P(typed | word) over the
+// dictionary automaton. A search node is a dictionary prefix aligned with a
+// prefix of the input; its priority is the edit cost so far (from the
+// ErrorModel) plus -ln of the highest word probability reachable from its
+// state, which never overestimates the final score. Finished words are queued
+// with their exact score, so they come off the queue in rank order and the
+// search stops after k of them; no candidate list is built and sorted.
+// Branches with more than maxEdits edits or an edit cost above maxEditCost are
+// dropped, and the search ends early once the rest is far less likely than the
+// best correction found.
+public class NoisyChannelSearch {
+    // Stop once what is left is this much less likely than the best correction (1000x)
+    private static final double BEAM = Math.log(1000);
+    
+    private final DawgWordStore dawg;
+    private final ErrorModel errorModel;
+    private final double logTotal;
+    
+    public NoisyChannelSearch(DawgWordStore dawg, ErrorModel errorModel) {
+        this.dawg = dawg;
+        this.errorModel = errorModel;
+        this.logTotal = Math.log(Math.max(1, dawg.getTotalFrequency()));
+    }
+    
+    // Up to topK words other than the input within maxEdits edits, most probable correction first
+    public List<String> search(String input, int maxEdits, int topK, double maxEditCost) {
+        PriorityQueue<Node> queue = new PriorityQueue<>();
+        Map<Node, Integer> expanded = new HashMap<>();   // fewest edits expanded at each key
+        Set<String> results = new LinkedHashSet<>();
+        int n = input.length();
+        double bound = Double.MAX_VALUE;
+        queue.add(new Node(dawg.root(), 0, 0, 0, 0, null, estimate(dawg.root())));
+        
+        while (!queue.isEmpty() && results.size() < topK) {
+            Node node = queue.poll();
+            if (node.priority > bound) {
+                break;
+            }
+            if (node.state < 0) {
+                // A word is finished once per alignment; the first is its best score
+                String word = node.path.word();
+                if (!word.equals(input) && results.add(word) && results.size() == 1) {
+                    bound = node.priority + BEAM;
+                }
+                continue;
+            }
+            // Reached before at no higher cost; worse unless this path has edits to spare
+            Integer edits = expanded.get(node);
+            if (edits != null && edits <= node.edits) {
+                continue;
+            }
+            expanded.put(node, node.edits);
+            int state = node.state;
+            int position = node.position;
+            
+            if (position == n && node.cost > 0 && dawg.isFinal(state)) {
+                double prior = logTotal - Math.log(Math.max(1, dawg.frequencyAtRank(node.rank)));
+                queue.add(new Node(-1, position, node.rank, node.edits, node.cost, node.path, node.cost + prior));
+            }
+            if (node.edits == maxEdits) {
+                // Only exact matches from here on
+                if (position < n) {
+                    int arc = dawg.findArc(state, input.charAt(position));
+                    if (arc >= 0) {
+                        push(queue, node, arc, position + 1, 0, 0, maxEditCost);
+                    }
+                }
+                continue;
+            }
+            if (position < n) {
+                // Extra typed character
+                double cost = node.cost + errorModel.insertion(input.charAt(position));
+                if (cost <= maxEditCost) {
+                    queue.add(new Node(state, position + 1, node.rank, node.edits + 1, cost, node.path,
+                        cost + estimate(state)));
+                }
+            }
+            for (int arc = dawg.arcStart(state); arc < dawg.arcEnd(state); arc++) {
+                char label = dawg.arcLabel(arc);
+                if (position < n) {
+                    char typed = input.charAt(position);
+                    if (label == typed) {
+                        push(queue, node, arc, position + 1, 0, 0, maxEditCost);
+                    } else {
+                        push(queue, node, arc, position + 1, 1, errorModel.substitution(label, typed), maxEditCost);
+                        
+                        // Intended label + next typed as next + label
+                        if (position + 1 < n && label == input.charAt(position + 1)) {
+                            transpose(queue, node, arc, typed, position + 2,
+                                errorModel.transposition(label, typed), maxEditCost);
+                        }
+                    }
+                }
+                // Intended character not typed
+                push(queue, node, arc, position, 1, errorModel.deletion(label), maxEditCost);
+            }
+        }
+        return new ArrayList<>(results);
+    }
+    
+    // Follows one arc from the node; the path is only built for nodes that are queued
+    private void push(PriorityQueue<Node> queue, Node node, int arc, int position, int edits, double editCost,
+                      double maxEditCost) {
+        double cost = node.cost + editCost;
+        if (cost <= maxEditCost) {
+            int target = dawg.arcTarget(arc);
+            queue.add(new Node(target, position, node.rank + dawg.arcRank(arc), node.edits + edits, cost,
+                new Path(dawg.arcLabel(arc), node.path), cost + estimate(target)));
+        }
+    }
+    
+    private void transpose(PriorityQueue<Node> queue, Node node, int arc, char typed, int position,
+                           double editCost, double maxEditCost) {
+        double cost = node.cost + editCost;
+        int target = dawg.arcTarget(arc);
+        int second = cost <= maxEditCost ? dawg.findArc(target, typed) : -1;
+        if (second >= 0) {
+            int end = dawg.arcTarget(second);
+            queue.add(new Node(end, position, node.rank + dawg.arcRank(arc) + dawg.arcRank(second),
+                node.edits + 1, cost, new Path(typed, new Path(dawg.arcLabel(arc), node.path)),
+                cost + estimate(end)));
+        }
+    }
+    
+    // -ln of the best word probability below the state
+    private double estimate(int state) {
+        return logTotal - Math.log(Math.max(1, dawg.maxFrequency(state)));
+    }
+    
+    // Labels of the dictionary prefix, newest first
+    private static final class Path {
+        final char label;
+        final Path parent;
+        
+        Path(char label, Path parent) {
+            this.label = label;
+            this.parent = parent;
+        }
+        
+        String word() {
+            StringBuilder word = new StringBuilder();
+            for (Path path = this; path != null; path = path.parent) {
+                word.append(path.label);
+            }
+            return word.reverse().toString();
+        }
+    }
+    
+    // A state of -1 marks a finished word. Equality is (prefix rank, state, input
+    // position), which identifies the prefix and the alignment point; the first
+    // of those off the queue has the lowest cost, and a later one is only
+    // expanded if it has used fewer edits, as it may still reach words the
+    // first cannot within maxEdits.
+    private static final class Node implements Comparable<Node> {
+        final int state;
+        final int position;
+        final int rank;
+        final int edits;
+        final double cost;
+        final Path path;
+        final double priority;
+        
+        Node(int state, int position, int rank, int edits, double cost, Path path, double priority) {
+            this.state = state;
+            this.position = position;
+            this.rank = rank;
+            this.edits = edits;
+            this.cost = cost;
+            this.path = path;
+            this.priority = priority;
+        }
+        
+        @Override
+        public int compareTo(Node other) {
+            return Double.compare(priority, other.priority);
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Node)) {
+                return false;
+            }
+            Node node = (Node) other;
+            return state == node.state && position == node.position && rank == node.rank;
+        }
+        
+        @Override
+        public int hashCode() {
+            return (state * 31 + position) * 31 + rank;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+// Word store that adds a small in-heap delta of count changes on top of a base
+// store (usually the memory-mapped index). Both parts are immutable; an update
+// builds a new overlay sharing the unchanged parts, so readers never see it
+// half applied. A word whose count drops to 0 or below is no longer in the
+// dictionary.
+//
+// The delta is kept in layers, oldest first, and a word's change is the sum of
+// its entries. An update adds its changes as a new layer, which absorbs the
+// layers before it while they are no larger than it; every change is thus
+// copied O(log n) times over n changes and a lookup reads O(log n) layers.
+public class OverlayWordStore implements WordStore {
+    private final WordStore base;
+    private final List<Map<String, Integer>> layers;
+    private int changedWords;
+    private int size;
+    private long totalFrequency;
+    
+    public OverlayWordStore(WordStore base, Map<String, Integer> delta) {
+        this(new OverlayWordStore(base, Collections.emptyList(), 0, base.size(), base.getTotalFrequency()), delta);
+    }
+    
+    private OverlayWordStore(OverlayWordStore previous, Map<String, Integer> changes) {
+        this(previous.base, merge(previous.layers, changes), previous.changedWords, previous.size,
+            previous.totalFrequency);
+        for (String word : changes.keySet()) {
+            if (previous.change(word) == null) {
+                changedWords++;
+            }
+            boolean before = previous.contains(word);
+            boolean after = contains(word);
+            totalFrequency += getFrequency(word) - previous.getFrequency(word);
+            if (before != after) {
+                size += after ? 1 : -1;
+            }
+        }
+    }
+    
+    private OverlayWordStore(WordStore base, List<Map<String, Integer>> layers, int changedWords,
+                             int size, long totalFrequency) {
+        this.base = base;
+        this.layers = layers;
+        this.changedWords = changedWords;
+        this.size = size;
+        this.totalFrequency = totalFrequency;
+    }
+    
+    // A new overlay over the same base with the changes added to the delta. Only
+    // the changed words and the layers they absorb are copied.
+    public OverlayWordStore with(Map<String, Integer> changes) {
+        return new OverlayWordStore(this, changes);
+    }
+    
+    private static List<Map<String, Integer>> merge(List<Map<String, Integer>> layers, Map<String, Integer> changes) {
+        List<Map<String, Integer>> merged = new ArrayList<>(layers);
+        Map<String, Integer> layer = new HashMap<>(changes);
+        while (!merged.isEmpty() && merged.get(merged.size() - 1).size() <= layer.size()) {
+            Map<String, Integer> older = new HashMap<>(merged.remove(merged.size() - 1));
+            layer.forEach((word, change) -> older.merge(word, change, Integer::sum));
+            layer = older;
+        }
+        merged.add(layer);
+        return merged;
+    }
+    
+    // The word's change over all layers, null if the delta does not have it
+    private Integer change(String word) {
+        Integer total = null;
+        for (Map<String, Integer> layer : layers) {
+            Integer change = layer.get(word);
+            if (change != null) {
+                total = total == null ? change : total + change;
+            }
+        }
+        return total;
+    }
+    
+    @Override
+    public int getFrequency(String word) {
+        Integer change = change(word);
+        int frequency = base.getFrequency(word);
+        return change == null ? frequency : Math.max(0, frequency + change);
+    }
+    
+    @Override
+    public boolean contains(String word) {
+        Integer change = change(word);
+        if (change == null) {
+            return base.contains(word);
+        }
+        return base.getFrequency(word) + change > 0;
+    }
+    
+    @Override
+    public int[] lookup(List<String> words) {
+        int[] frequencies = base.lookup(words);
+        for (int i = 0; i < frequencies.length; i++) {
+            Integer change = change(words.get(i));
+            if (change != null) {
+                int frequency = Math.max(0, frequencies[i]) + change;
+                frequencies[i] = frequency > 0 ? frequency : -1;
+            }
+        }
+        return frequencies;
+    }
+    
+    @Override
+    public boolean isRemote() {
+        return base.isRemote();
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public long getTotalFrequency() {
+        return totalFrequency;
+    }
+    
+    @Override
+    public void forEach(ObjIntConsumer<String> action) {
+        base.forEach((word, frequency) -> {
+            Integer change = change(word);
+            if (change == null) {
+                action.accept(word, frequency);
+            } else if (frequency + change > 0) {
+                action.accept(word, frequency + change);
+            }
+        });
+        for (String word : getAddedWords()) {
+            action.accept(word, change(word));
+        }
+    }
+    
+    public WordStore getBase() {
+        return base;
+    }
+    
+    // Number of distinct words the delta changes
+    public int getChangedWordCount() {
+        return changedWords;
+    }
+    
+    // Words the delta brings in that the base does not have
+    public Set<String> getAddedWords() {
+        Set<String> seen = new HashSet<>();
+        Set<String> added = new HashSet<>();
+        for (Map<String, Integer> layer : layers) {
+            for (String word : layer.keySet()) {
+                if (seen.add(word) && !base.contains(word) && change(word) > 0) {
+                    added.add(word);
+                }
+            }
+        }
+        return added;
+    }
+}
@@ -0,0 +1,271 @@
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.ObjIntConsumer;
+
+// Serves one shard of the vocabulary over a plain socket, for ShardedWordStore.
+// Each connection carries any number of requests, one after the other:
+//   LOOKUP  int n, n x UTF word     -> n x int (frequency, -1 if absent); n <= MAX_LOOKUP_WORDS
+//   INFO                            -> int size, long total frequency
+//   WORDS                           -> (true, UTF word, int frequency)* false
+//
+//   java ShardServer split data/telugu_index.dat 4      (writes .shard0 ... .shard3)
+//   java ShardServer -port 9100 -model data/telugu_index.dat.shard0
+public class ShardServer implements Closeable {
+    private static final int LOOKUP = 1;
+    private static final int INFO = 2;
+    private static final int WORDS = 3;
+    
+    // Words per LOOKUP request; a larger count is a broken or hostile client.
+    // Clients split bigger batches into several requests.
+    public static final int MAX_LOOKUP_WORDS = 1 << 16;
+    
+    private final WordStore store;
+    private final ServerSocket socket;
+    private final ExecutorService connections = Executors.newCachedThreadPool(
+        CandidateBatcher.daemonThreads("shard-connection"));
+    
+    public ShardServer(WordStore store, int port) throws IOException {
+        this.store = store;
+        this.socket = new ServerSocket(port);
+    }
+    
+    public void start() {
+        Thread acceptor = CandidateBatcher.daemonThreads("shard-acceptor").newThread(this::acceptLoop);
+        acceptor.start();
+    }
+    
+    public int getPort() {
+        return socket.getLocalPort();
+    }
+    
+    private void acceptLoop() {
+        while (!socket.isClosed()) {
+            try {
+                Socket client = socket.accept();
+                client.setTcpNoDelay(true);
+                connections.execute(() -> serve(client));
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    System.out.println("Error accepting shard connection: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private void serve(Socket client) {
+        try (Socket open = client;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(open.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(open.getOutputStream()))) {
+            while (true) {
+                int op = in.read();
+                if (op < 0) {
+                    return;
+                }
+                switch (op) {
+                    case LOOKUP:
+                        int count = in.readInt();
+                        if (count < 0 || count > MAX_LOOKUP_WORDS) {
+                            throw new IOException("Lookup of " + count + " words");
+                        }
+                        List<String> words = new ArrayList<>(count);
+                        for (int i = 0; i < count; i++) {
+                            words.add(in.readUTF());
+                        }
+                        for (int frequency : store.lookup(words)) {
+                            out.writeInt(frequency);
+                        }
+                        break;
+                    case INFO:
+                        out.writeInt(store.size());
+                        out.writeLong(store.getTotalFrequency());
+                        break;
+                    case WORDS:
+                        IOException[] failure = new IOException[1];
+                        store.forEach((word, frequency) -> {
+                            try {
+                                out.writeBoolean(true);
+                                out.writeUTF(word);
+                                out.writeInt(frequency);
+                            } catch (IOException e) {
+                                failure[0] = e;
+                            }
+                        });
+                        if (failure[0] != null) {
+                            throw failure[0];
+                        }
+                        out.writeBoolean(false);
+                        break;
+                    default:
+                        throw new IOException("Unknown request " + op);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Client went away or sent garbage; its connection is dropped
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        connections.shutdownNow();
+    }
+    
+    // Client side of one shard. Connections are pooled: each request takes an
+    // idle one (or opens one), so concurrent lookups do not queue behind each other.
+    public static ShardedWordStore.Shard connect(String host, int port) {
+        return new RemoteShard(new InetSocketAddress(host, port));
+    }
+    
+    private static final class RemoteShard implements ShardedWordStore.Shard {
+        private final InetSocketAddress address;
+        private final ConcurrentLinkedQueue<Connection> idle = new ConcurrentLinkedQueue<>();
+        
+        RemoteShard(InetSocketAddress address) {
+            this.address = address;
+        }
+        
+        private interface Call<T> {
+            T run(DataInputStream in, DataOutputStream out) throws IOException;
+        }
+        
+        private <T> T call(Call<T> call) throws IOException {
+            Connection connection = idle.poll();
+            if (connection == null) {
+                connection = new Connection(address);
+            }
+            try {
+                T result = call.run(connection.in, connection.out);
+                idle.add(connection);
+                return result;
+            } catch (IOException | RuntimeException e) {
+                // The stream may be half read; never reuse it
+                connection.close();
+                throw e;
+            }
+        }
+        
+        @Override
+        public int[] lookup(List<String> words) throws IOException {
+            return call((in, out) -> {
+                int[] frequencies = new int[words.size()];
+                for (int start = 0; start < frequencies.length; start += MAX_LOOKUP_WORDS) {
+                    int end = Math.min(frequencies.length, start + MAX_LOOKUP_WORDS);
+                    out.write(LOOKUP);
+                    out.writeInt(end - start);
+                    for (String word : words.subList(start, end)) {
+                        out.writeUTF(word);
+                    }
+                    out.flush();
+                    for (int i = start; i < end; i++) {
+                        frequencies[i] = in.readInt();
+                    }
+                }
+                return frequencies;
+            });
+        }
+        
+        @Override
+        public int size() throws IOException {
+            return call((in, out) -> {
+                out.write(INFO);
+                out.flush();
+                int size = in.readInt();
+                in.readLong();
+                if (size < 0) {
+                    throw new IOException("Shard reported " + size + " words");
+                }
+                return size;
+            });
+        }
+        
+        @Override
+        public long getTotalFrequency() throws IOException {
+            return call((in, out) -> {
+                out.write(INFO);
+                out.flush();
+                in.readInt();
+                long total = in.readLong();
+                if (total < 0) {
+                    throw new IOException("Shard reported a total frequency of " + total);
+                }
+                return total;
+            });
+        }
+        
+        @Override
+        public void forEach(ObjIntConsumer<String> action) throws IOException {
+            call((in, out) -> {
+                out.write(WORDS);
+                out.flush();
+                while (in.readBoolean()) {
+                    action.accept(in.readUTF(), in.readInt());
+                }
+                return null;
+            });
+        }
+        
+        @Override
+        public void close() {
+            Connection connection;
+            while ((connection = idle.poll()) != null) {
+                connection.close();
+            }
+        }
+    }
+    
+    private static final class Connection {
+        final Socket socket;
+        final DataInputStream in;
+        final DataOutputStream out;
+        
+        Connection(InetSocketAddress address) throws IOException {
+            this.socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(address, 5000);
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+        
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("split")) {
+            LanguageModel model = new LanguageModel();
+            model.loadIndex(args[1]);
+            for (String path : ShardedWordStore.writeShards(model.getWordStore(), Integer.parseInt(args[2]), args[1])) {
+                System.out.println("Wrote " + path);
+            }
+            return;
+        }
+        int port = 9100;
+        String modelPath = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-port": port = Integer.parseInt(args[i + 1]); break;
+                case "-model": modelPath = args[i + 1]; break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (modelPath == null) {
+            System.out.println("Usage: java ShardServer -port 9100 -model index.shard0");
+            System.out.println("       java ShardServer split index.dat shards");
+            return;
+        }
+        LanguageModel model = new LanguageModel();
+        model.loadIndex(modelPath);
+        ShardServer server = new ShardServer(model.getWordStore(), port);
+        server.start();
+        System.out.println("Shard " + modelPath + " (" + model.getWordStore().size() + " words) listening on port "
+            + server.getPort());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,245 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.ObjIntConsumer;
+
+// Word store partitioned by word hash across shards, each holding the words
+// with shardOf(word) == its number. A batch lookup is split per shard and
+// sent to all of them at once (scatter), then the answers are put back in
+// order (gather): one round trip per shard per batch, whatever its size.
+//
+// Shards are ShardServer processes reached over sockets (ShardServer.connect)
+// or in-process LocalShards, e.g. for tests. Counts are read once when the
+// store is created; shard errors surface as UncheckedIOException.
+public class ShardedWordStore implements WordStore, Closeable {
+    private static final ExecutorService SCATTER = Executors.newCachedThreadPool(
+        CandidateBatcher.daemonThreads("shard-lookup"));
+    
+    private final Shard[] shards;
+    private final int size;
+    private final long totalFrequency;
+    
+    // One partition of the vocabulary
+    public interface Shard extends Closeable {
+        // Frequency of each word, -1 for words the shard does not have
+        int[] lookup(List<String> words) throws IOException;
+        
+        int size() throws IOException;
+        
+        long getTotalFrequency() throws IOException;
+        
+        void forEach(ObjIntConsumer<String> action) throws IOException;
+    }
+    
+    public ShardedWordStore(List<? extends Shard> shards) throws IOException {
+        this.shards = shards.toArray(new Shard[0]);
+        long words = 0;
+        long total = 0;
+        for (Shard shard : this.shards) {
+            words += shard.size();
+            total += shard.getTotalFrequency();
+        }
+        if (words > Integer.MAX_VALUE || total < 0) {
+            throw new IOException("Shards report " + words + " words with a total frequency of " + total);
+        }
+        this.size = (int) words;
+        this.totalFrequency = total;
+    }
+    
+    // ShardServer processes in the order the index was split, e.g. "host1:9100,host2:9100"
+    public static ShardedWordStore connect(String addresses) throws IOException {
+        List<Shard> shards = new ArrayList<>();
+        try {
+            for (String address : addresses.split(",")) {
+                int colon = address.lastIndexOf(':');
+                if (colon <= 0) {
+                    throw new IOException("Expected host:port, got " + address);
+                }
+                shards.add(ShardServer.connect(address.substring(0, colon).trim(),
+                    Integer.parseInt(address.substring(colon + 1).trim())));
+            }
+            ShardedWordStore store = new ShardedWordStore(shards);
+            System.out.println("Dictionary: " + store.size() + " words on " + store.getShardCount() + " shards");
+            return store;
+        } catch (IOException | RuntimeException e) {
+            for (Shard shard : shards) {
+                shard.close();
+            }
+            throw e;
+        }
+    }
+    
+    // In-process shards holding a partition of the store each
+    public static ShardedWordStore local(WordStore store, int shardCount) {
+        List<LocalShard> shards = new ArrayList<>();
+        for (FrequencyTable part : partition(store, shardCount)) {
+            shards.add(new LocalShard(part));
+        }
+        try {
+            return new ShardedWordStore(shards);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);   // local shards do not throw
+        }
+    }
+    
+    // Writes one binary index per shard, path + ".shard0" and so on, for ShardServer
+    public static List<String> writeShards(WordStore store, int shardCount, String path) throws IOException {
+        List<String> paths = new ArrayList<>();
+        FrequencyTable[] parts = partition(store, shardCount);
+        for (int shard = 0; shard < parts.length; shard++) {
+            String shardPath = path + ".shard" + shard;
+            MappedWordStore.write(parts[shard], shardPath);
+            paths.add(shardPath);
+        }
+        return paths;
+    }
+    
+    private static FrequencyTable[] partition(WordStore store, int shardCount) {
+        FrequencyTable[] parts = new FrequencyTable[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            parts[i] = new FrequencyTable(store.size() / shardCount + 16);
+        }
+        store.forEach((word, frequency) -> parts[shardOf(word, shardCount)].add(word, frequency));
+        return parts;
+    }
+    
+    public static int shardOf(String word, int shardCount) {
+        return (int) ((MappedWordStore.hash(word) >>> 1) % shardCount);
+    }
+    
+    @Override
+    public int[] lookup(List<String> words) {
+        int[] frequencies = new int[words.size()];
+        if (words.isEmpty()) {
+            return frequencies;
+        }
+        // Positions of the words going to each shard
+        List<List<Integer>> positions = new ArrayList<>();
+        for (int i = 0; i < shards.length; i++) {
+            positions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < frequencies.length; i++) {
+            positions.get(shardOf(words.get(i), shards.length)).add(i);
+        }
+        
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        int last = -1;
+        for (int shard = 0; shard < shards.length; shard++) {
+            if (positions.get(shard).isEmpty()) {
+                continue;
+            }
+            if (last >= 0) {
+                int pending = last;
+                requests.add(CompletableFuture.runAsync(
+                    () -> ask(pending, positions.get(pending), words, frequencies), SCATTER));
+            }
+            last = shard;
+        }
+        // The last shard is asked on this thread, so a single-shard batch needs no hand-off
+        ask(last, positions.get(last), words, frequencies);
+        for (CompletableFuture<Void> request : requests) {
+            try {
+                request.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof UncheckedIOException ? (UncheckedIOException) e.getCause() : e;
+            }
+        }
+        return frequencies;
+    }
+    
+    private void ask(int shard, List<Integer> positions, List<String> words, int[] frequencies) {
+        List<String> batch = new ArrayList<>(positions.size());
+        for (int position : positions) {
+            batch.add(words.get(position));
+        }
+        try {
+            int[] answers = shards[shard].lookup(batch);
+            for (int i = 0; i < answers.length; i++) {
+                frequencies[positions.get(i)] = answers[i];
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Shard " + shard + " lookup failed", e);
+        }
+    }
+    
+    @Override
+    public int getFrequency(String word) {
+        return Math.max(0, lookup(Collections.singletonList(word))[0]);
+    }
+    
+    @Override
+    public boolean contains(String word) {
+        return lookup(Collections.singletonList(word))[0] >= 0;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public long getTotalFrequency() {
+        return totalFrequency;
+    }
+    
+    // Streams every shard in turn; this reads the whole vocabulary
+    @Override
+    public void forEach(ObjIntConsumer<String> action) {
+        for (int shard = 0; shard < shards.length; shard++) {
+            try {
+                shards[shard].forEach(action);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Shard " + shard + " listing failed", e);
+            }
+        }
+    }
+    
+    @Override
+    public boolean isRemote() {
+        return true;
+    }
+    
+    public int getShardCount() {
+        return shards.length;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        for (Shard shard : shards) {
+            shard.close();
+        }
+    }
+    
+    // A shard in this process, over any word store
+    public static final class LocalShard implements Shard {
+        private final WordStore store;
+        
+        public LocalShard(WordStore store) {
+            this.store = store;
+        }
+        
+        @Override
+        public int[] lookup(List<String> words) {
+            return store.lookup(words);
+        }
+        
+        @Override
+        public int size() {
+            return store.size();
+        }
+        
+        @Override
+        public long getTotalFrequency() {
+            return store.getTotalFrequency();
+        }
+        
+        @Override
+        public void forEach(ObjIntConsumer<String> action) {
+            store.forEach(action);
+        }
+        
+        @Override
+        public void close() {
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,159 @@
+import java.util.*;
+
+// Immutable outcome of checking one text: its tokens (with offsets into the
+// text), the misspelled ones with their ranked candidates, and the text with
+// every misspelling replaced by its top candidate. Safe to share across threads.
+public final class SpellCheckResult {
+    private final String text;
+    private final List<Token> tokens;
+    private final List<SpellingError> errors;
+    private final String correctedText;
+    private final Map<String, List<String>> candidatesByWord;
+    private final long modelVersion;
+    
+    SpellCheckResult(String text, List<Token> tokens, List<SpellingError> errors, long modelVersion) {
+        this.text = text;
+        this.modelVersion = modelVersion;
+        this.tokens = Collections.unmodifiableList(new ArrayList<>(tokens));
+        this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+        
+        Map<String, List<String>> byWord = new LinkedHashMap<>();
+        for (SpellingError error : errors) {
+            byWord.putIfAbsent(error.getWord(), error.getCandidates());
+        }
+        this.candidatesByWord = Collections.unmodifiableMap(byWord);
+        
+        // Splice suggestions in by offset so spacing and punctuation stay as written
+        StringBuilder corrected = new StringBuilder(text.length());
+        int previousEnd = 0;
+        for (SpellingError error : errors) {
+            String suggestion = error.getSuggestion();
+            if (suggestion != null) {
+                corrected.append(text, previousEnd, error.getStart()).append(suggestion);
+                previousEnd = error.getEnd();
+            }
+        }
+        corrected.append(text, previousEnd, text.length());
+        this.correctedText = corrected.toString();
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    public List<Token> getTokens() {
+        return tokens;
+    }
+    
+    // Misspelled tokens in text order (a repeated word appears once per occurrence)
+    public List<SpellingError> getErrors() {
+        return errors;
+    }
+    
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+    
+    public String getCorrectedText() {
+        return correctedText;
+    }
+    
+    // Distinct misspelled words, in order of first occurrence, with their candidates
+    public Map<String, List<String>> getCandidatesByWord() {
+        return candidatesByWord;
+    }
+    
+    // LanguageModel.getVersion() of the model the text was checked against
+    public long getModelVersion() {
+        return modelVersion;
+    }
+    
+    // {"text", "correctedText", "modelVersion", "tokens", "errors": [{"word", "start", "end", "candidates"}]}
+    public Map<String, Object> toJson() {
+        List<Map<String, Object>> errorList = new ArrayList<>(errors.size());
+        for (SpellingError error : errors) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("word", error.getWord());
+            entry.put("start", error.getStart());
+            entry.put("end", error.getEnd());
+            entry.put("candidates", error.getCandidates());
+            errorList.add(entry);
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("text", text);
+        json.put("correctedText", correctedText);
+        json.put("modelVersion", modelVersion);
+        json.put("tokens", tokens.size());
+        json.put("errors", errorList);
+        return json;
+    }
+    
+    public static final class Token {
+        private final String word;
+        private final int start;
+        private final int end;
+        
+        Token(String word, int start, int end) {
+            this.word = word;
+            this.start = start;
+            this.end = end;
+        }
+        
+        public String getWord() {
+            return word;
+        }
+        
+        public int getStart() {
+            return start;
+        }
+        
+        public int getEnd() {
+            return end;
+        }
+        
+        @Override
+        public String toString() {
+            return word + "@" + start;
+        }
+    }
+    
+    public static final class SpellingError {
+        private final Token token;
+        private final List<String> candidates;
+        
+        SpellingError(Token token, List<String> candidates) {
+            this.token = token;
+            this.candidates = Collections.unmodifiableList(new ArrayList<>(candidates));
+        }
+        
+        public Token getToken() {
+            return token;
+        }
+        
+        public String getWord() {
+            return token.getWord();
+        }
+        
+        public int getStart() {
+            return token.getStart();
+        }
+        
+        public int getEnd() {
+            return token.getEnd();
+        }
+        
+        // Ranked best first; empty when nothing close enough was found
+        public List<String> getCandidates() {
+            return candidates;
+        }
+        
+        public String getSuggestion() {
+            return candidates.isEmpty() ? null : candidates.get(0);
+        }
+        
+        @Override
+        public String toString() {
+            return token + " -> " + candidates;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,456 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Spell checking over HTTP on the JDK's built-in server. The model is loaded
+// once and shared; each request runs on its own virtual thread (a bounded pool
+// on JDKs without them) and candidate lookups of concurrent requests are
+// micro-batched by a CandidateBatcher, so a misspelling in flight is searched once.
+//
+// Endpoints:
+//   POST /check        {"text": "..."} or a text/plain body  -> result object
+//   POST /check/batch  {"texts": ["...", ...]}               -> {"results": [...]}
+//   POST /words        {"words": ["...", ...]} or {"words": {"word": count}} -> adds them to the model (admin)
+//   POST /reload       reloads the startup model file and switches to it (admin)
+//   GET  /health       model, load and batching counters
+//   GET  /metrics      stage latencies, word/candidate/cache counters and rates
+//                      (collected when started with -metrics)
+//
+// At most maxConcurrentRequests checks run at a time; a request that cannot get
+// a slot within acquireTimeoutMillis is answered 503 with Retry-After.
+// Admin endpoints need "Authorization: Bearer <adminToken>" when the server
+// has a token and only answer clients on the same host when it has none.
+public class SpellCheckServer implements AutoCloseable {
+    private final TeluguSpellChecker checker;
+    private final Config config;
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final boolean virtualThreads;
+    private final CandidateBatcher batcher;
+    private final Semaphore permits;
+    private final AutoCloseable metricsReporter;
+    
+    // Largest count one /words request may add to a word
+    private static final int MAX_COUNT = 1_000_000;
+    
+    private final LongAdder served = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    
+    public static class Config {
+        public int port = 8080;
+        public String modelPath = "data/telugu_index.dat";
+        public int maxConcurrentRequests = 64;
+        public long acquireTimeoutMillis = 100;
+        public int maxBodyBytes = 1 << 20;
+        public int maxBatchTexts = 256;
+        public long batchWindowMicros = 500;
+        public int maxBatchWords = 512;
+        public int workerThreads = Runtime.getRuntime().availableProcessors();
+        public int backlog = 128;
+        public int metricsSeconds = -1;
+        public long hotTierBytes;
+        public String shards;
+        public String adminToken;
+        
+        // -port 8080 -model path -maxConcurrent 64 -acquireTimeout 100 -maxBody 1048576
+        // -maxBatchTexts 256 -batchWindow 500 (micros) -maxBatchWords 512 -workers N
+        // -metrics S (collect metrics; print a snapshot every S seconds if S > 0)
+        // -hotTierMB M (keep the most frequent words in M MB of heap, the rest mapped)
+        // -shards host:port,host:port (look words up in ShardServer processes instead)
+        // -adminToken T (required by the admin endpoints, which are local-only without it)
+        public static Config fromArgs(String[] args) {
+            Config config = new Config();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "-port": config.port = Integer.parseInt(value); break;
+                    case "-model": config.modelPath = value; break;
+                    case "-maxConcurrent": config.maxConcurrentRequests = Integer.parseInt(value); break;
+                    case "-acquireTimeout": config.acquireTimeoutMillis = Long.parseLong(value); break;
+                    case "-maxBody": config.maxBodyBytes = Integer.parseInt(value); break;
+                    case "-maxBatchTexts": config.maxBatchTexts = Integer.parseInt(value); break;
+                    case "-batchWindow": config.batchWindowMicros = Long.parseLong(value); break;
+                    case "-maxBatchWords": config.maxBatchWords = Integer.parseInt(value); break;
+                    case "-workers": config.workerThreads = Integer.parseInt(value); break;
+                    case "-metrics": config.metricsSeconds = Integer.parseInt(value); break;
+                    case "-hotTierMB": config.hotTierBytes = Long.parseLong(value) << 20; break;
+                    case "-shards": config.shards = value; break;
+                    case "-adminToken": config.adminToken = value; break;
+                    default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            return config;
+        }
+    }
+    
+    public SpellCheckServer(TeluguSpellChecker checker, Config config) throws IOException {
+        this.checker = checker;
+        this.config = config;
+        this.permits = new Semaphore(config.maxConcurrentRequests);
+        this.batcher = new CandidateBatcher(checker.getCandidateGenerator(), config.batchWindowMicros,
+            config.maxBatchWords, config.workerThreads);
+        
+        ExecutorService executor = virtualThreadExecutor();
+        this.virtualThreads = executor != null;
+        // Without virtual threads, leave room beyond the check slots so that
+        // rejections and health checks are still answered under full load
+        this.requestExecutor = executor != null ? executor : Executors.newFixedThreadPool(
+            config.maxConcurrentRequests * 2 + 4, CandidateBatcher.daemonThreads("spellcheck-http"));
+        
+        this.server = HttpServer.create(new InetSocketAddress(config.port), config.backlog);
+        server.createContext("/check", exchange -> handle(exchange, "POST", true, this::check));
+        server.createContext("/check/batch", exchange -> handle(exchange, "POST", true, this::checkBatch));
+        server.createContext("/words", exchange -> handle(exchange, "POST", true, admin(exchange, this::learnWords)));
+        server.createContext("/reload", exchange -> handle(exchange, "POST", false, admin(exchange, this::reload)));
+        server.createContext("/health", exchange -> handle(exchange, "GET", false, body -> health()));
+        server.createContext("/metrics", exchange -> handle(exchange, "GET", false,
+            body -> Metrics.snapshot().toMap(null)));
+        server.setExecutor(requestExecutor);
+        
+        if (config.metricsSeconds >= 0) {
+            Metrics.setEnabled(true);
+        }
+        this.metricsReporter = config.metricsSeconds > 0
+            ? Metrics.startReporter(config.metricsSeconds, false, System.out) : null;
+    }
+    
+    // Executors.newVirtualThreadPerTaskExecutor() where the running JDK has it
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+    
+    public void start() {
+        server.start();
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+        batcher.close();
+        requestExecutor.shutdown();
+        if (metricsReporter != null) {
+            try {
+                metricsReporter.close();
+            } catch (Exception e) {
+                // Only stops a timer
+            }
+        }
+    }
+    
+    private interface Endpoint {
+        Object respond(Request request);
+    }
+    
+    private static final class Request {
+        final String body;
+        final String contentType;
+        
+        Request(String body, String contentType) {
+            this.body = body;
+            this.contentType = contentType;
+        }
+    }
+    
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        
+        final int status;
+        
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+    
+    // An endpoint that changes the model: the request is authorized before it runs
+    private Endpoint admin(HttpExchange exchange, Endpoint endpoint) {
+        return request -> {
+            authorize(exchange);
+            return endpoint.respond(request);
+        };
+    }
+    
+    private void authorize(HttpExchange exchange) {
+        if (config.adminToken == null) {
+            if (!exchange.getRemoteAddress().getAddress().isLoopbackAddress()) {
+                throw new HttpError(403, "Only allowed from localhost (start the server with -adminToken)");
+            }
+            return;
+        }
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        byte[] expected = ("Bearer " + config.adminToken).getBytes(StandardCharsets.UTF_8);
+        if (header == null || !MessageDigest.isEqual(header.getBytes(StandardCharsets.UTF_8), expected)) {
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+            throw new HttpError(401, "Missing or wrong admin token");
+        }
+    }
+    
+    private void handle(HttpExchange exchange, String method, boolean limited, Endpoint endpoint) {
+        try {
+            if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+                throw new HttpError(404, "Not found");
+            }
+            if (!exchange.getRequestMethod().equals(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                throw new HttpError(405, "Use " + method);
+            }
+            if (!limited) {
+                send(exchange, 200, endpoint.respond(new Request(readBody(exchange), null)));
+                return;
+            }
+            if (!permits.tryAcquire(config.acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                throw new HttpError(503, "Server busy");
+            }
+            try {
+                Request request = new Request(readBody(exchange),
+                    exchange.getRequestHeaders().getFirst("Content-Type"));
+                Object response = endpoint.respond(request);
+                long started = Metrics.start();
+                send(exchange, 200, response);
+                // The output stage is the last stage of a check; other answers are not timed
+                if (exchange.getHttpContext().getPath().startsWith("/check")) {
+                    Metrics.record(Metrics.Stage.OUTPUT, started);
+                }
+                served.increment();
+            } finally {
+                permits.release();
+            }
+        } catch (HttpError e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Server shutting down");
+        } catch (Exception e) {
+            failed.increment();
+            System.out.println("Error handling " + exchange.getRequestURI() + ": " + e);
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+                if (body.size() > config.maxBodyBytes) {
+                    throw new HttpError(413, "Body larger than " + config.maxBodyBytes + " bytes");
+                }
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+    
+    private Object check(Request request) {
+        String text;
+        if (request.contentType != null && request.contentType.startsWith("text/plain")) {
+            text = request.body;
+        } else {
+            text = stringField(jsonObject(request.body), "text");
+        }
+        return checker.check(text, batcher).toJson();
+    }
+    
+    private Object checkBatch(Request request) {
+        Object texts = jsonObject(request.body).get("texts");
+        if (!(texts instanceof List)) {
+            throw new IllegalArgumentException("Expected \"texts\" to be an array of strings");
+        }
+        List<?> list = (List<?>) texts;
+        if (list.size() > config.maxBatchTexts) {
+            throw new HttpError(413, "At most " + config.maxBatchTexts + " texts per batch");
+        }
+        for (Object text : list) {
+            if (!(text instanceof String)) {
+                throw new IllegalArgumentException("Expected \"texts\" to be an array of strings");
+            }
+        }
+        
+        // The misspellings of all texts go out as one lookup
+        List<String> batch = new ArrayList<>(list.size());
+        for (Object text : list) {
+            batch.add((String) text);
+        }
+        List<Object> results = new ArrayList<>(list.size());
+        for (SpellCheckResult result : checker.checkAll(batch, batcher)) {
+            results.add(result.toJson());
+        }
+        return Collections.singletonMap("results", results);
+    }
+    
+    // Accepted corrections and new words; each listed word counts once. Words
+    // are only ever added: removing them is left to rebuilding the index.
+    private Object learnWords(Request request) {
+        Object words = jsonObject(request.body).get("words");
+        Map<String, Integer> counts = new HashMap<>();
+        if (words instanceof List) {
+            for (Object word : (List<?>) words) {
+                if (!(word instanceof String) || ((String) word).trim().isEmpty()) {
+                    throw new IllegalArgumentException("Expected \"words\" to hold non-empty strings");
+                }
+                counts.merge(((String) word).trim(), 1, Integer::sum);
+            }
+        } else if (words instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) words).entrySet()) {
+                String word = ((String) entry.getKey()).trim();
+                Object count = entry.getValue();
+                if (word.isEmpty() || !(count instanceof Long) || (Long) count < 1 || (Long) count > MAX_COUNT) {
+                    throw new IllegalArgumentException(
+                        "Expected \"words\" to map words to counts from 1 to " + MAX_COUNT);
+                }
+                counts.merge(word, (int) (long) (Long) count, (a, b) -> Math.min(MAX_COUNT, a + b));
+            }
+        } else {
+            throw new IllegalArgumentException("Expected \"words\" to be an array or an object");
+        }
+        checker.learnWords(counts);
+        
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("updated", counts.size());
+        response.put("words", checker.getLanguageModel().getWordStore().size());
+        response.put("modelVersion", checker.getLanguageModel().getVersion());
+        return response;
+    }
+    
+    // Checks keep being served from the old model while the new one loads. Only
+    // the model file the server was started with is reloaded (e.g. after it was
+    // replaced); clients cannot point the server at other files.
+    private Object reload(Request request) {
+        String modelPath = config.modelPath;
+        if (!request.body.trim().isEmpty()) {
+            Map<?, ?> body = jsonObject(request.body);
+            if (body.containsKey("model") && !stringField(body, "model").equals(modelPath)) {
+                throw new IllegalArgumentException("Only the configured model " + modelPath + " can be reloaded");
+            }
+        }
+        try {
+            int generation = checker.reloadModel(modelPath).get();
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("generation", generation);
+            response.put("model", modelPath);
+            response.put("words", checker.getLanguageModel().getWordStore().size());
+            response.put("modelVersion", checker.getLanguageModel().getVersion());
+            return response;
+        } catch (ExecutionException e) {
+            throw new IllegalArgumentException("Could not load " + modelPath + ": " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HttpError(503, "Interrupted while reloading");
+        }
+    }
+    
+    private Object health() {
+        LanguageModel model = checker.getLanguageModel();
+        CandidateBatcher.Stats batching = batcher.getStats();
+        SuggestionCache cache = checker.getCandidateGenerator().getSuggestionCache();
+        
+        Map<String, Object> health = new LinkedHashMap<>();
+        health.put("status", "ok");
+        health.put("words", model.getWordStore().size());
+        health.put("modelVersion", model.getVersion());
+        health.put("modelGeneration", checker.getModelRegistry().getGeneration());
+        health.put("modelSource", checker.getModelRegistry().getSource());
+        health.put("virtualThreads", virtualThreads);
+        health.put("inFlight", config.maxConcurrentRequests - permits.availablePermits());
+        health.put("maxConcurrentRequests", config.maxConcurrentRequests);
+        health.put("served", served.sum());
+        health.put("rejected", rejected.sum());
+        health.put("failed", failed.sum());
+        Map<String, Object> batchStats = new LinkedHashMap<>();
+        batchStats.put("requestedWords", batching.requested);
+        batchStats.put("sharedWords", batching.shared);
+        batchStats.put("batches", batching.batches);
+        batchStats.put("queued", batching.queued);
+        health.put("batching", batchStats);
+        if (cache != null) {
+            SuggestionCache.Stats stats = cache.getStats();
+            Map<String, Object> cacheStats = new LinkedHashMap<>();
+            cacheStats.put("hits", stats.hits);
+            cacheStats.put("misses", stats.misses);
+            cacheStats.put("size", stats.size);
+            health.put("cache", cacheStats);
+        }
+        return health;
+    }
+    
+    private static Map<?, ?> jsonObject(String body) {
+        Object json = Json.parse(body);
+        if (!(json instanceof Map)) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return (Map<?, ?>) json;
+    }
+    
+    private static String stringField(Map<?, ?> object, String name) {
+        Object value = object.get(name);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Expected \"" + name + "\" to be a string");
+        }
+        return (String) value;
+    }
+    
+    private static void send(HttpExchange exchange, int status, Object response) throws IOException {
+        byte[] body = Json.write(response).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+    
+    private static void sendError(HttpExchange exchange, int status, String message) {
+        try {
+            send(exchange, status, Collections.singletonMap("error", message));
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        Config config = Config.fromArgs(args);
+        TeluguSpellChecker checker = new TeluguSpellChecker();
+        // With shards the model path only places the delta log; /reload connects
+        // to the shards again
+        checker.getLanguageModel().setHotTierBudget(config.hotTierBytes);
+        checker.getLanguageModel().setShards(config.shards);
+        // No sample-data fallback: a service answering from a stand-in dictionary would look healthy
+        try {
+            checker.initializeFromIndex(config.modelPath);
+        } catch (IOException e) {
+            System.out.println("Error loading model " + (config.shards != null ? config.shards : config.modelPath)
+                + ": " + e);
+            System.exit(1);
+        }
+        
+        SpellCheckServer server = new SpellCheckServer(checker, config);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.out.println("Spell check service listening on http://localhost:" + server.getPort()
+            + " (" + (server.virtualThreads ? "virtual threads" : "thread pool") + ", "
+            + config.maxConcurrentRequests + " concurrent checks)");
+    }
+}
\ No newline at end of file
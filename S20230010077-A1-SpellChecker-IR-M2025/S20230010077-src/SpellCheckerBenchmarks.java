@@ -0,0 +1,442 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+// Throughput benchmarks for the hot paths: candidate generation, model loading,
+// text checking (whole and streamed), dump processing and corpus counting. All inputs come
+// from SyntheticTeluguCorpus.
+//
+// Usage: java SpellCheckerBenchmarks [name prefix, e.g. candidates/automaton] [-quick]
+//
+// Each benchmark runs warmup iterations and then measured iterations of a fixed
+// duration; the result is the mean rate with its standard deviation. Results of
+// every operation are folded into a sink so the JIT cannot drop the work.
+public class SpellCheckerBenchmarks {
+    private static final long SEED = 20230010077L;
+    private static final int VOCABULARY_SIZE = 50_000;
+    private static final int QUERIES_PER_CLASS = 200;
+    
+    private static int warmupIterations = 3;
+    private static int measureIterations = 5;
+    private static long iterationMillis = 500;
+    private static long sink;
+    private static String filter = "";
+    private static Path workDir;
+    
+    interface Operation {
+        long run() throws Exception;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            if (arg.equals("-quick")) {
+                warmupIterations = 1;
+                measureIterations = 3;
+                iterationMillis = 200;
+            } else {
+                filter = arg;
+            }
+        }
+        workDir = Files.createTempDirectory("spellcheck-bench");
+        System.out.println("=== SPELL CHECKER BENCHMARKS ===");
+        System.out.println("JVM " + System.getProperty("java.version") + ", "
+            + Runtime.getRuntime().availableProcessors() + " processors, "
+            + warmupIterations + " warmup + " + measureIterations + " x " + iterationMillis + " ms iterations\n");
+        try {
+            candidateGeneration();
+            modelLoading();
+            wordLookup();
+            textChecking();
+            streamingCheck();
+            dumpProcessing();
+            corpusBuilding();
+        } finally {
+            deleteRecursively(workDir);
+        }
+        System.out.println("\n(sink " + sink + ")");
+    }
+    
+    // generateCandidates per search mode, word length and error type
+    private static void candidateGeneration() {
+        if (!sectionSelected("candidates/")) {
+            return;
+        }
+        SyntheticTeluguCorpus corpus = new SyntheticTeluguCorpus(SEED);
+        LinkedHashMap<String, Integer> vocabulary = corpus.vocabulary(VOCABULARY_SIZE);
+        
+        LanguageModel editModel = modelOf(vocabulary);
+        LanguageModel indexModel = modelOf(vocabulary);
+        quietly(() -> {
+            indexModel.enableDeletionIndex(2);
+            return 0;
+        });
+        // Uncached, so every call measures the search itself
+        CandidateGenerator edits = new CandidateGenerator();
+        edits.setSuggestionCache(null);
+        CandidateGenerator automaton = new CandidateGenerator();
+        automaton.setSuggestionCache(null);
+        automaton.useAutomatonSearch(2, 10);
+        editModel.getAutomaton();
+        // Edit costs learned from misspellings of other words than the ones queried
+        List<String[]> pairs = new ArrayList<>();
+        SyntheticTeluguCorpus.ErrorType[] types = SyntheticTeluguCorpus.ErrorType.values();
+        SyntheticTeluguCorpus training = new SyntheticTeluguCorpus(SEED + 1);
+        for (String word : training.sample(vocabulary, 5000)) {
+            String misspelled = training.misspell(word, types[pairs.size() % types.length], vocabulary);
+            if (misspelled != null) {
+                pairs.add(new String[] {misspelled, word});
+            }
+        }
+        CandidateGenerator channel = new CandidateGenerator();
+        channel.setSuggestionCache(null);
+        channel.useNoisyChannelSearch(ErrorModel.learn(pairs), 2, 10, 2 * ErrorModel.DEFAULT_COST);
+        
+        String[] lengths = {"short", "medium", "long"};
+        for (String length : lengths) {
+            for (SyntheticTeluguCorpus.ErrorType type : SyntheticTeluguCorpus.ErrorType.values()) {
+                String[] queries = queries(corpus, vocabulary, length, type);
+                String suffix = length + "/" + type.name().toLowerCase();
+                measureQueries("candidates/edits/" + suffix, queries, edits, editModel);
+                measureQueries("candidates/deletion-index/" + suffix, queries, edits, indexModel);
+                measureQueries("candidates/automaton/" + suffix, queries, automaton, editModel);
+                measureQueries("candidates/noisy-channel/" + suffix, queries, channel, editModel);
+            }
+        }
+    }
+    
+    private static void measureQueries(String name, String[] queries, CandidateGenerator generator,
+                                       LanguageModel model) {
+        int[] next = {0};
+        measure(name, "words", 1, () -> {
+            String query = queries[next[0]++ % queries.length];
+            return generator.generateCandidates(query, model).size();
+        });
+    }
+    
+    // Misspellings of vocabulary words of the given length class
+    private static String[] queries(SyntheticTeluguCorpus corpus, LinkedHashMap<String, Integer> vocabulary,
+                                    String length, SyntheticTeluguCorpus.ErrorType type) {
+        int min = length.equals("short") ? 2 : length.equals("medium") ? 4 : 6;
+        int max = length.equals("short") ? 3 : length.equals("medium") ? 5 : Integer.MAX_VALUE;
+        List<String> queries = new ArrayList<>();
+        for (String word : corpus.sample(vocabulary, QUERIES_PER_CLASS * 50)) {
+            int aksharas = AksharaAlphabet.segment(word).size();
+            if (aksharas < min || aksharas > max) {
+                continue;
+            }
+            String misspelled = corpus.misspell(word, type, vocabulary);
+            if (misspelled != null) {
+                queries.add(misspelled);
+            }
+            if (queries.size() == QUERIES_PER_CLASS) {
+                break;
+            }
+        }
+        return queries.toArray(new String[0]);
+    }
+    
+    // loadModel for the binary index and the legacy text format
+    private static void modelLoading() throws IOException {
+        if (!sectionSelected("loadModel/")) {
+            return;
+        }
+        int[] sizes = {10_000, 100_000, 500_000};
+        for (int size : sizes) {
+            LinkedHashMap<String, Integer> vocabulary = new SyntheticTeluguCorpus(SEED).vocabulary(size);
+            String binaryPath = workDir.resolve("model-" + size + ".dat").toString();
+            String textPath = workDir.resolve("model-" + size + ".txt").toString();
+            MappedWordStore.write(new HashWordStore(vocabulary), binaryPath);
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                    new FileOutputStream(textPath), "UTF-8"))) {
+                vocabulary.forEach((word, count) -> out.println(word + "|" + count));
+            }
+            String probe = vocabulary.keySet().iterator().next();
+            measure("loadModel/binary/" + size, "loads", 1, () -> loadAndProbe(binaryPath, probe));
+            measure("loadModel/text/" + size, "loads", 1, () -> loadAndProbe(textPath, probe));
+        }
+    }
+    
+    private static long loadAndProbe(String path, String probe) {
+        LanguageModel model = new LanguageModel();
+        return quietly(() -> {
+            model.loadModel(path);
+            return model.getWordStore().size() + model.getWordStore().getFrequency(probe);
+        });
+    }
+    
+    // getFrequency of frequent words and contains of one-edit misspellings (fresh
+    // strings, as candidate probes are) per storage: heap map, mapped index, and
+    // mapped index with a 4 MB hot tier
+    private static void wordLookup() throws IOException {
+        if (!sectionSelected("lookup/")) {
+            return;
+        }
+        int size = 500_000;
+        LinkedHashMap<String, Integer> vocabulary = new SyntheticTeluguCorpus(SEED).vocabulary(size);
+        String binaryPath = workDir.resolve("lookup-" + size + ".dat").toString();
+        MappedWordStore.write(new HashWordStore(vocabulary), binaryPath);
+        List<String> words = new ArrayList<>(vocabulary.keySet());
+        words.sort((a, b) -> Integer.compare(vocabulary.get(b), vocabulary.get(a)));
+        Random random = new Random(SEED);
+        String[] common = new String[10_000];
+        String[] misses = new String[10_000];
+        for (int i = 0; i < common.length; i++) {
+            common[i] = words.get(random.nextInt(1000));
+            String word = words.get(random.nextInt(words.size()));
+            int at = random.nextInt(word.length());
+            misses[i] = word.substring(0, at) + (char) ('అ' + random.nextInt(40)) + word.substring(at + 1);
+        }
+        
+        MappedWordStore mapped = MappedWordStore.open(binaryPath);
+        Map<String, WordStore> stores = new LinkedHashMap<>();
+        stores.put("heap", new HashWordStore(new HashMap<>(vocabulary)));
+        stores.put("mapped", mapped);
+        stores.put("tiered", TieredWordStore.open(mapped, 4L << 20));
+        stores.forEach((name, store) -> {
+            measure("lookup/common/" + name, "lookups", common.length, () -> {
+                long found = 0;
+                for (String word : common) {
+                    found += store.getFrequency(new String(word));
+                }
+                return found;
+            });
+            measure("lookup/miss/" + name, "lookups", misses.length, () -> {
+                long found = 0;
+                for (String word : misses) {
+                    found += store.contains(new String(word)) ? 1 : 0;
+                }
+                return found;
+            });
+        });
+    }
+    
+    // processText on running text with 5% misspelled tokens, without and with
+    // the suggestion cache (each document is new text over the same vocabulary),
+    // and uncached with the vocabulary on four shard servers over loopback
+    private static void textChecking() throws IOException {
+        if (!sectionSelected("processText")) {
+            return;
+        }
+        SyntheticTeluguCorpus corpus = new SyntheticTeluguCorpus(SEED);
+        LinkedHashMap<String, Integer> vocabulary = corpus.vocabulary(VOCABULARY_SIZE);
+        int tokens = 1000;
+        String[] texts = new String[20];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = corpus.text(vocabulary, tokens, 0.05);
+        }
+        LanguageModel model = modelOf(vocabulary);
+        
+        TeluguSpellChecker uncached = new TeluguSpellChecker();
+        uncached.initializeWithModel(model);
+        uncached.getCandidateGenerator().setSuggestionCache(null);
+        measureTexts("processText/uncached", texts, tokens, uncached);
+        
+        TeluguSpellChecker cached = new TeluguSpellChecker();
+        cached.initializeWithModel(model);
+        cached.getCandidateGenerator().setSuggestionCache(new SuggestionCache(SuggestionCache.DEFAULT_CAPACITY));
+        measureTexts("processText/cached", texts, tokens, cached);
+        if (selected("processText/cached")) {
+            System.out.println("    cache: " + cached.getCandidateGenerator().getSuggestionCache().getStats());
+        }
+        
+        if (selected("processText/sharded")) {
+            List<ShardServer> servers = new ArrayList<>();
+            List<ShardedWordStore.Shard> shards = new ArrayList<>();
+            String indexPath = workDir.resolve("sharded.dat").toString();
+            for (String path : ShardedWordStore.writeShards(model.getWordStore(), 4, indexPath)) {
+                ShardServer server = new ShardServer(MappedWordStore.open(path), 0);
+                server.start();
+                servers.add(server);
+                shards.add(ShardServer.connect("localhost", server.getPort()));
+            }
+            try (ShardedWordStore store = new ShardedWordStore(shards)) {
+                LanguageModel shardedModel = new LanguageModel();
+                shardedModel.setWordStore(store);
+                TeluguSpellChecker sharded = new TeluguSpellChecker();
+                sharded.initializeWithModel(shardedModel);
+                sharded.getCandidateGenerator().setSuggestionCache(null);
+                measureTexts("processText/sharded", texts, tokens, sharded);
+            } finally {
+                for (ShardServer server : servers) {
+                    server.close();
+                }
+            }
+        }
+        
+        // Same as uncached with stage timers and counters on, for their overhead
+        Metrics.setEnabled(true);
+        Metrics.reset();
+        measureTexts("processText/uncached+metrics", texts, tokens, uncached);
+        Metrics.setEnabled(false);
+        if (selected("processText/uncached+metrics")) {
+            System.out.println("    " + Metrics.snapshot().toText(null).replace("\n", "\n    "));
+        }
+    }
+    
+    private static void measureTexts(String name, String[] texts, int tokens, TeluguSpellChecker checker) {
+        int[] next = {0};
+        measure(name, "tokens", tokens, () -> {
+            checker.processText(texts[next[0]++ % texts.length]);
+            return checker.getCandidateMap().size();
+        });
+    }
+    
+    // StreamingDocumentChecker on a multi-chunk file, single-threaded and on all cores
+    private static void streamingCheck() throws IOException {
+        if (!sectionSelected("streamingCheck")) {
+            return;
+        }
+        SyntheticTeluguCorpus corpus = new SyntheticTeluguCorpus(SEED);
+        LinkedHashMap<String, Integer> vocabulary = corpus.vocabulary(VOCABULARY_SIZE);
+        Path input = workDir.resolve("document.txt");
+        try (Writer out = Files.newBufferedWriter(input, StandardCharsets.UTF_8)) {
+            for (int line = 0; line < 200; line++) {
+                out.write(corpus.text(vocabulary, 500, 0.05));
+                out.write("\n\n");
+            }
+        }
+        double megabytes = Files.size(input) / 1e6;
+        TeluguSpellChecker checker = new TeluguSpellChecker();
+        checker.initializeWithModel(modelOf(vocabulary));
+        
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads : cores > 1 ? new int[] {1, cores} : new int[] {1}) {
+            StreamingDocumentChecker streaming = new StreamingDocumentChecker(checker, 1 << 16, threads);
+            measure("streamingCheck/threads-" + threads, "MB", megabytes,
+                () -> streaming.check(input, Writer.nullWriter()).tokens);
+        }
+    }
+    
+    // WikipediaDumpProcessor on a synthetic dump with markup
+    private static void dumpProcessing() throws IOException {
+        if (!sectionSelected("dumpProcessing")) {
+            return;
+        }
+        SyntheticTeluguCorpus corpus = new SyntheticTeluguCorpus(SEED);
+        LinkedHashMap<String, Integer> vocabulary = corpus.vocabulary(VOCABULARY_SIZE);
+        int pages = 2000;
+        String dumpPath = workDir.resolve("dump.xml").toString();
+        String outputPath = workDir.resolve("corpus.txt").toString();
+        corpus.writeDump(dumpPath, vocabulary, pages, 300);
+        WikipediaDumpProcessor processor = new WikipediaDumpProcessor();
+        measure("dumpProcessing", "pages", pages,
+            () -> quietly(() -> processor.processDump(dumpPath, outputPath).size()));
+        
+        // Counting through spilled runs with 1 MB of counts (about 20k words) in memory
+        WikipediaDumpProcessor external = new WikipediaDumpProcessor(Runtime.getRuntime().availableProcessors(),
+            1L << 20);
+        String frequencyPath = workDir.resolve("frequencies.txt").toString();
+        measure("dumpProcessing/external", "pages", pages,
+            () -> quietly(() -> external.processDump(dumpPath, outputPath, frequencyPath, 2)));
+    }
+    
+    // LanguageModel.buildFromCorpus over the same corpus as plain text and as a
+    // block corpus (decoded and counted on all cores)
+    private static void corpusBuilding() throws IOException {
+        if (!sectionSelected("buildFromCorpus/")) {
+            return;
+        }
+        SyntheticTeluguCorpus corpus = new SyntheticTeluguCorpus(SEED);
+        LinkedHashMap<String, Integer> vocabulary = corpus.vocabulary(VOCABULARY_SIZE);
+        int tokens = 2_000_000;
+        String textPath = workDir.resolve("build-corpus.txt").toString();
+        String blocksPath = workDir.resolve("build-corpus.blocks").toString();
+        corpus.writeCorpus(textPath, vocabulary, tokens);
+        BlockCorpus.pack(textPath, blocksPath);
+        System.out.println("    corpus: text " + new File(textPath).length() / 1024 + " KB, blocks "
+            + new File(blocksPath).length() / 1024 + " KB");
+        measure("buildFromCorpus/text", "tokens", tokens, () -> buildFrom(textPath));
+        measure("buildFromCorpus/blocks", "tokens", tokens, () -> buildFrom(blocksPath));
+    }
+    
+    private static long buildFrom(String corpusPath) {
+        LanguageModel model = new LanguageModel();
+        return quietly(() -> {
+            model.buildFromCorpus(corpusPath);
+            return model.getWordStore().size();
+        });
+    }
+    
+    private static LanguageModel modelOf(Map<String, Integer> vocabulary) {
+        LanguageModel model = new LanguageModel();
+        model.setWordStore(new HashWordStore(new HashMap<>(vocabulary)));
+        return model;
+    }
+    
+    private static void measure(String name, String unit, double unitsPerOperation, Operation operation) {
+        if (!selected(name)) {
+            return;
+        }
+        try {
+            for (int i = 0; i < warmupIterations; i++) {
+                iteration(operation);
+            }
+            double[] rates = new double[measureIterations];
+            for (int i = 0; i < measureIterations; i++) {
+                long[] result = iteration(operation);
+                rates[i] = result[0] * unitsPerOperation * 1e9 / result[1];
+            }
+            double mean = 0;
+            for (double rate : rates) {
+                mean += rate;
+            }
+            mean /= rates.length;
+            double variance = 0;
+            for (double rate : rates) {
+                variance += (rate - mean) * (rate - mean);
+            }
+            double deviation = rates.length > 1 ? Math.sqrt(variance / (rates.length - 1)) : 0;
+            System.out.printf("%-48s %14.1f %s/s  +- %.1f%n", name, mean, unit, deviation);
+        } catch (Exception e) {
+            System.out.println(name + " failed: " + e);
+        }
+    }
+    
+    // Runs the operation until the iteration time is used up; returns {operations, nanos}
+    private static long[] iteration(Operation operation) throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + iterationMillis * 1_000_000L;
+        long operations = 0;
+        long now;
+        do {
+            sink += operation.run();
+            operations++;
+            now = System.nanoTime();
+        } while (now < deadline);
+        return new long[] {operations, now - start};
+    }
+    
+    // Runs the operation with System.out silenced (loading and dump code log progress)
+    private static long quietly(Operation operation) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            return operation.run();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            System.setOut(out);
+        }
+    }
+    
+    private static boolean selected(String name) {
+        return filter.isEmpty() || name.startsWith(filter);
+    }
+    
+    // A section (and its setup) runs when the filter is empty or starts with its name
+    private static boolean sectionSelected(String section) {
+        return filter.isEmpty() || filter.startsWith(section) || section.startsWith(filter);
+    }
+    
+    private static void deleteRecursively(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(path)) {
+                for (Path child : children) {
+                    deleteRecursively(child);
+                }
+            }
+        }
+        Files.deleteIfExists(path);
+    }
+}
\ No newline at end of file
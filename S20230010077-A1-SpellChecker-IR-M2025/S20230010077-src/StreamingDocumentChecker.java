@@ -0,0 +1,201 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Checks documents of any size in bounded memory. The file is decoded through a
+// FileChannel into chunks that end after a separator (so no word is split),
+// chunks are checked in parallel on a fork-join pool, and their corrected text
+// is written to the sink strictly in input order with the original whitespace,
+// line breaks and punctuation. At most `window` chunks are held at a time.
+public class StreamingDocumentChecker {
+    public static final int DEFAULT_CHUNK_CHARS = 1 << 18;
+    
+    private final TeluguSpellChecker checker;
+    private final int chunkChars;
+    private final int parallelism;
+    private final int window;
+    
+    // Receives every misspelling with its offset (in chars) from the start of the document
+    public interface ErrorHandler {
+        void error(SpellCheckResult.SpellingError error, long documentOffset);
+    }
+    
+    public static final class Summary {
+        public final long chars;
+        public final long tokens;
+        public final long misspelled;
+        public final int chunks;
+        public final long millis;
+        
+        Summary(long chars, long tokens, long misspelled, int chunks, long millis) {
+            this.chars = chars;
+            this.tokens = tokens;
+            this.misspelled = misspelled;
+            this.chunks = chunks;
+            this.millis = millis;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%d chars, %d tokens, %d misspelled, %d chunks in %d ms",
+                chars, tokens, misspelled, chunks, millis);
+        }
+    }
+    
+    public StreamingDocumentChecker(TeluguSpellChecker checker) {
+        this(checker, DEFAULT_CHUNK_CHARS, Runtime.getRuntime().availableProcessors());
+    }
+    
+    public StreamingDocumentChecker(TeluguSpellChecker checker, int chunkChars, int parallelism) {
+        this.checker = checker;
+        this.chunkChars = Math.max(1024, chunkChars);
+        this.parallelism = Math.max(1, parallelism);
+        this.window = this.parallelism * 2;
+    }
+    
+    public Summary check(Path input, Writer output) throws IOException {
+        return check(input, output, null);
+    }
+    
+    public Summary check(Path input, Writer output, ErrorHandler errors) throws IOException {
+        long started = System.currentTimeMillis();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        ArrayDeque<ForkJoinTask<SpellCheckResult>> inFlight = new ArrayDeque<>();
+        long[] totals = new long[3];   // chars, tokens, misspelled written so far
+        int chunks = 0;
+        
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            ChunkReader reader = new ChunkReader(channel, chunkChars);
+            String chunk;
+            while ((chunk = reader.next()) != null) {
+                String text = chunk;
+                inFlight.add(pool.submit(() -> checker.check(text)));
+                chunks++;
+                if (inFlight.size() >= window) {
+                    write(inFlight.poll(), output, errors, totals);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                write(inFlight.poll(), output, errors, totals);
+            }
+            output.flush();
+        } finally {
+            for (ForkJoinTask<SpellCheckResult> task : inFlight) {
+                task.cancel(true);
+            }
+            pool.shutdownNow();
+        }
+        return new Summary(totals[0], totals[1], totals[2], chunks, System.currentTimeMillis() - started);
+    }
+    
+    private static void write(ForkJoinTask<SpellCheckResult> task, Writer output, ErrorHandler errors,
+                              long[] totals) throws IOException {
+        SpellCheckResult result;
+        try {
+            result = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while checking document");
+        } catch (ExecutionException e) {
+            throw new IOException("Error checking chunk", e.getCause());
+        }
+        long started = Metrics.start();
+        output.write(result.getCorrectedText());
+        if (errors != null) {
+            for (SpellCheckResult.SpellingError error : result.getErrors()) {
+                errors.error(error, totals[0] + error.getStart());
+            }
+        }
+        Metrics.record(Metrics.Stage.OUTPUT, started);
+        totals[0] += result.getText().length();
+        totals[1] += result.getTokens().size();
+        totals[2] += result.getErrors().size();
+    }
+    
+    // Decodes UTF-8 from the channel and hands out chunks of about chunkChars
+    // chars, each cut after its last separator; the remainder starts the next chunk
+    private static final class ChunkReader {
+        private final FileChannel channel;
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(1 << 16);
+        private CharBuffer chars;
+        private boolean full;
+        private boolean endOfInput;
+        
+        ChunkReader(FileChannel channel, int chunkChars) {
+            this.channel = channel;
+            this.chars = CharBuffer.allocate(chunkChars);
+        }
+        
+        String next() throws IOException {
+            full = false;
+            while (chars.hasRemaining() && !full && !endOfInput) {
+                fill();
+            }
+            chars.flip();
+            if (!chars.hasRemaining()) {
+                return null;
+            }
+            int length = chars.limit();
+            int cut = length;
+            if (!endOfInput) {
+                while (cut > 0 && TeluguTokenizer.mayContinueToken(chars.get(cut - 1))) {
+                    cut--;
+                }
+                if (cut == 0) {
+                    // A single token fills the chunk; grow and keep reading
+                    CharBuffer larger = CharBuffer.allocate(chars.capacity() * 2);
+                    larger.put(chars);
+                    chars = larger;
+                    return next();
+                }
+            }
+            char[] chunk = new char[cut];
+            chars.get(chunk);
+            chars.limit(length);
+            chars.compact();
+            return new String(chunk);
+        }
+        
+        private void fill() throws IOException {
+            int read = channel.read(bytes);
+            bytes.flip();
+            boolean last = read < 0;
+            // A surrogate pair does not fit in the one char left: the chunk ends before it
+            full = decoder.decode(bytes, chars, last).isOverflow();
+            if (last && !bytes.hasRemaining()) {
+                decoder.flush(chars);
+                endOfInput = true;
+            }
+            bytes.compact();
+        }
+    }
+    
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java StreamingDocumentChecker <input.txt> <corrected output> [model] [threads]");
+            return;
+        }
+        String modelPath = args.length > 2 ? args[2] : "data/telugu_index.dat";
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        
+        TeluguSpellChecker spellChecker = new TeluguSpellChecker();
+        spellChecker.initializeSpellChecker(modelPath);
+        StreamingDocumentChecker streaming = new StreamingDocumentChecker(spellChecker, DEFAULT_CHUNK_CHARS, threads);
+        try (Writer output = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(args[1]), StandardCharsets.UTF_8))) {
+            Summary summary = streaming.check(Paths.get(args[0]), output);
+            System.out.println("Checked " + args[0] + ": " + summary);
+            System.out.println("Corrected text written to " + args[1]);
+        } catch (IOException e) {
+            System.out.println("Error checking document: " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
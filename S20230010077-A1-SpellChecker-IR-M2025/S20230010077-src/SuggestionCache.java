@@ -0,0 +1,332 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Process-wide cache of candidate lists keyed by (token, model version, search
+// settings), the settings being any value with equals and hashCode. Eviction
+// follows W-TinyLFU: new entries enter a small LRU window; when the window
+// overflows its oldest entry competes with the oldest entry of the main
+// segmented LRU and only the one seen more often (per a count-min sketch of
+// recent accesses) is kept. One-off typos therefore cannot flush the
+// misspellings that recur across documents.
+//
+// Lookups go through a ConcurrentHashMap; policy bookkeeping is done under a
+// lock that reads only try to take, so a contended hit skips its reordering
+// rather than wait.
+public class SuggestionCache {
+    public static final int DEFAULT_CAPACITY = 20_000;
+    private static final SuggestionCache SHARED = new SuggestionCache(DEFAULT_CAPACITY);
+    
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    
+    private final int capacity;
+    private final int windowCapacity;
+    private final int protectedCapacity;
+    private final ConcurrentHashMap<Key, Node> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final Node[] heads = new Node[3];   // sentinels of circular lists, most recent first
+    private final int[] sizes = new int[3];
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    public SuggestionCache(int capacity) {
+        this.capacity = Math.max(3, capacity);
+        this.windowCapacity = Math.max(1, this.capacity / 100);
+        this.protectedCapacity = (this.capacity - windowCapacity) * 4 / 5;
+        this.sketch = new FrequencySketch(this.capacity);
+        for (int i = 0; i < heads.length; i++) {
+            heads[i] = new Node(null, null);
+            heads[i].prev = heads[i];
+            heads[i].next = heads[i];
+        }
+    }
+    
+    public static SuggestionCache shared() {
+        return SHARED;
+    }
+    
+    // Cached candidates, computing and caching them on a miss. The returned list
+    // is unmodifiable and shared with other callers.
+    public List<String> get(String token, long modelVersion, Object settings, Supplier<List<String>> loader) {
+        List<String> cached = getIfPresent(token, modelVersion, settings);
+        if (cached != null) {
+            return cached;
+        }
+        return put(token, modelVersion, settings, loader.get());
+    }
+    
+    // Cached candidates or null, for callers that compute several misses together
+    // and then put() each of them
+    public List<String> getIfPresent(String token, long modelVersion, Object settings) {
+        Node node = entries.get(new Key(token, modelVersion, settings));
+        if (node == null) {
+            return null;
+        }
+        hits.increment();
+        if (lock.tryLock()) {
+            try {
+                onHit(node);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node.value;
+    }
+    
+    // Caches candidates computed after a miss; returns the cached list, which is
+    // another thread's if it stored the same key first
+    public List<String> put(String token, long modelVersion, Object settings, List<String> candidates) {
+        Key key = new Key(token, modelVersion, settings);
+        misses.increment();
+        List<String> value = Collections.unmodifiableList(new ArrayList<>(candidates));
+        lock.lock();
+        try {
+            sketch.increment(key);
+            Node existing = entries.get(key);
+            if (existing != null) {
+                return existing.value;   // loaded concurrently by another thread
+            }
+            Node node = new Node(key, value);
+            entries.put(key, node);
+            link(WINDOW, node);
+            if (sizes[WINDOW] > windowCapacity) {
+                Node candidate = heads[WINDOW].prev;
+                unlink(candidate);
+                link(PROBATION, candidate);
+                if (entries.size() > capacity) {
+                    evictOne(candidate);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return value;
+    }
+    
+    // Drops every entry of the given model version
+    public void invalidateVersion(long modelVersion) {
+        lock.lock();
+        try {
+            for (Node node : new ArrayList<>(entries.values())) {
+                if (node.key.modelVersion == modelVersion) {
+                    remove(node);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            for (Node node : new ArrayList<>(entries.values())) {
+                remove(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size());
+    }
+    
+    private void onHit(Node node) {
+        if (node.region < 0) {
+            return;   // removed since the lookup
+        }
+        sketch.increment(node.key);
+        if (node.region == PROTECTED || node.region == WINDOW) {
+            unlink(node);
+            link(node.region == PROTECTED ? PROTECTED : WINDOW, node);
+            return;
+        }
+        // Second access promotes from probation; demote the oldest protected entry if full
+        unlink(node);
+        link(PROTECTED, node);
+        if (sizes[PROTECTED] > protectedCapacity) {
+            Node demoted = heads[PROTECTED].prev;
+            unlink(demoted);
+            link(PROBATION, demoted);
+        }
+    }
+    
+    // The window's evictee has just entered probation; keep it only if it is
+    // more frequent than the oldest probation entry
+    private void evictOne(Node candidate) {
+        Node victim = heads[PROBATION].prev;
+        if (victim == candidate) {
+            victim = victim.prev;
+        }
+        if (victim == heads[PROBATION]) {
+            victim = heads[PROTECTED].prev;
+        }
+        Node evicted = sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+        remove(evicted);
+        evictions.increment();
+    }
+    
+    private void remove(Node node) {
+        entries.remove(node.key, node);
+        unlink(node);
+        node.region = -1;
+    }
+    
+    private void link(int region, Node node) {
+        Node head = heads[region];
+        node.prev = head;
+        node.next = head.next;
+        head.next.prev = node;
+        head.next = node;
+        node.region = region;
+        sizes[region]++;
+    }
+    
+    private void unlink(Node node) {
+        if (node.region < 0) {
+            return;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        sizes[node.region]--;
+    }
+    
+    private static final class Key {
+        final String token;
+        final long modelVersion;
+        final Object settings;
+        final int hash;
+        
+        Key(String token, long modelVersion, Object settings) {
+            this.token = token;
+            this.modelVersion = modelVersion;
+            this.settings = settings;
+            this.hash = (token.hashCode() * 31 + Long.hashCode(modelVersion)) * 31 + settings.hashCode();
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return modelVersion == key.modelVersion && token.equals(key.token) && settings.equals(key.settings);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+    
+    private static final class Node {
+        final Key key;
+        final List<String> value;
+        Node prev;
+        Node next;
+        int region = -1;
+        
+        Node(Key key, List<String> value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+    
+    // Count-min sketch with four 4-bit counters per key. All counters are halved
+    // after 10 x capacity increments so the frequencies follow recent traffic.
+    private static final class FrequencySketch {
+        private final long[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+        
+        FrequencySketch(int capacity) {
+            int size = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+            this.table = new long[size];
+            this.mask = size - 1;
+            this.sampleSize = 10 * capacity;
+        }
+        
+        int frequency(Key key) {
+            int hash = spread(key.hash);
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                frequency = Math.min(frequency, counter(hash, i));
+            }
+            return frequency;
+        }
+        
+        void increment(Key key) {
+            int hash = spread(key.hash);
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = index(hash, i);
+                int shift = offset(hash, i);
+                if (((table[index] >>> shift) & 0xF) < 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+                }
+                additions /= 2;
+            }
+        }
+        
+        private int counter(int hash, int i) {
+            return (int) ((table[index(hash, i)] >>> offset(hash, i)) & 0xF);
+        }
+        
+        private int index(int hash, int i) {
+            int h = hash * (0x9E3779B9 + 2 * i + 1);
+            return (h ^ (h >>> 16)) & mask;
+        }
+        
+        // One of the sixteen 4-bit counters in the word
+        private static int offset(int hash, int i) {
+            return (((hash >>> (i * 8)) & 3) * 4 + i) * 4;
+        }
+        
+        private static int spread(int hash) {
+            hash ^= hash >>> 17;
+            hash *= 0xED5AD4BB;
+            hash ^= hash >>> 11;
+            return hash;
+        }
+    }
+    
+    public static final class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final int size;
+        
+        Stats(long hits, long misses, long evictions, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+        }
+        
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d hitRate=%.1f%% evictions=%d size=%d",
+                hits, misses, 100 * hitRate(), evictions, size);
+        }
+    }
+}
\ No newline at end of file
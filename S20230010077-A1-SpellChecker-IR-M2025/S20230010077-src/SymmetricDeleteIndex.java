@@ -0,0 +1,147 @@
+import java.util.*;
+
+// SymSpell-style index: every dictionary word is registered under all strings
+// reachable from its prefix by up to maxDistance deletions. A lookup only needs
+// the deletions of the input word, so no insertions/substitutions are generated.
+public class SymmetricDeleteIndex {
+    public static final int DEFAULT_PREFIX_LENGTH = 7;
+    public static final long DEFAULT_MAX_POSTINGS = 20_000_000L;
+    
+    private final String[] words;
+    private final Map<String, int[]> postings;
+    private final int maxDistance;
+    private final int prefixLength;
+    private final long postingCount;
+    
+    private SymmetricDeleteIndex(String[] words, Map<String, int[]> postings,
+                                 int maxDistance, int prefixLength, long postingCount) {
+        this.words = words;
+        this.postings = postings;
+        this.maxDistance = maxDistance;
+        this.prefixLength = prefixLength;
+        this.postingCount = postingCount;
+    }
+    
+    public static SymmetricDeleteIndex build(Collection<String> dictionary, int maxDistance) {
+        return build(dictionary, maxDistance, DEFAULT_PREFIX_LENGTH, DEFAULT_MAX_POSTINGS);
+    }
+    
+    // Builds the index for the requested distance. If the number of postings would
+    // exceed maxPostings the distance is lowered until the index fits the budget;
+    // null if it does not fit even at distance 1, as a distance-0 index only finds
+    // the exact words and callers then generate edits instead.
+    public static SymmetricDeleteIndex build(Collection<String> dictionary, int maxDistance,
+                                             int prefixLength, long maxPostings) {
+        String[] words = dictionary.toArray(new String[0]);
+        for (int distance = maxDistance; distance >= 1; distance--) {
+            SymmetricDeleteIndex index = tryBuild(words, distance, prefixLength, maxPostings);
+            if (index != null) {
+                return index;
+            }
+            System.out.println("Deletion index for distance " + distance
+                + " exceeds budget of " + maxPostings + " postings, lowering distance");
+        }
+        System.out.println("No deletion index fits the budget of " + maxPostings + " postings; not using one");
+        return null;
+    }
+    
+    private static SymmetricDeleteIndex tryBuild(String[] words, int distance,
+                                                 int prefixLength, long maxPostings) {
+        Map<String, int[]> postings = new HashMap<>();
+        Set<String> deletes = new HashSet<>();
+        long count = 0;
+        
+        for (int id = 0; id < words.length; id++) {
+            deletes.clear();
+            String prefix = prefix(words[id], prefixLength);
+            deletes.add(prefix);
+            collectDeletes(prefix, distance, deletes);
+            
+            for (String key : deletes) {
+                int[] list = postings.get(key);
+                if (list == null) {
+                    list = new int[2];
+                } else if (list[0] + 1 == list.length) {
+                    list = Arrays.copyOf(list, list.length * 2);
+                }
+                list[++list[0]] = id;
+                postings.put(key, list);
+            }
+            count += deletes.size();
+            if (count > maxPostings) {
+                return null;
+            }
+        }
+        
+        // Trim the growable lists down to plain id arrays
+        for (Map.Entry<String, int[]> entry : postings.entrySet()) {
+            int[] list = entry.getValue();
+            entry.setValue(Arrays.copyOfRange(list, 1, list[0] + 1));
+        }
+        return new SymmetricDeleteIndex(words, postings, distance, prefixLength, count);
+    }
+    
+    private static String prefix(String word, int prefixLength) {
+        return word.length() > prefixLength ? word.substring(0, prefixLength) : word;
+    }
+    
+    private static void collectDeletes(String word, int distance, Set<String> deletes) {
+        if (distance == 0 || word.length() <= 1) {
+            return;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            String delete = word.substring(0, i) + word.substring(i + 1);
+            if (deletes.add(delete)) {
+                collectDeletes(delete, distance - 1, deletes);
+            }
+        }
+    }
+    
+    // Returns dictionary words within maxDistance edits of the input (excluding the
+    // input itself), mapped to their edit distance.
+    public Map<String, Integer> lookup(String input) {
+        Map<String, Integer> results = new HashMap<>();
+        if (maxDistance == 0) {
+            return results;
+        }
+        
+        Set<String> deletes = new HashSet<>();
+        String prefix = prefix(input, prefixLength);
+        deletes.add(prefix);
+        collectDeletes(prefix, maxDistance, deletes);
+        
+        Set<Integer> seen = new HashSet<>();
+        for (String key : deletes) {
+            int[] ids = postings.get(key);
+            if (ids == null) {
+                continue;
+            }
+            for (int id : ids) {
+                if (!seen.add(id)) {
+                    continue;
+                }
+                String candidate = words[id];
+                if (candidate.equals(input)) {
+                    continue;
+                }
+                int distance = EditDistance.damerau(input, candidate, maxDistance);
+                if (distance <= maxDistance) {
+                    results.put(candidate, distance);
+                }
+            }
+        }
+        return results;
+    }
+    
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+    
+    public long getPostingCount() {
+        return postingCount;
+    }
+    
+    public int getKeyCount() {
+        return postings.size();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,235 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+// Deterministic synthetic Telugu data for benchmarks: a Zipf-distributed
+// vocabulary of well-formed words (consonant + vowel sign, conjuncts, anusvara),
+// misspellings of known types, running text and a small Wikipedia-style dump.
+// Everything is generated locally from a seed, so no download is needed.
+public class SyntheticTeluguCorpus {
+    private static final String CONSONANTS = "కఖగఘచఛజఝటఠడఢణతథదధనపఫబభమయరలవశషసహళ";
+    private static final String VOWEL_SIGNS = "ాిీుూృెేైొోౌ";
+    private static final String VOWELS = "అఆఇఈఉఊఎఏఐఒఓఔ";
+    private static final char VIRAMA = AksharaAlphabet.VIRAMA;
+    private static final char ANUSVARA = '\u0C02';
+    
+    // Unaspirated/aspirated pairs, a very common source of real misspellings
+    private static final String[][] ASPIRATION_PAIRS = {
+        {"క", "ఖ"}, {"గ", "ఘ"}, {"చ", "ఛ"}, {"జ", "ఝ"}, {"ట", "ఠ"},
+        {"డ", "ఢ"}, {"త", "థ"}, {"ద", "ధ"}, {"ప", "ఫ"}, {"బ", "భ"}
+    };
+    
+    public enum ErrorType { VOWEL_SIGN, ASPIRATION, DELETION, INSERTION, TRANSPOSITION }
+    
+    private final Random random;
+    
+    // Cumulative frequencies of the last sampled vocabulary
+    private Map<String, Integer> sampledVocabulary;
+    private String[] sampledWords;
+    private long[] cumulative;
+    
+    public SyntheticTeluguCorpus(long seed) {
+        this.random = new Random(seed);
+    }
+    
+    // Unique words with Zipf(1.07) frequencies, most frequent first
+    public LinkedHashMap<String, Integer> vocabulary(int size) {
+        LinkedHashMap<String, Integer> vocabulary = new LinkedHashMap<>();
+        while (vocabulary.size() < size) {
+            String word = word(2 + random.nextInt(3) + random.nextInt(4));
+            if (!vocabulary.containsKey(word)) {
+                int rank = vocabulary.size() + 1;
+                vocabulary.put(word, Math.max(1, (int) (1_000_000 / Math.pow(rank, 1.07))));
+            }
+        }
+        return vocabulary;
+    }
+    
+    public String word(int aksharas) {
+        StringBuilder word = new StringBuilder();
+        if (random.nextInt(10) == 0) {
+            word.append(VOWELS.charAt(random.nextInt(VOWELS.length())));
+            aksharas--;
+        }
+        for (int i = 0; i < aksharas; i++) {
+            word.append(consonant());
+            if (random.nextInt(8) == 0) {
+                word.append(VIRAMA).append(consonant());
+            }
+            if (random.nextInt(4) != 0) {
+                word.append(VOWEL_SIGNS.charAt(random.nextInt(VOWEL_SIGNS.length())));
+            }
+        }
+        if (random.nextInt(6) == 0) {
+            word.append(ANUSVARA);
+        }
+        return word.toString();
+    }
+    
+    private char consonant() {
+        return CONSONANTS.charAt(random.nextInt(CONSONANTS.length()));
+    }
+    
+    // A variant of the word with one error of the given type that is not itself
+    // in the vocabulary, or null if none could be made
+    public String misspell(String word, ErrorType type, Map<String, Integer> vocabulary) {
+        List<String> aksharas = AksharaAlphabet.segment(word);
+        for (int attempt = 0; attempt < 20; attempt++) {
+            String candidate = applyError(aksharas, type);
+            if (candidate != null && !candidate.isEmpty() && !vocabulary.containsKey(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+    
+    private String applyError(List<String> aksharas, ErrorType type) {
+        List<String> edited = new ArrayList<>(aksharas);
+        int position = random.nextInt(edited.size());
+        String akshara = edited.get(position);
+        switch (type) {
+            case VOWEL_SIGN: {
+                char last = akshara.charAt(akshara.length() - 1);
+                char sign = VOWEL_SIGNS.charAt(random.nextInt(VOWEL_SIGNS.length()));
+                if (AksharaAlphabet.isVowelSign(last)) {
+                    akshara = random.nextBoolean() ? akshara.substring(0, akshara.length() - 1)
+                        : akshara.substring(0, akshara.length() - 1) + sign;
+                } else if (AksharaAlphabet.isConsonant(last)) {
+                    akshara = akshara + sign;
+                } else {
+                    return null;
+                }
+                edited.set(position, akshara);
+                break;
+            }
+            case ASPIRATION: {
+                String replaced = swapAspiration(akshara);
+                if (replaced == null) {
+                    return null;
+                }
+                edited.set(position, replaced);
+                break;
+            }
+            case DELETION:
+                if (edited.size() < 2) {
+                    return null;
+                }
+                edited.remove(position);
+                break;
+            case INSERTION:
+                edited.add(position, edited.get(random.nextInt(edited.size())));
+                break;
+            case TRANSPOSITION:
+                if (edited.size() < 2) {
+                    return null;
+                }
+                int next = position == edited.size() - 1 ? position - 1 : position + 1;
+                Collections.swap(edited, position, next);
+                break;
+        }
+        return String.join("", edited);
+    }
+    
+    private static String swapAspiration(String akshara) {
+        for (String[] pair : ASPIRATION_PAIRS) {
+            for (int side = 0; side < 2; side++) {
+                int index = akshara.indexOf(pair[side]);
+                if (index >= 0) {
+                    return akshara.substring(0, index) + pair[1 - side] + akshara.substring(index + 1);
+                }
+            }
+        }
+        return null;
+    }
+    
+    // Words drawn by frequency from the vocabulary
+    public List<String> sample(LinkedHashMap<String, Integer> vocabulary, int count) {
+        if (vocabulary != sampledVocabulary) {
+            sampledWords = vocabulary.keySet().toArray(new String[0]);
+            cumulative = new long[sampledWords.length];
+            long total = 0;
+            for (int i = 0; i < sampledWords.length; i++) {
+                total += vocabulary.get(sampledWords[i]);
+                cumulative[i] = total;
+            }
+            sampledVocabulary = vocabulary;
+        }
+        long total = cumulative[cumulative.length - 1];
+        List<String> sample = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long target = (long) (random.nextDouble() * total);
+            int index = Arrays.binarySearch(cumulative, target + 1);
+            sample.add(sampledWords[index >= 0 ? index : -index - 1]);
+        }
+        return sample;
+    }
+    
+    // Running text with the given share of misspelled tokens and some punctuation
+    public String text(LinkedHashMap<String, Integer> vocabulary, int tokens, double errorRate) {
+        ErrorType[] types = ErrorType.values();
+        StringBuilder text = new StringBuilder();
+        for (String word : sample(vocabulary, tokens)) {
+            String token = word;
+            if (random.nextDouble() < errorRate) {
+                String misspelled = misspell(word, types[random.nextInt(types.length)], vocabulary);
+                if (misspelled != null) {
+                    token = misspelled;
+                }
+            }
+            text.append(token).append(random.nextInt(12) == 0 ? ". " : " ");
+        }
+        return text.toString().trim();
+    }
+    
+    // Wikipedia-style XML dump whose pages mix prose with templates, links,
+    // references, files and entities
+    public void writeDump(String path, LinkedHashMap<String, Integer> vocabulary,
+                          int pages, int wordsPerPage) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8))) {
+            out.write("<mediawiki xmlns=\"http://www.mediawiki.org/xml/export-0.10/\" xml:lang=\"te\">\n");
+            for (int page = 0; page < pages; page++) {
+                out.write("  <page>\n    <title>" + escape(sample(vocabulary, 1).get(0)) + "</title>\n");
+                out.write("    <ns>0</ns>\n    <id>" + page + "</id>\n    <revision>\n");
+                out.write("      <text xml:space=\"preserve\">");
+                out.write(escape(pageText(vocabulary, wordsPerPage)));
+                out.write("</text>\n    </revision>\n  </page>\n");
+            }
+            out.write("</mediawiki>\n");
+        }
+    }
+    
+    private String pageText(LinkedHashMap<String, Integer> vocabulary, int words) {
+        List<String> sample = sample(vocabulary, words);
+        StringBuilder text = new StringBuilder("{{Infobox|పేరు=" + sample.get(0) + "|{{lang|te|x}}}}\n");
+        for (int i = 0; i < sample.size(); i++) {
+            String word = sample.get(i);
+            switch (random.nextInt(40)) {
+                case 0: text.append("[[").append(word).append("]]"); break;
+                case 1: text.append("[[").append(word).append('|').append(word).append("]]"); break;
+                case 2: text.append(word).append("<ref>{{cite web|url=https://te.wikipedia.org}}</ref>"); break;
+                case 3: text.append("[[File:Example.jpg|thumb|").append(word).append("]]"); break;
+                case 4: text.append("'''").append(word).append("'''"); break;
+                case 5: text.append(word).append("&nbsp;"); break;
+                default: text.append(word);
+            }
+            text.append(i % 15 == 14 ? ".\n\n" : " ");
+        }
+        text.append("\n[[వర్గం:").append(sample.get(0)).append("]]");
+        return text.toString();
+    }
+    
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+    
+    // Plain corpus file, one line per sentence
+    public void writeCorpus(String path, LinkedHashMap<String, Integer> vocabulary, int tokens) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8))) {
+            List<String> sample = sample(vocabulary, tokens);
+            for (int i = 0; i < sample.size(); i++) {
+                out.write(sample.get(i));
+                out.write(i % 15 == 14 ? ".\n" : " ");
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -1,61 +1,348 @@
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class TeluguSpellChecker {
-    private LanguageModel languageModel;
-    private CandidateGenerator candidateGenerator;
-    private FileHandler fileHandler;
+    public static final String NGRAM_FILE = "telugu_ngrams.dat";
+    public static final String ERROR_PAIRS_FILE = "telugu_error_pairs.txt";
+    public static final String DELTA_LOG_FILE = "telugu_updates.log";
     
-    // Main memory storage for current document and candidates
-    private List<String> sourceDocument;
+    // The live model; reloadModel replaces it while checks keep running
+    private final ModelRegistry models;
+    private final CandidateGenerator candidateGenerator;
+    private final FileHandler fileHandler;
+    
+    // Optional bigram/trigram model; when set, candidates are re-ranked by context
+    private volatile NGramModel ngramModel;
+    
+    // Result of the last processText/processDocument call, for the legacy
+    // single-document accessors below. check() does not touch it.
+    private SpellCheckResult lastResult;
     private Map<String, List<String>> candidateMap;
     
     public TeluguSpellChecker() {
-        this.languageModel = new LanguageModel();
+        this.models = new ModelRegistry(new LanguageModel());
         this.candidateGenerator = new CandidateGenerator();
         this.fileHandler = new FileHandler();
-        this.sourceDocument = new ArrayList<>();
+        this.lastResult = new SpellCheckResult("", new ArrayList<>(), new ArrayList<>(), 0);
         this.candidateMap = new HashMap<>();
     }
     
     public void initializeSpellChecker(String indexPath) {
         System.out.println("Initializing Telugu Spell Checker...");
-        languageModel.loadModel(indexPath);
+        models.current().loadModel(indexPath);
+        loadModelFiles(indexPath);
+    }
+    
+    // Like initializeSpellChecker, but a missing or unreadable index is an error instead of sample data
+    public void initializeFromIndex(String indexPath) throws IOException {
+        System.out.println("Initializing Telugu Spell Checker...");
+        models.current().loadIndex(indexPath);
+        loadModelFiles(indexPath);
+    }
+    
+    private void loadModelFiles(String indexPath) {
+        LanguageModel languageModel = models.current();
+        
+        // Context model built next to the index, if there is one
+        File ngramFile = new File(new File(indexPath).getAbsoluteFile().getParentFile(), NGRAM_FILE);
+        if (ngramFile.exists()) {
+            loadNGramModel(ngramFile.getPath());
+        }
+        
+        // Misspelling/correction pairs next to the index switch on the noisy-channel search
+        File pairsFile = new File(new File(indexPath).getAbsoluteFile().getParentFile(), ERROR_PAIRS_FILE);
+        if (pairsFile.exists()) {
+            loadErrorModel(pairsFile.getPath());
+        }
+        
+        // Words learned since the index was built are replayed from the delta log
+        File deltaLogFile = new File(new File(indexPath).getAbsoluteFile().getParentFile(), DELTA_LOG_FILE);
+        if (new File(indexPath).exists() || languageModel.hasRemoteStore()) {
+            languageModel.openDeltaLog(deltaLogFile.getPath());
+        }
         System.out.println("Spell checker initialized successfully!");
     }
     
     public void initializeWithModel(LanguageModel model) {
-        this.languageModel = model;
+        models.publish(model, "memory");
+    }
+    
+    // Loads another index in the background and switches to it once it is warmed
+    // up; checks in progress finish on the old model. The future completes with
+    // the new model generation, or exceptionally if the index cannot be loaded.
+    // A model on shard servers is loaded from the same shards again.
+    public CompletableFuture<Integer> reloadModel(String indexPath) {
+        LanguageModel current = models.current();
+        SymmetricDeleteIndex deletionIndex = current.getDeletionIndex();
+        int distance = deletionIndex != null ? deletionIndex.getMaxDistance() : 0;
+        long hotTierBudget = current.getHotTierBudget();
+        String shards = current.getShards();
+        File deltaLogFile = new File(new File(indexPath).getAbsoluteFile().getParentFile(), DELTA_LOG_FILE);
+        return models.reload(indexPath, deltaLogFile.getPath(), model -> {
+            model.setHotTierBudget(hotTierBudget);
+            model.setShards(shards);
+            model.enableDeletionIndex(distance);
+        }, this::warmUp);
+    }
+    
+    // Maps the index in and builds what candidate search needs, then runs a few
+    // lookups, so the first requests on a new model are not slower than usual
+    private void warmUp(LanguageModel model) {
+        List<String> sample = new ArrayList<>();
+        model.getWordStore().forEach((word, frequency) -> {
+            if (sample.size() < 32 && word.length() > 3) {
+                sample.add(word.substring(0, word.length() - 1));
+            }
+        });
+        if (candidateGenerator.usesAutomaton()) {
+            model.getAutomaton();
+        } else if (model.getDeletionIndex() == null) {
+            model.getAksharaAlphabet();
+        }
+        for (String word : sample) {
+            candidateGenerator.generateCandidates(word, model);
+        }
+    }
+    
+    public ModelRegistry getModelRegistry() {
+        return models;
+    }
+    
+    public void loadNGramModel(String path) {
+        try {
+            ngramModel = NGramModel.load(path);
+            System.out.println("N-gram model loaded with " + ngramModel.size() + " entries");
+        } catch (IOException e) {
+            System.out.println("Error loading n-gram model: " + e.getMessage());
+        }
+    }
+    
+    public void loadErrorModel(String pairsPath) {
+        try {
+            ErrorModel errorModel = ErrorModel.learn(pairsPath);
+            candidateGenerator.useNoisyChannelSearch(errorModel, 2, 10, 2 * ErrorModel.DEFAULT_COST);
+            System.out.println("Error model learned from " + errorModel.getPairCount() + " misspelling pairs");
+        } catch (IOException e) {
+            System.out.println("Error loading error pairs: " + e.getMessage());
+        }
+    }
+    
+    public void setNGramModel(NGramModel model) {
+        this.ngramModel = model;
+    }
+    
+    public NGramModel getNGramModel() {
+        return ngramModel;
+    }
+    
+    // A flagged word the user kept, or a suggestion they picked: counted once
+    // more in the live model (and in the delta log when one is open)
+    public void learnWord(String word) {
+        models.addWords(Collections.singletonMap(word, 1));
+    }
+    
+    public void learnWords(Map<String, Integer> counts) {
+        models.addWords(counts);
     }
     
     public LanguageModel getLanguageModel() {
-        return languageModel;
+        return models.current();
+    }
+    
+    public CandidateGenerator getCandidateGenerator() {
+        return candidateGenerator;
     }
     
     public void processDocument(String documentPath) {
         System.out.println("Processing document: " + documentPath);
-        sourceDocument = fileHandler.readDocument(documentPath);
-        if (sourceDocument.isEmpty()) {
+        String text = fileHandler.readText(documentPath);
+        SpellCheckResult result = check(text);
+        setLastResult(result);
+        if (result.getTokens().isEmpty()) {
             System.out.println("Warning: No content loaded from document");
             return;
         }
-        identifyMisspelledWords();
         System.out.println("Document processing completed!");
     }
     
     public void processText(String text) {
-        sourceDocument = Arrays.asList(text.split("\\s+"));
-        identifyMisspelledWords();
+        setLastResult(check(text));
+    }
+    
+    // Looks up candidates for the distinct misspelled words of one text
+    public interface CandidateLookup {
+        Map<String, List<String>> candidates(Collection<String> words, LanguageModel model);
     }
     
-    private void identifyMisspelledWords() {
-        candidateMap.clear();
+    // Checks one text against the current model. Keeps no per-call state on the
+    // checker, so any number of threads can call it on one shared instance.
+    public SpellCheckResult check(String text) {
+        return check(text, this::generateCandidates);
+    }
+    
+    public SpellCheckResult check(String text, CandidateLookup lookup) {
+        try (ModelRegistry.Lease lease = models.acquire()) {
+            return check(text, lookup, lease.model());
+        }
+    }
+    
+    // Checks several texts against one model. The candidates of all their
+    // misspellings are looked up together, in a single call to the lookup.
+    public List<SpellCheckResult> checkAll(List<String> texts, CandidateLookup lookup) {
+        try (ModelRegistry.Lease lease = models.acquire()) {
+            LanguageModel model = lease.model();
+            long version = model.getVersion();
+            List<Scan> scans = new ArrayList<>(texts.size());
+            Set<String> misspelled = new LinkedHashSet<>();
+            for (String text : texts) {
+                Scan scan = scan(text, model);
+                scans.add(scan);
+                misspelled.addAll(scan.misspelled);
+            }
+            long looked = Metrics.start();
+            Map<String, List<String>> candidates = Collections.emptyMap();
+            if (!misspelled.isEmpty()) {
+                candidates = lookup.candidates(misspelled, model);
+                Metrics.record(Metrics.Stage.CANDIDATES, looked);
+            }
+            List<SpellCheckResult> results = new ArrayList<>(scans.size());
+            for (Scan scan : scans) {
+                results.add(finish(scan, candidates, Metrics.start(), version));
+            }
+            return results;
+        }
+    }
+    
+    private SpellCheckResult check(String text, CandidateLookup lookup, LanguageModel model) {
+        long version = model.getVersion();
+        Scan scan = scan(text, model);
+        Map<String, List<String>> candidates = Collections.emptyMap();
+        long searched = scan.looked;
+        if (!scan.misspelled.isEmpty()) {
+            candidates = lookup.candidates(scan.misspelled, model);
+            searched = Metrics.record(Metrics.Stage.CANDIDATES, scan.looked);
+        }
+        return finish(scan, candidates, searched, version);
+    }
+    
+    // A tokenized text and its misspelled words, before candidates are looked up
+    private static final class Scan {
+        final String text;
+        final List<SpellCheckResult.Token> tokens;
+        final Set<String> misspelled;
+        final long started;
+        final long tokenized;
+        final long looked;
+        
+        Scan(String text, List<SpellCheckResult.Token> tokens, Set<String> misspelled, long started,
+             long tokenized, long looked) {
+            this.text = text;
+            this.tokens = tokens;
+            this.misspelled = misspelled;
+            this.started = started;
+            this.tokenized = tokenized;
+            this.looked = looked;
+        }
+    }
+    
+    private Scan scan(String text, LanguageModel model) {
+        long started = Metrics.start();
+        int[] offsets = TeluguTokenizer.offsets(text);
+        long tokenized = Metrics.record(Metrics.Stage.TOKENIZE, started);
+        List<SpellCheckResult.Token> tokens = new ArrayList<>(offsets.length / 2);
+        
+        // A word repeated in the text is looked up once; a remote store gets
+        // all the distinct words in a single lookup
+        boolean remote = model.hasRemoteStore();
+        Set<String> checked = new LinkedHashSet<>();
+        Set<String> misspelled = new LinkedHashSet<>();
+        for (int i = 0; i < offsets.length; i += 2) {
+            String word = text.substring(offsets[i], offsets[i + 1]);
+            tokens.add(new SpellCheckResult.Token(word, offsets[i], offsets[i + 1]));
+            if (checked.add(word) && !remote && !model.isValidWord(word)) {
+                misspelled.add(word);
+            }
+        }
+        if (remote && !checked.isEmpty()) {
+            List<String> words = new ArrayList<>(checked);
+            int[] frequencies = model.lookup(words);
+            for (int i = 0; i < frequencies.length; i++) {
+                if (frequencies[i] < 0 && !words.get(i).trim().isEmpty()) {
+                    misspelled.add(words.get(i));
+                }
+            }
+        }
+        long looked = Metrics.record(Metrics.Stage.LOOKUP, tokenized);
+        return new Scan(text, tokens, misspelled, started, tokenized, looked);
+    }
+    
+    // Builds the result from the candidates; searched is when they were found
+    private SpellCheckResult finish(Scan scan, Map<String, List<String>> candidates, long searched, long version) {
+        String text = scan.text;
+        List<SpellCheckResult.Token> tokens = scan.tokens;
+        Set<String> misspelled = scan.misspelled;
+        long ranked = searched;
         
-        for (String word : sourceDocument) {
-            if (!languageModel.isValidWord(word) && !word.trim().isEmpty()) {
-                List<String> candidates = candidateGenerator.generateCandidates(word, languageModel);
-                candidateMap.put(word, candidates);
+        List<SpellCheckResult.SpellingError> errors = new ArrayList<>();
+        if (!misspelled.isEmpty()) {
+            NGramModel ngrams = ngramModel;
+            for (int i = 0; i < tokens.size(); i++) {
+                SpellCheckResult.Token token = tokens.get(i);
+                if (misspelled.contains(token.getWord())) {
+                    List<String> found = candidates.get(token.getWord());
+                    if (found == null) {
+                        found = Collections.emptyList();
+                    } else if (ngrams != null && found.size() > 1) {
+                        found = ngrams.rerank(found, neighbour(text, tokens, i, -2), neighbour(text, tokens, i, -1),
+                            neighbour(text, tokens, i, 1), neighbour(text, tokens, i, 2));
+                    }
+                    errors.add(new SpellCheckResult.SpellingError(token, found));
+                }
             }
+            ranked = Metrics.record(Metrics.Stage.RANKING, searched);
+        }
+        Metrics.checked(text, tokens.size(), errors.size(), scan.started, scan.tokenized, scan.looked, searched,
+            ranked);
+        return new SpellCheckResult(text, tokens, errors, version);
+    }
+    
+    // The word `distance` tokens before (negative) or after the given one within
+    // its sentence, the sentence marker where the sentence ends, null beyond it
+    private static String neighbour(String text, List<SpellCheckResult.Token> tokens, int index, int distance) {
+        int step = distance < 0 ? -1 : 1;
+        int current = index;
+        for (int moved = 1; moved <= Math.abs(distance); moved++) {
+            int next = current + step;
+            boolean boundary = next < 0 || next >= tokens.size() || (step < 0
+                ? NGramModel.isSentenceBreak(text, tokens.get(next).getEnd(), tokens.get(current).getStart())
+                : NGramModel.isSentenceBreak(text, tokens.get(current).getEnd(), tokens.get(next).getStart()));
+            if (boundary) {
+                if (moved < Math.abs(distance)) {
+                    return null;
+                }
+                return step < 0 ? NGramModel.SENTENCE_START : NGramModel.SENTENCE_END;
+            }
+            current = next;
+        }
+        return tokens.get(current).getWord();
+    }
+    
+    private Map<String, List<String>> generateCandidates(Collection<String> words, LanguageModel model) {
+        return candidateGenerator.generateCandidates(words, model);
+    }
+    
+    private void setLastResult(SpellCheckResult result) {
+        Map<String, List<String>> candidates = new HashMap<>();
+        for (SpellCheckResult.SpellingError error : result.getErrors()) {
+            candidates.put(error.getWord(), error.getCandidates());
         }
+        lastResult = result;
+        candidateMap = candidates;
+    }
+    
+    public SpellCheckResult getLastResult() {
+        return lastResult;
     }
     
     public void displayMisspelledWords() {
@@ -81,18 +368,10 @@ public class TeluguSpellChecker {
         }
     }
     
+    // Source text with each misspelled token replaced by its top candidate;
+    // spacing and punctuation around the tokens are kept as they were
     public String getCorrectedText() {
-        List<String> correctedDocument = new ArrayList<>();
-        
-        for (String word : sourceDocument) {
-            if (candidateMap.containsKey(word) && !candidateMap.get(word).isEmpty()) {
-                correctedDocument.add(candidateMap.get(word).get(0));
-            } else {
-                correctedDocument.add(word);
-            }
-        }
-        
-        return String.join(" ", correctedDocument);
+        return lastResult.getCorrectedText();
     }
     
     public Map<String, List<String>> getCandidateMap() {
@@ -100,7 +379,7 @@ public class TeluguSpellChecker {
     }
     
     public void saveIndex(String indexPath) {
-        languageModel.saveModel(indexPath);
+        models.current().saveModel(indexPath);
         System.out.println("Index saved to: " + indexPath);
     }
 }
\ No newline at end of file
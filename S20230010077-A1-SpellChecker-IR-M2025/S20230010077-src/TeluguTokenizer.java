@@ -0,0 +1,132 @@
+import java.io.*;
+import java.util.*;
+
+// Word tokenizer shared by dump processing, corpus building and document checking.
+// Scans a CharSequence in place and reports token offsets, so no regex or
+// substring is created unless the caller asks for one. A token is a run of
+// letters, digits and combining marks; ZWJ/ZWNJ are kept when they join two
+// token characters (they select conjunct forms in Telugu). Everything else,
+// whitespace and punctuation alike, separates tokens.
+public class TeluguTokenizer {
+    public static final char ZWNJ = '\u200C';
+    public static final char ZWJ = '\u200D';
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    
+    public interface TokenHandler {
+        // telugu is true when the token contains a Telugu code point
+        void token(CharSequence text, int start, int end, boolean telugu);
+    }
+    
+    public static void tokenize(CharSequence text, TokenHandler handler) {
+        tokenize(text, 0, text.length(), handler);
+    }
+    
+    public static void tokenize(CharSequence text, int from, int to, TokenHandler handler) {
+        int i = from;
+        while (i < to) {
+            int cp = Character.codePointAt(text, i);
+            if (!isTokenCodePoint(cp)) {
+                i += Character.charCount(cp);
+                continue;
+            }
+            
+            int start = i;
+            boolean telugu = false;
+            while (i < to) {
+                char c = text.charAt(i);
+                if (isTelugu(c)) {
+                    telugu = true;
+                    i++;
+                } else if (c == ZWJ || c == ZWNJ) {
+                    if (i + 1 < to && isTokenCodePoint(Character.codePointAt(text, i + 1))) {
+                        i++;
+                    } else {
+                        break;
+                    }
+                } else {
+                    cp = Character.codePointAt(text, i);
+                    if (!isTokenCodePoint(cp)) {
+                        break;
+                    }
+                    i += Character.charCount(cp);
+                }
+            }
+            handler.token(text, start, i, telugu);
+        }
+    }
+    
+    // Streams a reader through a reusable buffer. Each chunk is cut after its
+    // last separator, so tokens never straddle two chunks. Chunks are scanned as
+    // Strings: faster than a CharBuffer view, and C2 in JDK 17.0.9 crashes
+    // compiling the scan loop over a CharBuffer.
+    public static void tokenize(Reader reader, TokenHandler handler) throws IOException {
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        int length = 0;
+        while (true) {
+            int read = reader.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                tokenize(new String(buffer, 0, length), handler);
+                return;
+            }
+            length += read;
+            int cut = length;
+            while (cut > 0 && mayContinueToken(buffer[cut - 1])) {
+                cut--;
+            }
+            if (cut == 0) {
+                if (length == buffer.length) {
+                    // A single token fills the buffer
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                continue;
+            }
+            tokenize(new String(buffer, 0, cut), handler);
+            System.arraycopy(buffer, cut, buffer, 0, length - cut);
+            length -= cut;
+        }
+    }
+    
+    public static List<String> tokens(CharSequence text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, (source, start, end, telugu) -> tokens.add(source.subSequence(start, end).toString()));
+        return tokens;
+    }
+    
+    // Start/end pairs of every token
+    public static int[] offsets(CharSequence text) {
+        int[][] offsets = {new int[16]};
+        int[] count = {0};
+        tokenize(text, (source, start, end, telugu) -> {
+            if (count[0] + 2 > offsets[0].length) {
+                offsets[0] = Arrays.copyOf(offsets[0], offsets[0].length * 2);
+            }
+            offsets[0][count[0]++] = start;
+            offsets[0][count[0]++] = end;
+        });
+        return Arrays.copyOf(offsets[0], count[0]);
+    }
+    
+    public static boolean isTelugu(int codePoint) {
+        return codePoint >= 0x0C00 && codePoint <= 0x0C7F;
+    }
+    
+    public static boolean isTokenCodePoint(int cp) {
+        if (cp < 0x80) {
+            return (cp >= 'a' && cp <= 'z') || (cp >= 'A' && cp <= 'Z') || (cp >= '0' && cp <= '9');
+        }
+        if (isTelugu(cp)) {
+            return true;
+        }
+        if (Character.isLetterOrDigit(cp)) {
+            return true;
+        }
+        int type = Character.getType(cp);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+            || type == Character.ENCLOSING_MARK;
+    }
+    
+    // Conservative check used to find a safe chunk boundary
+    static boolean mayContinueToken(char c) {
+        return c == ZWJ || c == ZWNJ || Character.isSurrogate(c) || isTokenCodePoint(c);
+    }
+}
\ No newline at end of file
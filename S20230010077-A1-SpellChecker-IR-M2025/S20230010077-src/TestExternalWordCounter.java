@@ -0,0 +1,84 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class TestExternalWordCounter {
+    
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== EXTERNAL WORD COUNTER TEST CASES ===");
+        
+        int failed = 0;
+        failed += testMultiPassMerge();
+        failed += testLongTokens();
+        
+        System.out.println(failed == 0 ? "\nAll counter tests passed" : "\n" + failed + " counter test(s) FAILED");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+    
+    // 200 runs need a first merge pass in groups of MAX_FAN_IN; the result must
+    // equal the counts summed in memory, in word order, pruned at minCount
+    private static int testMultiPassMerge() throws IOException {
+        System.out.println("\n--- 200 runs, multi-pass merge ---");
+        Random random = new Random(1);
+        Map<String, Long> expected = new TreeMap<>();
+        try (ExternalWordCounter counter = new ExternalWordCounter(tempDir(), 1)) {
+            for (int run = 0; run < 200; run++) {
+                FrequencyTable counts = new FrequencyTable();
+                for (int i = 0; i < 500; i++) {
+                    String word = "పదం" + random.nextInt(20000);
+                    counts.add(word, 1);
+                    expected.merge(word, 1L, Long::sum);
+                }
+                counter.spill(counts);
+            }
+            expected.values().removeIf(count -> count < 3);
+            Map<String, Long> merged = new LinkedHashMap<>();
+            long written = counter.merge(3, merged::put);
+            
+            boolean passed = written == expected.size()
+                && new ArrayList<>(merged.entrySet()).equals(new ArrayList<>(expected.entrySet()));
+            System.out.println("Runs: " + counter.getRunCount() + ", words written: " + written
+                + ", expected: " + expected.size());
+            System.out.println(passed ? "PASS" : "FAIL: merged counts differ from the in-memory counts");
+            return passed ? 0 : 1;
+        }
+    }
+    
+    // Tokens over the 64 KB limit of DataOutput.writeUTF, and non-BMP words
+    private static int testLongTokens() throws IOException {
+        System.out.println("\n--- Tokens longer than 64 KB ---");
+        StringBuilder longWord = new StringBuilder();
+        while (longWord.length() < 40_000) {
+            longWord.append("తెలుగు");   // 3 UTF-8 bytes per char
+        }
+        Map<String, Long> expected = new TreeMap<>();
+        expected.put(longWord.toString(), 2L);
+        expected.put("భాష", 3L);
+        expected.put("😀భాష", 2L);
+        try (ExternalWordCounter counter = new ExternalWordCounter(tempDir(), 1)) {
+            for (int run = 0; run < 3; run++) {
+                FrequencyTable counts = new FrequencyTable();
+                counts.add("భాష", 1);
+                if (run > 0) {
+                    counts.add(longWord.toString(), 1);
+                    counts.add("😀భాష", 1);
+                }
+                counter.spill(counts);
+            }
+            Map<String, Long> merged = new LinkedHashMap<>();
+            counter.merge(1, merged::put);
+            boolean passed = merged.equals(expected);
+            System.out.println(passed ? "PASS" : "FAIL: long or non-BMP words did not survive the runs");
+            return passed ? 0 : 1;
+        } catch (UTFDataFormatException e) {
+            System.out.println("FAIL: " + e);
+            return 1;
+        }
+    }
+    
+    private static Path tempDir() {
+        return Paths.get(System.getProperty("java.io.tmpdir"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+import java.util.*;
+
+public class TestLanguageModelUpdates {
+    private static final String LETTERS = "కగచజటడతదనపబమయరలవసహ";
+    
+    public static void main(String[] args) {
+        System.out.println("=== LANGUAGE MODEL UPDATE TEST CASES ===");
+        
+        int failed = 0;
+        failed += testLearnedWords();
+        failed += testAutomatonFollowsUpdates();
+        
+        System.out.println(failed == 0 ? "\nAll update tests passed" : "\n" + failed + " update test(s) FAILED");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+    
+    // Words learned one at a time, some of them removed again, must read back
+    // with the summed counts and be found by the deletion index
+    private static int testLearnedWords() {
+        System.out.println("\n--- Words learned one at a time ---");
+        Random random = new Random(1);
+        Map<String, Integer> base = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            base.put(randomWord(random), 1 + random.nextInt(50));
+        }
+        LanguageModel model = new LanguageModel();
+        model.enableDeletionIndex(1);
+        model.setWordStore(new HashWordStore(base));
+        
+        Map<String, Integer> expected = new HashMap<>(base);
+        List<String> learned = new ArrayList<>();
+        long started = System.currentTimeMillis();
+        for (int i = 0; i < 5000; i++) {
+            String word = random.nextInt(4) == 0 && !learned.isEmpty()
+                ? learned.get(random.nextInt(learned.size())) : randomWord(random) + "ా";
+            int count = random.nextInt(10) == 0 ? -3 : 1 + random.nextInt(3);
+            model.addWord(word, count);
+            learned.add(word);
+            expected.merge(word, count, Integer::sum);
+        }
+        System.out.println("5000 updates in " + (System.currentTimeMillis() - started) + " ms");
+        
+        int wrong = 0;
+        long total = 0;
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            int frequency = Math.max(0, entry.getValue());
+            total += frequency;
+            if (model.getWordStore().getFrequency(entry.getKey()) != frequency
+                    || model.isValidWord(entry.getKey()) != frequency > 0) {
+                wrong++;
+            }
+        }
+        if (total != model.getWordStore().getTotalFrequency()
+                || model.getWordFrequencies().size() != model.getWordStore().size()) {
+            wrong++;
+        }
+        int missed = 0;
+        for (String word : learned) {
+            // The learned word with its last vowel sign changed is one edit away
+            Map<String, Integer> candidates = model.deletionCandidates(word.substring(0, word.length() - 1) + "ి");
+            if (model.isValidWord(word) && !candidates.containsKey(word)) {
+                missed++;
+            }
+        }
+        System.out.println("Wrong counts: " + wrong + ", learned words missed by the deletion index: " + missed);
+        boolean passed = wrong == 0 && missed == 0;
+        System.out.println(passed ? "PASS" : "FAIL");
+        return passed ? 0 : 1;
+    }
+    
+    // An automaton built before an update must not be returned after it
+    private static int testAutomatonFollowsUpdates() {
+        System.out.println("\n--- Automaton after updates ---");
+        LanguageModel model = new LanguageModel();
+        model.setWordStore(new HashWordStore(new HashMap<>(Collections.singletonMap("తెలుగు", 5))));
+        int stale = 0;
+        for (int i = 0; i < 50; i++) {
+            model.getAutomaton();
+            String word = "భాష" + LETTERS.charAt(i % LETTERS.length()) + i;
+            model.addWord(word, 1 + i);
+            DawgWordStore automaton = model.getAutomaton();
+            if (automaton.getFrequency(word) != 1 + i || automaton.size() != model.getWordStore().size()) {
+                stale++;
+            }
+        }
+        System.out.println("Stale automatons: " + stale);
+        System.out.println(stale == 0 ? "PASS" : "FAIL");
+        return stale == 0 ? 0 : 1;
+    }
+    
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 3 + random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            word.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        return word.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+import java.util.*;
+
+public class TestNoisyChannelSearch {
+    
+    public static void main(String[] args) {
+        System.out.println("=== NOISY CHANNEL SEARCH TEST CASES ===");
+        
+        String[] words = {"క", "కం", "కా", "కాం"};
+        Arrays.sort(words);
+        int[] frequencies = new int[words.length];
+        Arrays.fill(frequencies, 5);
+        DawgWordStore dawg = DawgWordStore.build(words, frequencies, 5L * words.length);
+        NoisyChannelSearch search = new NoisyChannelSearch(dawg, ErrorModel.defaults());
+        
+        int failed = 0;
+        for (String input : new String[] {"కం", "క", "కాం", "కి"}) {
+            failed += testCase(search, input);
+        }
+        
+        // A cheap path with three edits reaches the prefix క్ before the two-edit one
+        String[] fewer = {"కాల", "మేము"};
+        Arrays.sort(fewer);
+        int[] counts = new int[fewer.length];
+        for (int i = 0; i < fewer.length; i++) {
+            counts[i] = fewer[i].equals("కాల") ? 100 : 5;
+        }
+        NoisyChannelSearch twoEdits = new NoisyChannelSearch(DawgWordStore.build(fewer, counts, 105),
+            ErrorModel.defaults());
+        failed += expectCorrection(twoEdits.search("క్ట", 2, 10, 100), "క్ట", "కాల");
+        
+        // Two default-cost substitutions spend the whole budget the spell checker uses
+        String[] unrelated = {"కమల"};
+        NoisyChannelSearch exactBudget = new NoisyChannelSearch(
+            DawgWordStore.build(unrelated, new int[] {10}, 10), ErrorModel.defaults());
+        failed += expectCorrection(exactBudget.search("కటప", 2, 10, 2 * ErrorModel.DEFAULT_COST), "కటప", "కమల");
+        
+        System.out.println(failed == 0 ? "\nAll search tests passed" : "\n" + failed + " search test(s) FAILED");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+    
+    // Every suggestion is a distinct dictionary word other than the input
+    private static int testCase(NoisyChannelSearch search, String input) {
+        List<String> results = search.search(input, 2, 10, 2 * ErrorModel.DEFAULT_COST);
+        System.out.println("\n--- " + input + " -> " + results + " ---");
+        if (results.contains(input)) {
+            System.out.println("FAIL: the input is suggested as its own correction");
+            return 1;
+        }
+        if (new HashSet<>(results).size() != results.size()) {
+            System.out.println("FAIL: a word is suggested more than once");
+            return 1;
+        }
+        System.out.println("PASS");
+        return 0;
+    }
+    
+    private static int expectCorrection(List<String> results, String input, String expected) {
+        System.out.println("\n--- " + input + " -> " + results + " ---");
+        if (!results.contains(expected)) {
+            System.out.println("FAIL: expected " + expected);
+            return 1;
+        }
+        System.out.println("PASS");
+        return 0;
+    }
+}
\ No newline at end of file
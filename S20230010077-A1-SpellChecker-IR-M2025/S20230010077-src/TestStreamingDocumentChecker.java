@@ -0,0 +1,83 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class TestStreamingDocumentChecker {
+    private static final int CHUNK_CHARS = 1024;
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== STREAMING DOCUMENT CHECKER TEST CASES ===");
+        
+        LanguageModel model = new LanguageModel();
+        Map<String, Integer> words = new HashMap<>();
+        words.put("తెలుగు", 10);
+        words.put("భాష", 8);
+        model.addWords(words);
+        TeluguSpellChecker spellChecker = new TeluguSpellChecker();
+        spellChecker.initializeWithModel(model);
+        
+        int failed = 0;
+        failed += testCase("Non-BMP char at the chunk boundary",
+            spellChecker, repeat('a', CHUNK_CHARS - 1) + "😀 tail", null);
+        failed += testCase("Non-BMP char after a separator at the boundary",
+            spellChecker, repeat(' ', CHUNK_CHARS - 1) + "😀 tail", null);
+        failed += testCase("Non-BMP chars throughout",
+            spellChecker, repeat("తెలుగ 😀 ", 600), repeat("తెలుగు 😀 ", 600));
+        String longToken = repeat('క', CHUNK_CHARS + 10);
+        failed += testCase("Token longer than a chunk",
+            spellChecker, "భాష " + longToken + " భష", "భాష " + longToken + " భాష");
+        
+        System.out.println(failed == 0 ? "\nAll streaming tests passed" : "\n" + failed + " streaming test(s) FAILED");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+    
+    // Streams the text through small chunks and compares the output with the
+    // expected text (the input itself when null); a hang counts as a failure
+    private static int testCase(String name, TeluguSpellChecker spellChecker, String text, String expected)
+            throws Exception {
+        System.out.println("\n--- " + name + " ---");
+        Path input = Files.createTempFile("streaming", ".txt");
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Files.write(input, text.getBytes(StandardCharsets.UTF_8));
+            StringWriter output = new StringWriter();
+            StreamingDocumentChecker streaming = new StreamingDocumentChecker(spellChecker, CHUNK_CHARS, 2);
+            Future<StreamingDocumentChecker.Summary> task = executor.submit(() -> streaming.check(input, output));
+            StreamingDocumentChecker.Summary summary;
+            try {
+                summary = task.get(30, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                System.out.println("FAIL: no result after 30 seconds");
+                return 1;
+            }
+            String want = expected != null ? expected : text;
+            boolean passed = output.toString().equals(want) && summary.chars == text.length();
+            System.out.println("Summary: " + summary);
+            System.out.println(passed ? "PASS" : "FAIL: output differs from the expected text");
+            return passed ? 0 : 1;
+        } finally {
+            executor.shutdownNow();
+            Files.deleteIfExists(input);
+        }
+    }
+    
+    private static String repeat(char c, int count) {
+        return repeat(String.valueOf(c), count);
+    }
+    
+    private static String repeat(String text, int count) {
+        StringBuilder out = new StringBuilder(text.length() * count);
+        for (int i = 0; i < count; i++) {
+            out.append(text);
+        }
+        return out.toString();
+    }
+}
\ No newline at end of file
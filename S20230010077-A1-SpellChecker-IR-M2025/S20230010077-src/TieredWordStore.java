@@ -0,0 +1,114 @@
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+// Two-tier view of a memory-mapped index: the most frequent words are copied
+// into an in-heap FrequencyTable (hot tier) and answered from there; all other
+// lookups go to the mapped index (cold tier) behind a Bloom filter over the
+// cold words. Most misspellings and candidate edits are in neither tier and
+// are rejected by the filter without a binary search over the mapped pages.
+//
+// The heap budget covers both the filter and the hot table; whatever the
+// filter leaves goes to the hot tier, most frequent words first.
+public class TieredWordStore implements WordStore {
+    public static final double FALSE_POSITIVE_RATE = 0.01;
+    
+    private final FrequencyTable hot;
+    private final BloomFilter coldFilter;
+    private final MappedWordStore cold;
+    
+    private TieredWordStore(FrequencyTable hot, BloomFilter coldFilter, MappedWordStore cold) {
+        this.hot = hot;
+        this.coldFilter = coldFilter;
+        this.cold = cold;
+    }
+    
+    public static TieredWordStore open(MappedWordStore cold, long heapBudgetBytes) {
+        int count = cold.size();
+        long filterBytes = BloomFilter.estimatedBytes(count, FALSE_POSITIVE_RATE);
+        long hotBudget = heapBudgetBytes - filterBytes;
+        
+        // Word indexes by descending frequency: frequency in the high half, index in the low
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = ((long) cold.frequencyAt(i) << 32) | i;
+        }
+        Arrays.sort(order);
+        
+        // Hot words until their estimated table size reaches the budget
+        // (FrequencyTable: about 36 bytes per entry plus 2 per char)
+        List<String> hotWords = new ArrayList<>();
+        boolean[] isHot = new boolean[count];
+        long used = 0;
+        for (int i = count - 1; i >= 0; i--) {
+            int index = (int) order[i];
+            if (cold.frequencyAt(index) <= 0) {
+                break;
+            }
+            String word = cold.wordAt(index);
+            used += 36 + 2L * word.length();
+            if (used > hotBudget) {
+                break;
+            }
+            hotWords.add(word);
+            isHot[index] = true;
+        }
+        
+        FrequencyTable hot = new FrequencyTable(hotWords.size());
+        for (String word : hotWords) {
+            hot.add(word, cold.getFrequency(word));
+        }
+        BloomFilter coldFilter = new BloomFilter(count - hotWords.size(), FALSE_POSITIVE_RATE);
+        for (int i = 0; i < count; i++) {
+            if (!isHot[i]) {
+                coldFilter.add(cold.hashAt(i));
+            }
+        }
+        return new TieredWordStore(hot, coldFilter, cold);
+    }
+    
+    @Override
+    public int getFrequency(String word) {
+        // Hot words all have a frequency above 0
+        int frequency = hot.getFrequency(word);
+        if (frequency > 0 || !coldFilter.mightContain(MappedWordStore.hash(word))) {
+            return frequency;
+        }
+        return cold.getFrequency(word);
+    }
+    
+    @Override
+    public boolean contains(String word) {
+        if (hot.contains(word)) {
+            return true;
+        }
+        return coldFilter.mightContain(MappedWordStore.hash(word)) && cold.contains(word);
+    }
+    
+    @Override
+    public int size() {
+        return cold.size();
+    }
+    
+    @Override
+    public long getTotalFrequency() {
+        return cold.getTotalFrequency();
+    }
+    
+    @Override
+    public void forEach(ObjIntConsumer<String> action) {
+        cold.forEach(action);
+    }
+    
+    public int getHotWordCount() {
+        return hot.size();
+    }
+    
+    public MappedWordStore getColdTier() {
+        return cold;
+    }
+    
+    // Heap held by the hot table and the filter; the cold tier is mapped
+    public long estimatedBytes() {
+        return hot.estimatedBytes() + coldFilter.estimatedBytes();
+    }
+}
\ No newline at end of file
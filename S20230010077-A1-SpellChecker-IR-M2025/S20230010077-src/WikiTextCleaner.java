@@ -0,0 +1,426 @@
+import java.util.*;
+
+// Single-pass wikitext to plain text converter. Walks the markup once, skipping
+// templates (nested), comments, references and other non-prose tags, file/image
+// and category links, and emits link labels, external link labels and decoded
+// entities. Whitespace is collapsed to single spaces as it is written.
+public class WikiTextCleaner {
+    // Tags whose content is not article prose
+    private static final Set<String> SKIPPED_TAGS = Set.of(
+        "ref", "references", "math", "chem", "gallery", "syntaxhighlight", "source",
+        "timeline", "score", "templatedata", "graph", "mapframe", "imagemap"
+    );
+    
+    // Link namespaces that are not rendered as text (English and Telugu names)
+    private static final Set<String> SKIPPED_NAMESPACES = Set.of(
+        "file", "image", "media", "category",
+        "దస్త్రం",
+        "బొమ్మ",
+        "ఫైలు",
+        "వర్గం"
+    );
+    
+    // Wikipedia language editions: [[en:Telugu]] is an interlanguage link,
+    // shown in the sidebar rather than the text. Other prefixes (Wikipedia:,
+    // wikt:, ...) are ordinary links whose label is prose.
+    private static final Set<String> LANGUAGE_CODES = new HashSet<>(Arrays.asList((
+        "aa ab ace ady af ak als alt am ami an ang anp ar arc ary arz as ast atj av avk awa ay az azb ba ban "
+        + "bar bat-smg bbc bcl be be-tarask be-x-old bew bg bh bi bjn blk bm bn bo bpy br bs bug bxr ca cbk-zam "
+        + "cdo ce ceb ch cho chr chy ckb co cr crh cs csb cu cv cy da dag de dga din diq dsb dtp dty dv dz ee "
+        + "el eml en eo es et eu ext fa fat ff fi fiu-vro fj fo fon fr frp frr fur fy ga gag gan gcr gd gl glk "
+        + "gn gom gor got gpe gu guc gur guw gv ha hak haw he hi hif ho hr hsb ht hu hy hyw hz ia iba id ie ig "
+        + "igl ii ik ilo inh io is it iu ja jam jbo jv ka kaa kab kbd kbp kcg kg kge ki kj kk kl km kn knc ko "
+        + "koi kr krc ks ksh ku kus kv kw ky la lad lb lbe lez lfn lg li lij lld lmo ln lo lrc lt ltg lv lzh "
+        + "mad mai map-bms mdf mg mh mhr mi min mk ml mn mni mnw mo mos mr mrj ms mt mus mwl my myv mzn na nah "
+        + "nap nds nds-nl ne new ng nia nl nn no nov nqo nr nrm nso nv ny oc olo om or os pa pag pam pap pcd "
+        + "pcm pdc pfl pi pih pl pms pnb pnt ps pt pwn qu rm rmy rn ro roa-rup roa-tara rsk ru rue rup rw sa "
+        + "sah sat sc scn sco sd se sg sgs sh shi shn si simple sk skr sl sm smn sn so sq sr srn ss st stq su "
+        + "sv sw syl szl szy ta tay tcy tdd te tet tg th ti tk tl tly tn to tpi tr trv ts tt tum tw ty tyv udm "
+        + "ug uk ur uz ve vec vep vi vls vo vro wa war wo wuu xal xh xmf yi yo yue za zea zgh zh zh-classical "
+        + "zh-min-nan zh-yue zu").split(" ")));
+    
+    public static String clean(CharSequence wikiText) {
+        StringBuilder out = new StringBuilder(wikiText.length() / 2);
+        clean(wikiText, out);
+        return out.toString();
+    }
+    
+    // Appends the clean text to out (no leading or trailing space)
+    public static void clean(CharSequence wikiText, StringBuilder out) {
+        int start = out.length();
+        scan(wikiText, 0, wikiText.length(), out, start, new Unclosed());
+        if (out.length() > start && out.charAt(out.length() - 1) == ' ') {
+            out.setLength(out.length() - 1);
+        }
+    }
+    
+    // Searches for closing markup that ran to the end of their range. A later
+    // opener in that range gets its answer from here, so a broken page with many
+    // unclosed {{ or <ref> is still scanned in linear time.
+    private static final class Unclosed {
+        // Every {{ seen by the last failed template search, which started at
+        // templatesFrom and was bounded by templatesTo, with the index after its
+        // closing braces (-1 if there are none)
+        Map<Integer, Integer> templateEnds = Collections.emptyMap();
+        int templatesFrom = -1;
+        int templatesTo = -1;
+        // Per tag name, the range [from, to) with no closing tag from its start
+        final Map<String, int[]> noClosingTag = new HashMap<>();
+        // No '>' from here to noTagEndTo
+        int noTagEndFrom = -1;
+        int noTagEndTo = -1;
+    }
+    
+    private static void scan(CharSequence s, int from, int to, StringBuilder out, int start, Unclosed unclosed) {
+        int i = from;
+        while (i < to) {
+            // Copy plain text runs in one append
+            int run = i;
+            while (run < to && !isSpecial(s.charAt(run))) {
+                run++;
+            }
+            if (run > i) {
+                out.append(s, i, run);
+                i = run;
+                continue;
+            }
+            char c = s.charAt(i);
+            switch (c) {
+                case '{':
+                    if (at(s, i + 1, to, '{')) {
+                        int end = skipTemplate(s, i, to, unclosed);
+                        i = end >= 0 ? end : i + 2;
+                        continue;
+                    }
+                    break;
+                case '[':
+                    i = at(s, i + 1, to, '[') ? link(s, i, to, out, start, unclosed)
+                        : externalLink(s, i, to, out, start, unclosed);
+                    continue;
+                case '<':
+                    i = tag(s, i, to, out, start, unclosed);
+                    continue;
+                case '&':
+                    i = entity(s, i, to, out, start);
+                    continue;
+                case 'h':
+                    if (startsWith(s, i, to, "http://") || startsWith(s, i, to, "https://")) {
+                        while (i < to && !Character.isWhitespace(s.charAt(i))) {
+                            i++;
+                        }
+                        continue;
+                    }
+                    break;
+                default:
+                    if (Character.isWhitespace(c)) {
+                        space(out, start);
+                        i++;
+                        continue;
+                    }
+            }
+            out.append(c);
+            i++;
+        }
+    }
+    
+    // {{...}} including nested templates and {{{parameters}}}; returns the index
+    // after the closing braces, or -1 if they are missing
+    private static int skipTemplate(CharSequence s, int i, int to, Unclosed unclosed) {
+        if (i >= unclosed.templatesFrom && to <= unclosed.templatesTo) {
+            Integer end = unclosed.templateEnds.get(i);
+            if (end != null) {
+                return end <= to ? end : -1;
+            }
+        }
+        int from = i;
+        int depth = 0;
+        while (i < to) {
+            if (at(s, i, to, '{') && at(s, i + 1, to, '{')) {
+                depth++;
+                i += 2;
+            } else if (at(s, i, to, '}') && at(s, i + 1, to, '}')) {
+                depth--;
+                i += 2;
+                if (depth == 0) {
+                    return i;
+                }
+            } else {
+                i++;
+            }
+        }
+        matchTemplates(s, from, to, unclosed);
+        return -1;
+    }
+    
+    // Pairs up the braces of a failed search once more, now keeping where each
+    // opener closes: the opener at from never does, but ones after it may
+    private static void matchTemplates(CharSequence s, int from, int to, Unclosed unclosed) {
+        Map<Integer, Integer> ends = new HashMap<>();
+        ArrayDeque<Integer> open = new ArrayDeque<>();
+        int i = from;
+        while (i < to) {
+            if (at(s, i, to, '{') && at(s, i + 1, to, '{')) {
+                open.push(i);
+                i += 2;
+            } else if (at(s, i, to, '}') && at(s, i + 1, to, '}')) {
+                i += 2;
+                ends.put(open.pop(), i);
+            } else {
+                i++;
+            }
+        }
+        for (int opener : open) {
+            ends.put(opener, -1);
+        }
+        unclosed.templateEnds = ends;
+        unclosed.templatesFrom = from;
+        unclosed.templatesTo = to;
+    }
+    
+    // [[target]], [[target|label]]; file, category and interlanguage links are dropped
+    private static int link(CharSequence s, int i, int to, StringBuilder out, int start, Unclosed unclosed) {
+        int depth = 0;
+        int close = -1;
+        for (int j = i; j + 1 < to; j++) {
+            if (s.charAt(j) == '[' && s.charAt(j + 1) == '[') {
+                depth++;
+                j++;
+            } else if (s.charAt(j) == ']' && s.charAt(j + 1) == ']') {
+                if (--depth == 0) {
+                    close = j;
+                    break;
+                }
+                j++;
+            }
+        }
+        if (close < 0) {
+            return i + 2;
+        }
+        
+        int inner = i + 2;
+        int pipe = -1;
+        int colon = -1;
+        for (int j = inner; j < close; j++) {
+            char c = s.charAt(j);
+            if (c == '|') {
+                pipe = j;
+                break;
+            }
+            if (c == ':' && colon < 0) {
+                colon = j;
+            }
+        }
+        if (colon > inner && isSkippedPrefix(s, inner, colon)) {
+            return close + 2;
+        }
+        if (pipe >= 0) {
+            scan(s, pipe + 1, close, out, start, unclosed);
+        } else {
+            // [[:Category:X]] is a visible link to the page itself
+            scan(s, at(s, inner, close, ':') ? inner + 1 : inner, close, out, start, unclosed);
+        }
+        return close + 2;
+    }
+    
+    private static boolean isSkippedPrefix(CharSequence s, int from, int to) {
+        String prefix = s.subSequence(from, to).toString().trim().toLowerCase(Locale.ROOT);
+        return SKIPPED_NAMESPACES.contains(prefix) || LANGUAGE_CODES.contains(prefix);
+    }
+    
+    // [http://example.org label] keeps the label; a bare [ is written as is
+    private static int externalLink(CharSequence s, int i, int to, StringBuilder out, int start,
+                                    Unclosed unclosed) {
+        if (!(startsWith(s, i + 1, to, "http://") || startsWith(s, i + 1, to, "https://")
+                || startsWith(s, i + 1, to, "//"))) {
+            out.append('[');
+            return i + 1;
+        }
+        int close = indexOf(s, ']', i + 1, to);
+        if (close < 0) {
+            return i + 1;
+        }
+        int space = i + 1;
+        while (space < close && s.charAt(space) != ' ') {
+            space++;
+        }
+        if (space < close) {
+            scan(s, space + 1, close, out, start, unclosed);
+        }
+        return close + 1;
+    }
+    
+    // Comments and non-prose tags are dropped with their content; other tags
+    // are replaced by a space and their content kept
+    private static int tag(CharSequence s, int i, int to, StringBuilder out, int start, Unclosed unclosed) {
+        if (startsWith(s, i, to, "<!--")) {
+            int end = indexOf(s, "-->", i + 4, to);
+            return end < 0 ? to : end + 3;
+        }
+        int nameStart = at(s, i + 1, to, '/') ? i + 2 : i + 1;
+        int nameEnd = nameStart;
+        while (nameEnd < to && isAsciiLetter(s.charAt(nameEnd))) {
+            nameEnd++;
+        }
+        int close = nameEnd == nameStart ? -1 : indexOfTagEnd(s, nameEnd, to, unclosed);
+        if (close < 0) {
+            out.append('<');
+            return i + 1;
+        }
+        String name = s.subSequence(nameStart, nameEnd).toString().toLowerCase(Locale.ROOT);
+        boolean opening = nameStart == i + 1;
+        boolean selfClosing = s.charAt(close - 1) == '/';
+        space(out, start);
+        if (opening && !selfClosing && SKIPPED_TAGS.contains(name)) {
+            int end = indexOfClosingTag(s, name, close + 1, to, unclosed);
+            if (end >= 0) {
+                return end;
+            }
+        }
+        return close + 1;
+    }
+    
+    private static int indexOfTagEnd(CharSequence s, int from, int to, Unclosed unclosed) {
+        if (from >= unclosed.noTagEndFrom && to <= unclosed.noTagEndTo) {
+            return -1;
+        }
+        int close = indexOf(s, '>', from, to);
+        if (close < 0) {
+            unclosed.noTagEndFrom = from;
+            unclosed.noTagEndTo = to;
+        }
+        return close;
+    }
+    
+    // Index after "</name...>" (the whole name, so </references> does not close
+    // <ref>), or -1
+    private static int indexOfClosingTag(CharSequence s, String name, int from, int to, Unclosed unclosed) {
+        int[] none = unclosed.noClosingTag.get(name);
+        if (none != null && from >= none[0] && to <= none[1]) {
+            return -1;
+        }
+        for (int j = indexOf(s, "</", from, to); j >= 0; j = indexOf(s, "</", j + 2, to)) {
+            int nameEnd = j + 2 + name.length();
+            if (startsWithIgnoreCase(s, j + 2, to, name) && !(nameEnd < to && isAsciiLetter(s.charAt(nameEnd)))) {
+                int close = indexOfTagEnd(s, nameEnd, to, unclosed);
+                if (close >= 0) {
+                    return close + 1;
+                }
+                break;
+            }
+        }
+        unclosed.noClosingTag.put(name, new int[] {from, to});
+        return -1;
+    }
+    
+    private static int entity(CharSequence s, int i, int to, StringBuilder out, int start) {
+        int semicolon = -1;
+        for (int j = i + 1; j < to && j <= i + 10; j++) {
+            char c = s.charAt(j);
+            if (c == ';') {
+                semicolon = j;
+                break;
+            }
+            if (!isAsciiLetter(c) && !(c >= '0' && c <= '9') && c != '#') {
+                break;
+            }
+        }
+        if (semicolon < 0 || semicolon == i + 1) {
+            out.append('&');
+            return i + 1;
+        }
+        String name = s.subSequence(i + 1, semicolon).toString();
+        if (name.startsWith("#")) {
+            try {
+                int codePoint = (name.length() > 1 && (name.charAt(1) == 'x' || name.charAt(1) == 'X'))
+                    ? Integer.parseInt(name.substring(2), 16) : Integer.parseInt(name.substring(1));
+                if (Character.isWhitespace(codePoint) || codePoint == 0xA0) {
+                    space(out, start);
+                } else if (Character.isValidCodePoint(codePoint)) {
+                    out.appendCodePoint(codePoint);
+                }
+            } catch (NumberFormatException e) {
+                // malformed numeric entity, dropped
+            }
+            return semicolon + 1;
+        }
+        switch (name) {
+            case "nbsp": case "ensp": case "emsp": case "thinsp":
+                space(out, start);
+                break;
+            case "amp": out.append('&'); break;
+            case "lt": out.append('<'); break;
+            case "gt": out.append('>'); break;
+            case "quot": out.append('"'); break;
+            case "apos": out.append('\''); break;
+            case "zwj": out.append('\u200D'); break;
+            case "zwnj": out.append('\u200C'); break;
+            default: break;
+        }
+        return semicolon + 1;
+    }
+    
+    private static boolean isSpecial(char c) {
+        switch (c) {
+            case '{': case '[': case '<': case '&': case 'h':
+                return true;
+            default:
+                return c <= ' ' || (c >= '\u1680' && Character.isWhitespace(c));
+        }
+    }
+    
+    private static void space(StringBuilder out, int start) {
+        if (out.length() > start && out.charAt(out.length() - 1) != ' ') {
+            out.append(' ');
+        }
+    }
+    
+    private static boolean at(CharSequence s, int i, int to, char c) {
+        return i < to && s.charAt(i) == c;
+    }
+    
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+    
+    private static boolean startsWith(CharSequence s, int i, int to, String prefix) {
+        if (i + prefix.length() > to) {
+            return false;
+        }
+        for (int k = 0; k < prefix.length(); k++) {
+            if (s.charAt(i + k) != prefix.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean startsWithIgnoreCase(CharSequence s, int i, int to, String prefix) {
+        if (i + prefix.length() > to) {
+            return false;
+        }
+        for (int k = 0; k < prefix.length(); k++) {
+            if (Character.toLowerCase(s.charAt(i + k)) != prefix.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int indexOf(CharSequence s, char c, int from, int to) {
+        for (int j = from; j < to; j++) {
+            if (s.charAt(j) == c) {
+                return j;
+            }
+        }
+        return -1;
+    }
+    
+    private static int indexOf(CharSequence s, String target, int from, int to) {
+        for (int j = from; j + target.length() <= to; j++) {
+            if (startsWith(s, j, to, target)) {
+                return j;
+            }
+        }
+        return -1;
+    }
+}
\ No newline at end of file
@@ -1,38 +1,90 @@
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.xml.stream.*;
 
 public class WikipediaDumpProcessor {
-    private static final Set<String> TELUGU_STOP_WORDS = Set.of(
-        "మరియు", "కానీ", "అయితే", "కాబట్టి", "అని", "గా", "ను", "ను", "కు", "లో", "నుండి"
+    private static final FrequencyTable TELUGU_STOP_WORDS = FrequencyTable.of(
+        "మరియు", "కానీ", "అయితే", "కాబట్టి", "అని", "గా", "ను", "కు", "లో", "నుండి"
     );
+    private static final int PAGES_PER_BATCH = 64;
+    
+    // Heap for word counts before they are spilled to disk (out-of-core counting)
+    public static final long DEFAULT_MEMORY_BUDGET = 256L << 20;
+    
+    private final int workerThreads;
+    private final long memoryBudgetBytes;
+    
+    public WikipediaDumpProcessor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    
+    public WikipediaDumpProcessor(int workerThreads) {
+        this(workerThreads, DEFAULT_MEMORY_BUDGET);
+    }
+    
+    public WikipediaDumpProcessor(int workerThreads, long memoryBudgetBytes) {
+        this.workerThreads = Math.max(1, workerThreads);
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
 
     public Map<String, Integer> processDump(String dumpFilePath, String outputTextPath) {
         Map<String, Integer> wordFrequencies = new HashMap<>();
+        processDump(dumpFilePath, outputTextPath, null, wordFrequencies);
+        return wordFrequencies;
+    }
+    
+    // processDump followed by saveWordFrequencies in bounded memory: worker counts
+    // are spilled to sorted runs in a temporary directory next to the frequency
+    // file once they reach the memory budget, and the runs are merged straight
+    // into the file. Words seen fewer than minCount times are left out; the file
+    // is in word order. Returns the number of words written, -1 on error.
+    public long processDump(String dumpFilePath, String outputTextPath, String frequencyOutputPath, int minCount) {
+        Path workDir = Paths.get(frequencyOutputPath).toAbsolutePath().getParent();
+        try (ExternalWordCounter counter = new ExternalWordCounter(workDir, memoryBudgetBytes)) {
+            if (!processDump(dumpFilePath, outputTextPath, counter, null)) {
+                return -1;
+            }
+            long words;
+            try (BufferedWriter writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(frequencyOutputPath), StandardCharsets.UTF_8))) {
+                words = counter.merge(minCount, (word, count) -> {
+                    writer.write(word + "|" + Math.min(count, Integer.MAX_VALUE));
+                    writer.newLine();
+                });
+            }
+            System.out.println("Word frequencies saved to: " + frequencyOutputPath);
+            System.out.println("Total unique words: " + words + " (seen at least " + minCount + " times, merged from "
+                + counter.getRunCount() + " runs)");
+            return words;
+        } catch (IOException e) {
+            System.err.println("Error counting words: " + e.getMessage());
+            return -1;
+        }
+    }
+    
+    // Counts go to the counter when there is one, otherwise into wordFrequencies
+    private boolean processDump(String dumpFilePath, String outputTextPath, ExternalWordCounter counter,
+                                Map<String, Integer> wordFrequencies) {
         AtomicInteger pageCount = new AtomicInteger(0);
         
         System.out.println("Starting Wikipedia dump processing...");
         
-        // Check if file is compressed
-        if (dumpFilePath.toLowerCase().endsWith(".bz2") || dumpFilePath.toLowerCase().endsWith(".gz")) {
-            System.err.println("ERROR: Compressed file detected!");
-            System.err.println("Please extract the file first using 7-Zip or similar tool.");
-            System.err.println("Windows: Right-click file -> 7-Zip -> Extract Here");
-            System.err.println("Or use command: 7z e " + dumpFilePath);
-            System.err.println("Then provide the extracted .xml file path.");
-            return wordFrequencies;
-        }
-        
-        try {
-            FileInputStream fileInputStream = new FileInputStream(dumpFilePath);
-            
+        // .bz2/.gz dumps are decompressed while parsing, no extraction needed. A
+        // .blocks path gets a block-compressed corpus (BlockCorpus), others plain
+        // text. Pages are cleaned and counted by worker threads; this thread only
+        // parses XML. All three are closed on failure too, the pipeline first so
+        // no worker writes to a closed corpus.
+        try (InputStream dumpStream = openDump(dumpFilePath);
+             Writer textWriter = BlockCorpus.create(outputTextPath);
+             PagePipeline pipeline = new PagePipeline(workerThreads, textWriter, counter)) {
             XMLInputFactory factory = XMLInputFactory.newInstance();
-            XMLStreamReader reader = factory.createXMLStreamReader(fileInputStream, "UTF-8");
+            XMLStreamReader reader = factory.createXMLStreamReader(dumpStream, "UTF-8");
             
-            BufferedWriter textWriter = new BufferedWriter(
-                new OutputStreamWriter(new FileOutputStream(outputTextPath), StandardCharsets.UTF_8));
+            List<String> batch = new ArrayList<>(PAGES_PER_BATCH);
             String currentElement = "";
             StringBuilder pageContent = new StringBuilder();
             boolean inText = false;
@@ -66,7 +118,11 @@ public class WikipediaDumpProcessor {
                         String elementName = reader.getLocalName();
                         if ("text".equals(elementName)) {
                             inText = false;
-                            processPageContent(pageContent.toString(), wordFrequencies, textWriter);
+                            batch.add(pageContent.toString());
+                            if (batch.size() == PAGES_PER_BATCH) {
+                                pipeline.submit(batch);
+                                batch = new ArrayList<>(PAGES_PER_BATCH);
+                            }
                             pageCount.incrementAndGet();
                             
                             if (pageCount.get() % 1000 == 0) {
@@ -82,74 +138,219 @@ public class WikipediaDumpProcessor {
                 }
             }
             
+            if (!batch.isEmpty()) {
+                pipeline.submit(batch);
+            }
+            pipeline.finish(wordFrequencies);
             reader.close();
-            fileInputStream.close();
-            textWriter.close();
-            
-            System.out.println("Completed processing " + pageCount.get() + " pages");
-            
         } catch (Exception e) {
             System.err.println("Error processing dump: " + e.getMessage());
             e.printStackTrace();
+            return false;
         }
-        
-        return wordFrequencies;
+        System.out.println("Completed processing " + pageCount.get() + " pages");
+        return true;
     }
     
-    private void processPageContent(String content, Map<String, Integer> wordFrequencies, 
-                                  BufferedWriter writer) throws IOException {
+    private InputStream openDump(String dumpFilePath) throws IOException {
+        InputStream dumpStream = DumpStreams.open(dumpFilePath, workerThreads);
+        return Metrics.isEnabled() ? new MeteredInputStream(dumpStream) : dumpStream;
+    }
+    
+    // Returns the clean text of a page (null if empty) and counts its words
+    private String processPageContent(String content, FrequencyTable wordFrequencies) {
         if (content == null || content.trim().isEmpty()) {
-            return;
+            return null;
         }
         
+        long started = Metrics.start();
         String cleanText = extractCleanText(content);
+        long cleaned = Metrics.record(Metrics.Stage.PAGE_CLEAN, started);
+        Metrics.count(Metrics.Counter.PAGES, 1);
         
         if (!cleanText.trim().isEmpty()) {
-            writer.write(cleanText);
-            writer.newLine();
             updateWordFrequencies(cleanText, wordFrequencies);
+            Metrics.record(Metrics.Stage.PAGE_COUNT, cleaned);
+            return cleanText;
         }
+        return null;
     }
     
     private String extractCleanText(String wikiText) {
         if (wikiText == null) return "";
         
-        String text = wikiText;
-        text = text.replaceAll("\\{\\{[^}]*\\}\\}", "");
-        text = text.replaceAll("\\[\\[[^]]*?\\|([^]]*?)]]", "$1");
-        text = text.replaceAll("\\[\\[([^]|]*?)]]", "$1");
-        text = text.replaceAll("<[^>]+>", "");
-        text = text.replaceAll("<ref[^>]*>.*?</ref>", "");
-        text = text.replaceAll("&[a-z]+;", "");
-        text = text.replaceAll("\\[https?://[^] ]*]", "");
-        text = text.replaceAll("\\[\\[File:[^]]*]]", "");
-        text = text.replaceAll("\\[\\[Image:[^]]*]]", "");
-        text = text.replaceAll("\\s+", " ").trim();
-        
-        return text;
+        return WikiTextCleaner.clean(wikiText);
+    }
+    
+    // Tokens are looked up as slices of the page; only new words are copied
+    private void updateWordFrequencies(String text, FrequencyTable wordFrequencies) {
+        TeluguTokenizer.tokenize(text, (source, start, end, telugu) -> {
+            if (telugu && end - start >= 2 && !TELUGU_STOP_WORDS.contains(source, start, end)) {
+                wordFrequencies.add(source, start, end, 1);
+            }
+        });
     }
     
-    private void updateWordFrequencies(String text, Map<String, Integer> wordFrequencies) {
-        String[] words = text.split("[\\s\\p{Punct}]+");
+    // Reader -> bounded queue -> N workers with thread-local counts. Cleaned batches
+    // are written in submission order, so the corpus file is deterministic.
+    private class PagePipeline implements AutoCloseable {
+        private final BlockingQueue<PageBatch> queue;
+        private final Semaphore inFlight;
+        private final Thread[] workers;
+        private final List<FrequencyTable> localCounts = new ArrayList<>();
+        private final Writer writer;
+        private final ExternalWordCounter counter;   // null: counts stay in memory
+        private final long spillBytes;
+        private final Map<Long, List<String>> pending = new HashMap<>();
+        private long nextSequence;
+        private long nextToWrite;
+        private volatile Throwable failure;
         
-        for (String word : words) {
-            if (isValidTeluguWord(word)) {
-                wordFrequencies.merge(word, 1, Integer::sum);
+        PagePipeline(int threads, Writer writer, ExternalWordCounter counter) {
+            this.writer = writer;
+            this.counter = counter;
+            // Each worker gets an equal share of the budget
+            this.spillBytes = counter != null ? counter.getMemoryBudget() / threads : Long.MAX_VALUE;
+            int maxInFlight = threads * 4;
+            this.inFlight = new Semaphore(maxInFlight);
+            this.queue = new ArrayBlockingQueue<>(maxInFlight + threads);
+            this.workers = new Thread[threads];
+            for (int i = 0; i < threads; i++) {
+                FrequencyTable counts = new FrequencyTable();
+                localCounts.add(counts);
+                workers[i] = new Thread(() -> work(counts), "dump-worker-" + i);
+                workers[i].setDaemon(true);
+                workers[i].start();
+            }
+        }
+        
+        void submit(List<String> pages) throws Exception {
+            while (!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+            checkFailure();
+            queue.put(new PageBatch(nextSequence++, pages));
+        }
+        
+        void finish(Map<String, Integer> wordFrequencies) throws Exception {
+            for (int i = 0; i < workers.length; i++) {
+                queue.put(PageBatch.END);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            checkFailure();
+            for (FrequencyTable counts : localCounts) {
+                if (counter != null) {
+                    counter.spill(counts);
+                    counts.clear();
+                } else {
+                    counts.forEach((word, count) -> wordFrequencies.merge(word, count, Integer::sum));
+                    counts.clear();
+                }
+            }
+        }
+        
+        // Stops the workers and waits for them, so none is still writing afterwards
+        @Override
+        public void close() {
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+            try {
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        private void work(FrequencyTable counts) {
+            try {
+                while (true) {
+                    PageBatch batch = queue.take();
+                    if (batch == PageBatch.END) {
+                        return;
+                    }
+                    List<String> cleaned = new ArrayList<>(batch.pages.size());
+                    for (String page : batch.pages) {
+                        String cleanText = processPageContent(page, counts);
+                        if (cleanText != null) {
+                            cleaned.add(cleanText);
+                        }
+                    }
+                    write(batch.sequence, cleaned);
+                    if (counts.estimatedBytes() >= spillBytes) {
+                        counter.spill(counts);
+                        counts.clear();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable t) {
+                failure = t;
+            }
+        }
+        
+        private synchronized void write(long sequence, List<String> cleaned) throws IOException {
+            pending.put(sequence, cleaned);
+            List<String> next;
+            while ((next = pending.remove(nextToWrite)) != null) {
+                for (String line : next) {
+                    writer.write(line);
+                    writer.write(System.lineSeparator());
+                }
+                nextToWrite++;
+                inFlight.release();
+            }
+        }
+        
+        private void checkFailure() throws Exception {
+            Throwable t = failure;
+            if (t instanceof Exception) {
+                throw (Exception) t;
+            } else if (t != null) {
+                throw new RuntimeException(t);
             }
         }
     }
     
-    private boolean isValidTeluguWord(String word) {
-        if (word == null || word.trim().isEmpty() || word.length() < 2) {
-            return false;
-        }
+    private static class PageBatch {
+        static final PageBatch END = new PageBatch(-1, Collections.emptyList());
         
-        boolean hasTeluguChars = word.codePoints()
-            .anyMatch(cp -> (cp >= 0x0C00 && cp <= 0x0C7F));
+        final long sequence;
+        final List<String> pages;
         
-        boolean notStopWord = !TELUGU_STOP_WORDS.contains(word);
+        PageBatch(long sequence, List<String> pages) {
+            this.sequence = sequence;
+            this.pages = pages;
+        }
+    }
+    
+    // Counts the (decompressed) dump bytes read, for the bytes/s metric
+    private static final class MeteredInputStream extends FilterInputStream {
+        MeteredInputStream(InputStream in) {
+            super(in);
+        }
         
-        return hasTeluguChars && notStopWord;
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                Metrics.count(Metrics.Counter.DUMP_BYTES, 1);
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                Metrics.count(Metrics.Counter.DUMP_BYTES, read);
+            }
+            return read;
+        }
     }
     
     public void saveWordFrequencies(Map<String, Integer> wordFrequencies, String outputPath) {
@@ -1,9 +1,19 @@
-import java.util.Map;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class WikipediaSpellChecker {
+    // Words seen only once in a whole dump are mostly typos; they stay out of the dictionary
+    private static final int MIN_WORD_COUNT = 2;
     
+    // With arguments "batch <directory | glob> <results.ndjson> [options]" checks
+    // the documents without the menu (see BatchSpellChecker)
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("batch")) {
+            BatchSpellChecker.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         TeluguSpellChecker spellChecker = new TeluguSpellChecker();
         LanguageModel languageModel = new LanguageModel();
         Scanner scanner = new Scanner(System.in);
@@ -20,7 +30,7 @@ public class WikipediaSpellChecker {
             
             switch (choice) {
                 case 1:
-                    buildFromWikipediaDump(languageModel, scanner);
+                    buildFromWikipediaDump(languageModel, spellChecker, scanner);
                     break;
                 case 2:
                     languageModel.loadModel("data/telugu_index.dat");
@@ -34,6 +44,12 @@ public class WikipediaSpellChecker {
             }
             
             spellChecker.initializeWithModel(languageModel);
+            if (choice != 1 && new File("data/" + TeluguSpellChecker.NGRAM_FILE).exists()) {
+                spellChecker.loadNGramModel("data/" + TeluguSpellChecker.NGRAM_FILE);
+            }
+            if (choice != 1 && new File("data/telugu_index.dat").exists()) {
+                languageModel.openDeltaLog("data/" + TeluguSpellChecker.DELTA_LOG_FILE);
+            }
             runSpellChecker(spellChecker, scanner);
         } catch (Exception e) {
             System.out.println("Error: " + e.getMessage());
@@ -43,7 +59,8 @@ public class WikipediaSpellChecker {
         }
     }
     
-    private static void buildFromWikipediaDump(LanguageModel model, Scanner scanner) {
+    private static void buildFromWikipediaDump(LanguageModel model, TeluguSpellChecker spellChecker,
+                                               Scanner scanner) {
         System.out.print("Enter path to Wikipedia dump (.bz2 file): ");
         String dumpPath = scanner.nextLine();
         
@@ -54,19 +71,48 @@ public class WikipediaSpellChecker {
         System.out.println("This may take several minutes for large dumps...");
         
         long startTime = System.currentTimeMillis();
+        // With -Dspellchecker.metrics=true, pages/s, MB/s and per-page timings every 10 seconds
+        AutoCloseable reporter = Metrics.isEnabled() ? Metrics.startReporter(10, false, System.out) : null;
         
         WikipediaDumpProcessor processor = new WikipediaDumpProcessor();
-        String textOutputPath = outputDir + "/telugu_corpus.txt";
+        // Cleaned text in compressed blocks, re-read in parallel by later builds
+        String textOutputPath = outputDir + "/telugu_corpus.blocks";
         String freqOutputPath = outputDir + "/telugu_frequencies.dat";
         
-        Map<String, Integer> frequencies = processor.processDump(dumpPath, textOutputPath);
-        processor.saveWordFrequencies(frequencies, freqOutputPath);
+        // Counted in bounded memory, spilling to disk, so the dump size is not limited by the heap
+        processor.processDump(dumpPath, textOutputPath, freqOutputPath, MIN_WORD_COUNT);
         
         long endTime = System.currentTimeMillis();
         
         System.out.println("Processing completed in " + (endTime - startTime) / 1000 + " seconds");
+        if (reporter != null) {
+            try {
+                reporter.close();
+            } catch (Exception e) {
+                // Only stops a timer
+            }
+            System.out.println(Metrics.snapshot());
+        }
         
-        model.loadModel("data/telugu_index.dat");
+        // Convert the frequencies into the binary index and load it
+        String indexOutputPath = outputDir + "/telugu_index.dat";
+        try {
+            ModelConverter.convert(freqOutputPath, indexOutputPath);
+        } catch (Exception e) {
+            System.out.println("Error converting model: " + e.getMessage());
+        }
+        model.loadModel(indexOutputPath);
+        model.openDeltaLog(outputDir + "/" + TeluguSpellChecker.DELTA_LOG_FILE);
+        
+        // Bigram/trigram model for context re-ranking, picked up next to the index
+        String ngramOutputPath = outputDir + "/" + TeluguSpellChecker.NGRAM_FILE;
+        try {
+            NGramModel ngrams = NGramModel.buildFromCorpus(textOutputPath, 2);
+            ngrams.save(ngramOutputPath);
+            spellChecker.setNGramModel(ngrams);
+        } catch (IOException e) {
+            System.out.println("Error building n-gram model: " + e.getMessage());
+        }
     }
     
     private static void runSpellChecker(TeluguSpellChecker spellChecker, Scanner scanner) {
@@ -76,7 +122,8 @@ public class WikipediaSpellChecker {
             System.out.println("\nOptions:");
             System.out.println("1. Check a sentence");
             System.out.println("2. Check a file");
-            System.out.println("3. Exit");
+            System.out.println("3. Add a word to the dictionary");
+            System.out.println("4. Exit");
             System.out.print("Choose option: ");
             
             int choice = scanner.nextInt();
@@ -90,6 +137,9 @@ public class WikipediaSpellChecker {
                     checkFile(spellChecker, scanner);
                     break;
                 case 3:
+                    addWord(spellChecker, scanner);
+                    break;
+                case 4:
                     System.out.println("Goodbye!");
                     return;
                 default:
@@ -110,6 +160,18 @@ public class WikipediaSpellChecker {
         spellChecker.displayMisspelledWords();
     }
     
+    private static void addWord(TeluguSpellChecker spellChecker, Scanner scanner) {
+        System.out.print("Enter Telugu word to add: ");
+        String word = scanner.nextLine().trim();
+        if (word.isEmpty()) {
+            System.out.println("No word entered.");
+            return;
+        }
+        spellChecker.learnWord(word);
+        System.out.println("Added \"" + word + "\" (" + spellChecker.getLanguageModel().getWordStore().getFrequency(word)
+            + " occurrences)");
+    }
+    
     private static void checkFile(TeluguSpellChecker spellChecker, Scanner scanner) {
         System.out.print("Enter path to text file: ");
         String filePath = scanner.nextLine();
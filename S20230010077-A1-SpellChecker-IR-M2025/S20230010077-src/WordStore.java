@@ -0,0 +1,33 @@
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+// Storage backend for the language model vocabulary (word -> frequency)
+public interface WordStore {
+    
+    // Frequency of the word, 0 if it is not in the dictionary
+    int getFrequency(String word);
+    
+    boolean contains(String word);
+    
+    int size();
+    
+    long getTotalFrequency();
+    
+    void forEach(ObjIntConsumer<String> action);
+    
+    // Frequency of each word, -1 for words not in the dictionary. Remote stores
+    // answer the whole list with one request per shard.
+    default int[] lookup(List<String> words) {
+        int[] frequencies = new int[words.size()];
+        for (int i = 0; i < frequencies.length; i++) {
+            String word = words.get(i);
+            frequencies[i] = contains(word) ? getFrequency(word) : -1;
+        }
+        return frequencies;
+    }
+    
+    // Whether lookups leave the process, so that callers should batch them
+    default boolean isRemote() {
+        return false;
+    }
+}
\ No newline at end of file